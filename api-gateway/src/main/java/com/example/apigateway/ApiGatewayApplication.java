@@ -91,7 +91,9 @@ public class ApiGatewayApplication {
                 registry.addMapping("/**")
                         .allowedOrigins("http://localhost:3000")
                         .allowedMethods("*")
-                        .allowedHeaders("*");
+                        .allowedHeaders("*")
+                        // Lets the frontend read cart/wishlist versions for If-None-Match and If-Match
+                        .exposedHeaders("ETag");
             }
         };
     }
@@ -0,0 +1,36 @@
+package com.example.cartservice.client;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Looks up product titles and prices in product-service, any number of products per request.
+ */
+@Component
+public class ProductClient {
+    private final RestTemplate restTemplate;
+    private final String batchUrl;
+
+    public ProductClient(@Value("${product-service.url:http://product-service:8082}") String baseUrl,
+                         @Value("${product-service.timeout:2s}") Duration timeout) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeout);
+        requestFactory.setReadTimeout(timeout);
+        this.restTemplate = new RestTemplate(requestFactory);
+        this.batchUrl = baseUrl + "/api/products/batch";
+    }
+
+    /**
+     * Products that no longer exist are missing from the result.
+     */
+    public List<ProductPrice> getPrices(Collection<Long> productIds) {
+        ProductPrice[] prices = restTemplate.postForObject(batchUrl, productIds, ProductPrice[].class);
+        return prices == null ? List.of() : List.of(prices);
+    }
+}
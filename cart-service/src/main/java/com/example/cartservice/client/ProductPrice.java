@@ -0,0 +1,7 @@
+package com.example.cartservice.client;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ProductPrice(Long id, String title, int price) {
+}
@@ -1,44 +1,105 @@
 package com.example.cartservice.controller;
 
 import com.example.cartservice.dto.CartDto;
+import com.example.cartservice.dto.CartItemDto;
+import com.example.cartservice.dto.CartOperationDto;
+import com.example.cartservice.service.CartPricer;
 import com.example.cartservice.service.CartService;
+import com.example.cartservice.service.VersionMismatchException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.ArrayList;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/cart")
 @RequiredArgsConstructor
 public class CartController {
     private final CartService cartService;
+    private final CartPricer cartPricer;
 
+    // The ETag covers the prices as well as the cart version, so the cart is priced before If-None-Match is checked
     @GetMapping("/{userId}")
-    public ResponseEntity<CartDto> getCart(@PathVariable Long userId) {
-        return ResponseEntity.ok(cartService.getCart(userId));
+    public ResponseEntity<CartDto> getCart(@PathVariable Long userId, WebRequest request) {
+        CartDto cart = cartPricer.price(cartService.getCart(userId));
+        if (request.checkNotModified(etag(cart))) return null;
+        return withEtag(cart);
+    }
+
+    @PatchMapping("/{userId}")
+    public ResponseEntity<CartDto> applyOperations(@PathVariable Long userId,
+                                                   @RequestBody List<CartOperationDto> operations,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return withEtag(cartPricer.price(cartService.applyOperations(userId, operations, expectedVersion(ifMatch))));
     }
 
     @PostMapping("/{userId}/items")
     public ResponseEntity<CartDto> addItem(@PathVariable Long userId,
                                            @RequestParam Long productId,
-                                           @RequestParam int quantity) {
-        return ResponseEntity.ok(cartService.addItem(userId, productId, quantity));
+                                           @RequestParam int quantity,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return withEtag(cartPricer.price(cartService.addItem(userId, productId, quantity, expectedVersion(ifMatch))));
     }
 
     @PutMapping("/{userId}/items/{productId}")
     public ResponseEntity<CartDto> updateItem(@PathVariable Long userId,
                                               @PathVariable Long productId,
-                                              @RequestParam int quantity) {
-        return ResponseEntity.ok(cartService.updateItem(userId, productId, quantity));
+                                              @RequestParam int quantity,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return withEtag(cartPricer.price(cartService.updateItem(userId, productId, quantity, expectedVersion(ifMatch))));
     }
 
     @DeleteMapping("/{userId}/items/{productId}")
-    public ResponseEntity<CartDto> removeItem(@PathVariable Long userId, @PathVariable Long productId) {
-        return ResponseEntity.ok(cartService.removeItem(userId, productId));
+    public ResponseEntity<CartDto> removeItem(@PathVariable Long userId, @PathVariable Long productId,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return withEtag(cartPricer.price(cartService.removeItem(userId, productId, expectedVersion(ifMatch))));
     }
 
     @DeleteMapping("/{userId}/clear")
-    public ResponseEntity<Void> clearCart(@PathVariable Long userId) {
-        cartService.clearCart(userId);
+    public ResponseEntity<Void> clearCart(@PathVariable Long userId,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        cartService.clearCart(userId, expectedVersion(ifMatch));
         return ResponseEntity.ok().build();
     }
+
+    private static ResponseEntity<CartDto> withEtag(CartDto cart) {
+        return ResponseEntity.ok().eTag(etag(cart)).body(cart);
+    }
+
+    /**
+     * {@code "<version>-<prices>"}: the version changes with the lines, the fingerprint with the
+     * titles and prices fetched from product-service, so a repriced cart is never answered with 304.
+     */
+    static String etag(CartDto cart) {
+        List<Object> priced = new ArrayList<>();
+        for (CartItemDto item : cart.getItems()) {
+            priced.add(item.getProductId());
+            priced.add(item.getTitle());
+            priced.add(item.getPrice());
+        }
+        priced.add(cart.getTotal());
+        return "\"" + cart.getVersion() + "-" + Integer.toHexString(priced.hashCode()) + "\"";
+    }
+
+    /**
+     * The version an If-Match header requires, or null when there is none or it is {@code *}.
+     * Only the version part of the tag is compared, so a bare {@code "<version>"} is accepted too;
+     * prices are not the client's to lock. Weak or unparseable tags can never match a strong ETag.
+     */
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) return null;
+        String tag = ifMatch.trim();
+        if (tag.length() < 3 || !tag.startsWith("\"") || !tag.endsWith("\"")) throw new VersionMismatchException();
+        String value = tag.substring(1, tag.length() - 1);
+        int dash = value.indexOf('-');
+        try {
+            return Long.parseLong(dash < 0 ? value : value.substring(0, dash));
+        } catch (NumberFormatException ex) {
+            throw new VersionMismatchException();
+        }
+    }
 }
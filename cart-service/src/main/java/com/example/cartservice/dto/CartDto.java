@@ -7,6 +7,8 @@ import java.util.List;
 public class CartDto {
     private Long id;
     private Long userId;
+    private long version;
     private List<CartItemDto> items;
+    // Sum of the line totals; null unless every line could be priced
+    private Integer total;
 }
-
@@ -6,4 +6,8 @@ import lombok.Data;
 public class CartItemDto {
     private Long productId;
     private int quantity;
+    // Filled in from product-service; null when the product is unknown or prices are unavailable
+    private String title;
+    private Integer price;
+    private Integer lineTotal;
 }
@@ -0,0 +1,14 @@
+package com.example.cartservice.dto;
+
+import lombok.Data;
+
+/**
+ * One step of a PATCH /api/cart/{userId} batch. {@code op} is "add" (increase by quantity),
+ * "set" (create or overwrite with quantity; zero or less removes the line) or "remove".
+ */
+@Data
+public class CartOperationDto {
+    private String op;
+    private Long productId;
+    private int quantity;
+}
@@ -2,11 +2,15 @@ package com.example.cartservice.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.ColumnDefault;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "carts")
+@Table(name = "carts", indexes = {
+        @Index(name = "idx_carts_user_id", columnList = "user_id"),
+        @Index(name = "idx_carts_last_modified", columnList = "last_modified")})
 @Data
 public class Cart {
     @Id
@@ -15,6 +19,16 @@ public class Cart {
 
     private Long userId;
 
+    // Bumped by every mutation of the cart or its lines; served as the ETag
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long version;
+
+    // Set together with the version; CartSweeper removes carts idle past their TTL
+    @ColumnDefault("now()")
+    @Column(nullable = false)
+    private LocalDateTime lastModified = LocalDateTime.now();
+
     @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER, mappedBy = "cart")
     private List<CartItem> items = new ArrayList<>();
 }
@@ -3,6 +3,8 @@ package com.example.cartservice.model;
 import jakarta.persistence.*;
 import lombok.Data;
 
+// (cart_id, product_id) is unique through the index created by CartItemUniqueIndex, not a
+// @UniqueConstraint: schema update would try to add one under the same name on every startup
 @Entity
 @Table(name = "cart_items")
 @Data
@@ -0,0 +1,87 @@
+package com.example.cartservice.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Set-based variants of the {@link CartItemRepository} mutations: each call is one statement for
+ * any number of products, passing them as arrays and expanding them with {@code unnest}.
+ */
+@Repository
+public class CartItemBatchRepository {
+    private final JdbcTemplate jdbcTemplate;
+    private final String table;
+    private final String cartsTable;
+
+    public CartItemBatchRepository(JdbcTemplate jdbcTemplate,
+                                   @Value("${spring.jpa.properties.hibernate.default_schema:public}") String schema) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.table = schema + ".cart_items";
+        this.cartsTable = schema + ".carts";
+    }
+
+    public int addQuantities(Long cartId, Map<Long, Integer> quantities) {
+        return upsert(cartId, quantities, "cart_items.quantity + EXCLUDED.quantity");
+    }
+
+    public int setQuantities(Long cartId, Map<Long, Integer> quantities) {
+        return upsert(cartId, quantities, "EXCLUDED.quantity");
+    }
+
+    public int deleteItems(Long cartId, Collection<Long> productIds) {
+        if (productIds.isEmpty()) return 0;
+        return jdbcTemplate.update("DELETE FROM " + table + " WHERE cart_id = ? AND product_id = ANY(?)", ps -> {
+            ps.setLong(1, cartId);
+            ps.setArray(2, ps.getConnection().createArrayOf("bigint", productIds.toArray()));
+        });
+    }
+
+    /**
+     * Sets the quantity of lines across any number of carts in one statement. Lines of carts that
+     * no longer exist (removed by the sweeper meanwhile) are skipped instead of failing the batch.
+     */
+    public int setLineQuantities(Collection<CartLine> lines) {
+        if (lines.isEmpty()) return 0;
+        return jdbcTemplate.update(
+                "INSERT INTO " + table + " (cart_id, product_id, quantity) " +
+                        "SELECT u.cart_id, u.product_id, u.quantity FROM unnest(?, ?, ?) AS u(cart_id, product_id, quantity) " +
+                        "JOIN " + cartsTable + " c ON c.id = u.cart_id " +
+                        "ON CONFLICT (cart_id, product_id) DO UPDATE SET quantity = EXCLUDED.quantity",
+                ps -> {
+                    ps.setArray(1, ps.getConnection().createArrayOf("bigint", lines.stream().map(CartLine::cartId).toArray()));
+                    ps.setArray(2, ps.getConnection().createArrayOf("bigint", lines.stream().map(CartLine::productId).toArray()));
+                    ps.setArray(3, ps.getConnection().createArrayOf("integer", lines.stream().map(CartLine::quantity).toArray()));
+                });
+    }
+
+    /**
+     * Deletes lines across any number of carts in one statement; quantities are ignored.
+     */
+    public int deleteLines(Collection<CartLine> lines) {
+        if (lines.isEmpty()) return 0;
+        return jdbcTemplate.update(
+                "DELETE FROM " + table + " i USING unnest(?, ?) AS d(cart_id, product_id) " +
+                        "WHERE i.cart_id = d.cart_id AND i.product_id = d.product_id",
+                ps -> {
+                    ps.setArray(1, ps.getConnection().createArrayOf("bigint", lines.stream().map(CartLine::cartId).toArray()));
+                    ps.setArray(2, ps.getConnection().createArrayOf("bigint", lines.stream().map(CartLine::productId).toArray()));
+                });
+    }
+
+    private int upsert(Long cartId, Map<Long, Integer> quantities, String newQuantity) {
+        if (quantities.isEmpty()) return 0;
+        return jdbcTemplate.update(
+                "INSERT INTO " + table + " (cart_id, product_id, quantity) " +
+                        "SELECT ?, u.product_id, u.quantity FROM unnest(?, ?) AS u(product_id, quantity) " +
+                        "ON CONFLICT (cart_id, product_id) DO UPDATE SET quantity = " + newQuantity,
+                ps -> {
+                    ps.setLong(1, cartId);
+                    ps.setArray(2, ps.getConnection().createArrayOf("bigint", quantities.keySet().toArray()));
+                    ps.setArray(3, ps.getConnection().createArrayOf("integer", quantities.values().toArray()));
+                });
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.cartservice.repository;
+
+import com.example.cartservice.model.CartItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+/**
+ * Single-statement item mutations keyed by (cart_id, product_id), relying on the unique index
+ * {@code uk_cart_items_cart_product}.
+ */
+public interface CartItemRepository extends JpaRepository<CartItem, Long> {
+
+    @Modifying
+    @Query(nativeQuery = true, value = "INSERT INTO {h-schema}cart_items (cart_id, product_id, quantity) " +
+            "VALUES (:cartId, :productId, :quantity) " +
+            "ON CONFLICT (cart_id, product_id) DO UPDATE SET quantity = cart_items.quantity + EXCLUDED.quantity")
+    int addQuantity(@Param("cartId") Long cartId, @Param("productId") Long productId, @Param("quantity") int quantity);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "UPDATE {h-schema}cart_items SET quantity = :quantity " +
+            "WHERE cart_id = :cartId AND product_id = :productId")
+    int setQuantity(@Param("cartId") Long cartId, @Param("productId") Long productId, @Param("quantity") int quantity);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "DELETE FROM {h-schema}cart_items WHERE cart_id = :cartId AND product_id = :productId")
+    int deleteItem(@Param("cartId") Long cartId, @Param("productId") Long productId);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "DELETE FROM {h-schema}cart_items WHERE cart_id = :cartId")
+    int deleteAllItems(@Param("cartId") Long cartId);
+
+    @Query("select new com.example.cartservice.repository.CartItemRow(i.productId, i.quantity) " +
+            "from CartItem i where i.cart.id = :cartId order by i.id")
+    List<CartItemRow> findRowsByCartId(@Param("cartId") Long cartId);
+}
@@ -0,0 +1,4 @@
+package com.example.cartservice.repository;
+
+public record CartItemRow(Long productId, int quantity) {
+}
@@ -0,0 +1,46 @@
+package com.example.cartservice.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Makes sure {@code cart_items} has the (cart_id, product_id) unique index the upserts in
+ * {@link CartItemRepository} need. Hibernate's schema update cannot add it while the table still
+ * holds duplicate lines from the old load-and-save path, so those are merged first (quantities
+ * summed into the oldest line). Runs after schema update and before the web server takes traffic.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+public class CartItemUniqueIndex implements InitializingBean {
+    static final String INDEX = "uk_cart_items_cart_product";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String schema;
+
+    public CartItemUniqueIndex(JdbcTemplate jdbcTemplate,
+                               @Value("${spring.jpa.properties.hibernate.default_schema:public}") String schema) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.schema = schema;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        String exists = jdbcTemplate.queryForObject("SELECT to_regclass(?)::text", String.class, schema + "." + INDEX);
+        if (exists != null) return;
+        String table = schema + ".cart_items";
+        int merged = jdbcTemplate.update(
+                "UPDATE " + table + " k SET quantity = d.total FROM (" +
+                        "SELECT min(id) AS keep_id, sum(quantity) AS total FROM " + table +
+                        " GROUP BY cart_id, product_id HAVING count(*) > 1) d WHERE k.id = d.keep_id");
+        int deleted = jdbcTemplate.update(
+                "DELETE FROM " + table + " i USING " + table + " k " +
+                        "WHERE i.cart_id = k.cart_id AND i.product_id = k.product_id AND i.id > k.id");
+        jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS " + INDEX + " ON " + table + " (cart_id, product_id)");
+        if (deleted > 0) log.info("Merged {} duplicate cart lines into {} before creating {}", deleted, merged, INDEX);
+    }
+}
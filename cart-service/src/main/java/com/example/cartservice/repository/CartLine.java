@@ -0,0 +1,4 @@
+package com.example.cartservice.repository;
+
+public record CartLine(Long cartId, Long productId, int quantity) {
+}
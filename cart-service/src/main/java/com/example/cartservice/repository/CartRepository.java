@@ -2,9 +2,18 @@ package com.example.cartservice.repository;
 
 import com.example.cartservice.model.Cart;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Optional;
 
 public interface CartRepository extends JpaRepository<Cart, Long> {
     Optional<Cart> findByUserId(Long userId);
+
+    // Id only, so item mutations don't load the eager items collection
+    @Query("select c.id from Cart c where c.userId = :userId")
+    Optional<Long> findIdByUserId(@Param("userId") Long userId);
+
+    @Query("select new com.example.cartservice.repository.CartVersion(c.id, c.version) from Cart c where c.userId = :userId")
+    Optional<CartVersion> findVersionByUserId(@Param("userId") Long userId);
 }
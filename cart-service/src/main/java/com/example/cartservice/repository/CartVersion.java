@@ -0,0 +1,4 @@
+package com.example.cartservice.repository;
+
+public record CartVersion(Long cartId, long version) {
+}
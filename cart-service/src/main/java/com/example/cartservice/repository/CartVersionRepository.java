@@ -0,0 +1,61 @@
+package com.example.cartservice.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Version bumps for {@code carts}. A bump is the first statement of every cart mutation: it locks the
+ * cart row for the rest of the transaction and, given an expected version, makes the mutation
+ * conditional on it.
+ */
+@Repository
+public class CartVersionRepository {
+    private static final RowMapper<CartVersion> ROW_MAPPER =
+            (rs, rowNum) -> new CartVersion(rs.getLong("id"), rs.getLong("version"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String table;
+
+    public CartVersionRepository(JdbcTemplate jdbcTemplate,
+                                 @Value("${spring.jpa.properties.hibernate.default_schema:public}") String schema) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.table = schema + ".carts";
+    }
+
+    /**
+     * Increments the version of the user's cart, if {@code expectedVersion} is null or matches, and
+     * returns the cart id with the new version. Empty when there is no such cart or the version differs.
+     */
+    public Optional<CartVersion> bump(Long userId, Long expectedVersion) {
+        List<CartVersion> bumped = expectedVersion == null
+                ? jdbcTemplate.query("UPDATE " + table + " SET version = version + 1, last_modified = now() " +
+                        "WHERE user_id = ? RETURNING id, version", ROW_MAPPER, userId)
+                : jdbcTemplate.query("UPDATE " + table + " SET version = version + 1, last_modified = now() " +
+                        "WHERE user_id = ? AND version = ? RETURNING id, version", ROW_MAPPER, userId, expectedVersion);
+        return bumped.stream().findFirst();
+    }
+
+    /**
+     * Writes versions kept elsewhere (the in-memory cart store) for any number of carts in one statement
+     * and returns the ids of the carts that still exist.
+     */
+    public Set<Long> setVersions(Collection<CartVersion> versions) {
+        if (versions.isEmpty()) return Set.of();
+        return new HashSet<>(jdbcTemplate.query(
+                "UPDATE " + table + " c SET version = u.version, last_modified = now() " +
+                        "FROM unnest(?, ?) AS u(id, version) WHERE c.id = u.id RETURNING c.id",
+                ps -> {
+                    ps.setArray(1, ps.getConnection().createArrayOf("bigint", versions.stream().map(CartVersion::cartId).toArray()));
+                    ps.setArray(2, ps.getConnection().createArrayOf("bigint", versions.stream().map(CartVersion::version).toArray()));
+                },
+                (rs, rowNum) -> rs.getLong(1)));
+    }
+}
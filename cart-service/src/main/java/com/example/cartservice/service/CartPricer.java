@@ -0,0 +1,94 @@
+package com.example.cartservice.service;
+
+import com.example.cartservice.client.ProductClient;
+import com.example.cartservice.client.ProductPrice;
+import com.example.cartservice.dto.CartDto;
+import com.example.cartservice.dto.CartItemDto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Adds titles, prices, line totals and the cart total to a cart. Prices are cached per product
+ * for {@code cart.prices.ttl}; the products of a cart that are not cached are fetched from
+ * product-service in one batch request, so rendering a cart costs at most one remote call.
+ * <p>
+ * If product-service cannot be reached the cart is returned unpriced rather than failing. Cache
+ * statistics are published as {@code cache.*{cache=cart.prices}} plus {@code cart.prices.hit.ratio},
+ * and the time spent pricing a cart as {@code cart.pricing}.
+ */
+@Slf4j
+@Service
+public class CartPricer {
+    private final ProductClient productClient;
+    private final Cache<Long, ProductPrice> prices;
+    private final Timer pricingTimer;
+
+    public CartPricer(ProductClient productClient,
+                      MeterRegistry meterRegistry,
+                      @Value("${cart.prices.ttl:30s}") Duration ttl,
+                      @Value("${cart.prices.max-size:50000}") long maxSize) {
+        this.productClient = productClient;
+        this.prices = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, prices, "cart.prices");
+        Gauge.builder("cart.prices.hit.ratio", prices, cache -> cache.stats().hitRate())
+                .description("Share of cart line price lookups served from the local cache")
+                .register(meterRegistry);
+        this.pricingTimer = Timer.builder("cart.pricing")
+                .description("Time to add prices and totals to a cart, including any product-service call")
+                .register(meterRegistry);
+    }
+
+    public CartDto price(CartDto cart) {
+        if (cart.getItems().isEmpty()) {
+            cart.setTotal(0);
+            return cart;
+        }
+        return pricingTimer.record(() -> {
+            Set<Long> productIds = cart.getItems().stream().map(CartItemDto::getProductId).collect(Collectors.toSet());
+            Map<Long, ProductPrice> found;
+            try {
+                found = prices.getAll(productIds, this::fetch);
+            } catch (RuntimeException ex) {
+                log.warn("Could not price cart {}: {}", cart.getId(), ex.toString());
+                found = Map.of();
+            }
+            boolean complete = true;
+            int total = 0;
+            for (CartItemDto item : cart.getItems()) {
+                ProductPrice price = found.get(item.getProductId());
+                if (price == null) {
+                    complete = false;
+                    continue;
+                }
+                item.setTitle(price.title());
+                item.setPrice(price.price());
+                item.setLineTotal(price.price() * item.getQuantity());
+                total += item.getLineTotal();
+            }
+            cart.setTotal(complete ? total : null);
+            return cart;
+        });
+    }
+
+    private Map<Long, ProductPrice> fetch(Set<? extends Long> productIds) {
+        return productClient.getPrices(Set.copyOf(productIds)).stream()
+                .collect(Collectors.toMap(ProductPrice::id, Function.identity(), (a, b) -> a));
+    }
+}
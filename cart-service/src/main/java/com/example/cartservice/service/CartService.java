@@ -2,90 +2,170 @@ package com.example.cartservice.service;
 
 import com.example.cartservice.dto.CartDto;
 import com.example.cartservice.dto.CartItemDto;
+import com.example.cartservice.dto.CartOperationDto;
 import com.example.cartservice.model.Cart;
-import com.example.cartservice.model.CartItem;
+import com.example.cartservice.repository.CartItemBatchRepository;
+import com.example.cartservice.repository.CartItemRepository;
 import com.example.cartservice.repository.CartRepository;
-import lombok.RequiredArgsConstructor;
+import com.example.cartservice.repository.CartVersion;
+import com.example.cartservice.repository.CartVersionRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
-@RequiredArgsConstructor
 public class CartService {
     private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final CartItemBatchRepository cartItemBatchRepository;
+    private final CartVersionRepository cartVersionRepository;
+    // Present when cart.store.enabled=true; carts are then served from memory and written behind
+    private final HotCartStore hotCarts;
+
+    private static final int MAX_OPERATIONS = 200;
+
+    public CartService(CartRepository cartRepository,
+                       CartItemRepository cartItemRepository,
+                       CartItemBatchRepository cartItemBatchRepository,
+                       CartVersionRepository cartVersionRepository,
+                       Optional<HotCartStore> hotCartStore) {
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.cartItemBatchRepository = cartItemBatchRepository;
+        this.cartVersionRepository = cartVersionRepository;
+        this.hotCarts = hotCartStore.orElse(null);
+    }
 
     public CartDto getCart(Long userId) {
-        Cart cart = cartRepository.findByUserId(userId)
+        if (hotCarts != null) return hotCarts.read(userId);
+        CartVersion cart = cartRepository.findVersionByUserId(userId)
                 .orElseGet(() -> {
                     Cart newCart = new Cart();
                     newCart.setUserId(userId);
-                    cartRepository.save(newCart);
-                    return newCart;
+                    return new CartVersion(cartRepository.save(newCart).getId(), 0);
                 });
-        return toDto(cart);
+        return readCart(cart, userId);
     }
 
+    // Each mutation is a version bump, one statement on cart_items and one read of the resulting
+    // lines. A non-null expectedVersion makes the mutation conditional (If-Match).
     @Transactional
-    public CartDto addItem(Long userId, Long productId, int quantity) {
-        Cart cart = cartRepository.findByUserId(userId)
-                .orElseThrow(() -> new RuntimeException("Cart not found"));
-        CartItem item = cart.getItems().stream()
-                .filter(ci -> ci.getProductId().equals(productId))
-                .findFirst()
-                .orElse(null);
-        if (item == null) {
-            item = new CartItem();
-            item.setCart(cart);
-            item.setProductId(productId);
-            item.setQuantity(quantity);
-            cart.getItems().add(item);
-        } else {
-            item.setQuantity(item.getQuantity() + quantity);
-        }
-        cartRepository.save(cart);
-        return toDto(cart);
+    public CartDto addItem(Long userId, Long productId, int quantity, Long expectedVersion) {
+        if (hotCarts != null) return hotCarts.update(userId, expectedVersion, cart -> cart.add(productId, quantity));
+        CartVersion cart = bumpVersion(userId, expectedVersion);
+        cartItemRepository.addQuantity(cart.cartId(), productId, quantity);
+        return readCart(cart, userId);
+    }
+
+    @Transactional
+    public CartDto updateItem(Long userId, Long productId, int quantity, Long expectedVersion) {
+        if (hotCarts != null) return hotCarts.update(userId, expectedVersion, cart -> {
+            if (!cart.contains(productId)) throw new RuntimeException("Item not found");
+            cart.set(productId, quantity);
+        });
+        CartVersion cart = bumpVersion(userId, expectedVersion);
+        if (cartItemRepository.setQuantity(cart.cartId(), productId, quantity) == 0)
+            throw new RuntimeException("Item not found");
+        return readCart(cart, userId);
     }
 
     @Transactional
-    public CartDto updateItem(Long userId, Long productId, int quantity) {
-        Cart cart = cartRepository.findByUserId(userId)
-                .orElseThrow(() -> new RuntimeException("Cart not found"));
-        CartItem item = cart.getItems().stream()
-                .filter(ci -> ci.getProductId().equals(productId))
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("Item not found"));
-        item.setQuantity(quantity);
-        cartRepository.save(cart);
-        return toDto(cart);
+    public CartDto removeItem(Long userId, Long productId, Long expectedVersion) {
+        if (hotCarts != null) return hotCarts.update(userId, expectedVersion, cart -> cart.remove(productId));
+        CartVersion cart = bumpVersion(userId, expectedVersion);
+        cartItemRepository.deleteItem(cart.cartId(), productId);
+        return readCart(cart, userId);
     }
 
+    /**
+     * Applies the operations in order within one transaction. They are first folded into a net
+     * change per product, so the database sees at most one add, one set and one delete statement
+     * however many operations were sent.
+     */
     @Transactional
-    public CartDto removeItem(Long userId, Long productId) {
-        Cart cart = cartRepository.findByUserId(userId)
-                .orElseThrow(() -> new RuntimeException("Cart not found"));
-        cart.getItems().removeIf(ci -> ci.getProductId().equals(productId));
-        cartRepository.save(cart);
-        return toDto(cart);
+    public CartDto applyOperations(Long userId, List<CartOperationDto> operations, Long expectedVersion) {
+        if (operations.size() > MAX_OPERATIONS)
+            throw new RuntimeException("Too many operations, at most " + MAX_OPERATIONS + " per request");
+        Map<Long, Integer> added = new LinkedHashMap<>();
+        Map<Long, Integer> set = new LinkedHashMap<>();
+        Set<Long> removed = new LinkedHashSet<>();
+        for (CartOperationDto operation : operations) {
+            Long productId = operation.getProductId();
+            if (productId == null) throw new RuntimeException("productId is required");
+            String op = operation.getOp() == null ? "" : operation.getOp();
+            switch (op) {
+                case "add" -> {
+                    if (operation.getQuantity() <= 0) throw new RuntimeException("Quantity must be positive");
+                    // After a set or remove the line's quantity is known, so the add becomes part of a set
+                    if (set.containsKey(productId)) set.merge(productId, operation.getQuantity(), Integer::sum);
+                    else if (removed.remove(productId)) set.put(productId, operation.getQuantity());
+                    else added.merge(productId, operation.getQuantity(), Integer::sum);
+                }
+                case "set" -> {
+                    added.remove(productId);
+                    if (operation.getQuantity() > 0) {
+                        removed.remove(productId);
+                        set.put(productId, operation.getQuantity());
+                    } else {
+                        set.remove(productId);
+                        removed.add(productId);
+                    }
+                }
+                case "remove" -> {
+                    added.remove(productId);
+                    set.remove(productId);
+                    removed.add(productId);
+                }
+                default -> throw new RuntimeException("Unsupported cart operation: " + operation.getOp());
+            }
+        }
+
+        if (hotCarts != null) return hotCarts.update(userId, expectedVersion, cart -> {
+            removed.forEach(cart::remove);
+            set.forEach(cart::set);
+            added.forEach(cart::add);
+        });
+        CartVersion cart = bumpVersion(userId, expectedVersion);
+        cartItemBatchRepository.deleteItems(cart.cartId(), removed);
+        cartItemBatchRepository.setQuantities(cart.cartId(), set);
+        cartItemBatchRepository.addQuantities(cart.cartId(), added);
+        return readCart(cart, userId);
+    }
+
+    @Transactional
+    public void clearCart(Long userId, Long expectedVersion) {
+        if (hotCarts != null) {
+            hotCarts.update(userId, expectedVersion, HotCartStore.HotCart::clear);
+            return;
+        }
+        cartItemRepository.deleteAllItems(bumpVersion(userId, expectedVersion).cartId());
     }
 
-    public void clearCart(Long userId) {
-        Cart cart = cartRepository.findByUserId(userId)
-                .orElseThrow(() -> new RuntimeException("Cart not found"));
-        cart.getItems().clear();
-        cartRepository.save(cart);
+    private CartVersion bumpVersion(Long userId, Long expectedVersion) {
+        Optional<CartVersion> bumped = cartVersionRepository.bump(userId, expectedVersion);
+        if (bumped.isPresent()) return bumped.get();
+        if (expectedVersion != null && cartRepository.findIdByUserId(userId).isPresent())
+            throw new VersionMismatchException();
+        throw new RuntimeException("Cart not found");
     }
 
-    private CartDto toDto(Cart cart) {
+    private CartDto readCart(CartVersion cart, Long userId) {
         CartDto dto = new CartDto();
-        dto.setId(cart.getId());
-        dto.setUserId(cart.getUserId());
-        dto.setItems(cart.getItems().stream()
-                .map(ci -> {
+        dto.setId(cart.cartId());
+        dto.setUserId(userId);
+        dto.setVersion(cart.version());
+        dto.setItems(cartItemRepository.findRowsByCartId(cart.cartId()).stream()
+                .map(row -> {
                     CartItemDto itemDto = new CartItemDto();
-                    itemDto.setProductId(ci.getProductId());
-                    itemDto.setQuantity(ci.getQuantity());
+                    itemDto.setProductId(row.productId());
+                    itemDto.setQuantity(row.quantity());
                     return itemDto;
                 }).collect(Collectors.toList()));
         return dto;
@@ -0,0 +1,146 @@
+package com.example.cartservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes carts not modified for {@code cart.sweeper.ttl}, and empty carts (typically created by a
+ * single GET) not modified for {@code cart.sweeper.empty-ttl}, together with their lines.
+ * <p>
+ * Works in chunks of {@code cart.sweeper.batch-size} carts, each deleted by one statement in its own
+ * transaction, so locks are held only briefly. Carts locked by an ongoing mutation are skipped
+ * ({@code SKIP LOCKED}), which also lets several instances sweep at once. Removed rows and run time
+ * are published as {@code cart.sweeper.carts.deleted}, {@code cart.sweeper.items.deleted} and
+ * {@code cart.sweeper.duration}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "cart.sweeper.enabled", havingValue = "true", matchIfMissing = true)
+public class CartSweeper implements InitializingBean, DisposableBean {
+    private final JdbcTemplate jdbcTemplate;
+    // Present when carts are held in memory; their copies of swept carts are dropped
+    private final HotCartStore hotCarts;
+    private final Duration ttl;
+    private final Duration emptyTtl;
+    private final Duration interval;
+    private final int batchSize;
+    private final String cartsTable;
+    private final String itemsTable;
+    private final Counter cartsDeleted;
+    private final Counter itemsDeleted;
+    private final Timer duration;
+    private ScheduledExecutorService scheduler;
+
+    public CartSweeper(JdbcTemplate jdbcTemplate,
+                       Optional<HotCartStore> hotCartStore,
+                       MeterRegistry meterRegistry,
+                       @Value("${cart.sweeper.ttl:30d}") Duration ttl,
+                       @Value("${cart.sweeper.empty-ttl:1d}") Duration emptyTtl,
+                       @Value("${cart.sweeper.interval:1h}") Duration interval,
+                       @Value("${cart.sweeper.batch-size:500}") int batchSize,
+                       @Value("${spring.jpa.properties.hibernate.default_schema:public}") String schema) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.hotCarts = hotCartStore.orElse(null);
+        this.ttl = ttl;
+        // An empty cart is never kept longer than a filled one
+        this.emptyTtl = emptyTtl.compareTo(ttl) < 0 ? emptyTtl : ttl;
+        this.interval = interval;
+        this.batchSize = batchSize;
+        this.cartsTable = schema + ".carts";
+        this.itemsTable = schema + ".cart_items";
+        this.cartsDeleted = Counter.builder("cart.sweeper.carts.deleted")
+                .description("Idle carts removed by the sweeper").register(meterRegistry);
+        this.itemsDeleted = Counter.builder("cart.sweeper.items.deleted")
+                .description("Lines of idle carts removed by the sweeper").register(meterRegistry);
+        this.duration = Timer.builder("cart.sweeper.duration")
+                .description("Time taken by one sweep").register(meterRegistry);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "cart-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                sweep();
+            } catch (RuntimeException ex) {
+                log.warn("Cart sweep failed", ex);
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Deletes idle carts chunk by chunk until none are left and returns the number of carts removed.
+     */
+    public int sweep() {
+        long start = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp cutoff = Timestamp.valueOf(now.minus(ttl));
+        Timestamp emptyCutoff = Timestamp.valueOf(now.minus(emptyTtl));
+        int carts = 0;
+        long items = 0;
+        int deleted;
+        do {
+            SweptBatch batch = deleteBatch(cutoff, emptyCutoff);
+            deleted = batch.userIds().size();
+            carts += deleted;
+            items += batch.items();
+            cartsDeleted.increment(deleted);
+            itemsDeleted.increment(batch.items());
+            if (hotCarts != null) hotCarts.discard(batch.userIds());
+        } while (deleted == batchSize);
+        duration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (carts > 0) log.info("Swept {} idle carts with {} lines in {} ms", carts, items, (System.nanoTime() - start) / 1_000_000);
+        return carts;
+    }
+
+    record SweptBatch(List<Long> userIds, long items) {
+    }
+
+    // One statement: pick a chunk, delete its lines, delete the carts
+    private SweptBatch deleteBatch(Timestamp cutoff, Timestamp emptyCutoff) {
+        List<Long> userIds = new ArrayList<>();
+        long[] items = {0};
+        jdbcTemplate.query(
+                "WITH doomed AS (" +
+                        "SELECT c.id FROM " + cartsTable + " c WHERE c.last_modified < ? AND (c.last_modified < ? " +
+                        "OR NOT EXISTS (SELECT 1 FROM " + itemsTable + " i WHERE i.cart_id = c.id)) " +
+                        "ORDER BY c.last_modified LIMIT ? FOR UPDATE SKIP LOCKED), " +
+                        "lines AS (DELETE FROM " + itemsTable + " i USING doomed d WHERE i.cart_id = d.id RETURNING 1), " +
+                        "carts AS (DELETE FROM " + cartsTable + " c USING doomed d WHERE c.id = d.id RETURNING c.user_id) " +
+                        "SELECT user_id, (SELECT count(*) FROM lines) AS items FROM carts",
+                rs -> {
+                    userIds.add(rs.getLong("user_id"));
+                    items[0] = rs.getLong("items");
+                },
+                emptyCutoff, cutoff, batchSize);
+        return new SweptBatch(userIds, items[0]);
+    }
+}
@@ -0,0 +1,331 @@
+package com.example.cartservice.service;
+
+import com.example.cartservice.dto.CartDto;
+import com.example.cartservice.dto.CartItemDto;
+import com.example.cartservice.model.Cart;
+import com.example.cartservice.repository.CartItemBatchRepository;
+import com.example.cartservice.repository.CartItemRepository;
+import com.example.cartservice.repository.CartItemRow;
+import com.example.cartservice.repository.CartLine;
+import com.example.cartservice.repository.CartRepository;
+import com.example.cartservice.repository.CartVersion;
+import com.example.cartservice.repository.CartVersionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Keeps active carts in memory so reads and mutations do not touch the database. Each cart is
+ * guarded by its own monitor, so users never wait on each other; only loading a cart and creating
+ * a new one go to the database synchronously.
+ * <p>
+ * Changed lines are written behind: every {@code cart.store.flush-interval} the lines changed since
+ * the last flush are written for all carts together, as one upsert, one delete and one version update
+ * per chunk. A crash loses at most that interval of changes; on a regular shutdown everything
+ * pending is flushed. Carts idle for {@code cart.store.idle-timeout} are evicted once clean, as are
+ * the least recently used clean carts while more than {@code cart.store.max-carts} are held.
+ * <p>
+ * Versions are kept and bumped in memory too, and written with the lines. Versions minted here but
+ * lost in a crash must not be handed out again for different contents, so a loaded cart's version
+ * continues from at least this instance's start time in microseconds.
+ * <p>
+ * Assumes this instance is the only writer of {@code cart_items}, i.e. a single cart-service node.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "cart.store.enabled", havingValue = "true")
+public class HotCartStore implements InitializingBean, DisposableBean {
+    static final int FLUSH_CHUNK = 5000;
+
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final CartItemBatchRepository cartItemBatchRepository;
+    private final CartVersionRepository cartVersionRepository;
+    private final Duration flushInterval;
+    private final long idleTimeoutNanos;
+    private final int maxCarts;
+    private final long versionFloor = System.currentTimeMillis() * 1000;
+
+    private final ConcurrentHashMap<Long, HotCart> carts = new ConcurrentHashMap<>();
+    private final Object flushLock = new Object();
+    private final AtomicBoolean sweepRequested = new AtomicBoolean();
+    private ScheduledExecutorService scheduler;
+
+    public HotCartStore(CartRepository cartRepository,
+                        CartItemRepository cartItemRepository,
+                        CartItemBatchRepository cartItemBatchRepository,
+                        CartVersionRepository cartVersionRepository,
+                        @Value("${cart.store.flush-interval:1s}") Duration flushInterval,
+                        @Value("${cart.store.idle-timeout:10m}") Duration idleTimeout,
+                        @Value("${cart.store.max-carts:100000}") int maxCarts) {
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.cartItemBatchRepository = cartItemBatchRepository;
+        this.cartVersionRepository = cartVersionRepository;
+        this.flushInterval = flushInterval;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.maxCarts = maxCarts;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "hot-cart-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = flushInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::sweep, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(30, TimeUnit.SECONDS);
+        flush();
+        log.info("Flushed hot carts on shutdown");
+    }
+
+    /**
+     * Returns the user's cart, creating it if the user has none yet.
+     */
+    public CartDto read(Long userId) {
+        return withCart(userId, true, null, null);
+    }
+
+    /**
+     * Applies {@code change} to the user's cart while holding the cart's lock and bumps its version.
+     * With a non-null {@code expectedVersion} the change is only applied if the version matches. A
+     * change that throws must do so before modifying the cart.
+     */
+    public CartDto update(Long userId, Long expectedVersion, Consumer<HotCart> change) {
+        return withCart(userId, false, expectedVersion, change);
+    }
+
+    public int size() {
+        return carts.size();
+    }
+
+    private CartDto withCart(Long userId, boolean create, Long expectedVersion, Consumer<HotCart> change) {
+        while (true) {
+            HotCart cart = carts.computeIfAbsent(userId, HotCart::new);
+            if (carts.size() > maxCarts && scheduler != null && sweepRequested.compareAndSet(false, true))
+                scheduler.execute(this::sweep);
+            synchronized (cart) {
+                // Evicted between the map lookup and taking the lock; use the replacement
+                if (cart.evicted) continue;
+                if (cart.cartId == null) load(cart, create);
+                cart.lastAccess = System.nanoTime();
+                if (change != null) {
+                    if (expectedVersion != null && expectedVersion != cart.version) throw new VersionMismatchException();
+                    change.accept(cart);
+                    cart.version++;
+                    cart.versionDirty = true;
+                }
+                return cart.toDto();
+            }
+        }
+    }
+
+    private void load(HotCart cart, boolean create) {
+        Optional<CartVersion> stored = cartRepository.findVersionByUserId(cart.userId);
+        if (stored.isEmpty()) {
+            if (!create) {
+                cart.evicted = true;
+                carts.remove(cart.userId, cart);
+                throw new RuntimeException("Cart not found");
+            }
+            Cart newCart = new Cart();
+            newCart.setUserId(cart.userId);
+            cart.cartId = cartRepository.save(newCart).getId();
+            cart.version = versionFloor;
+            return;
+        }
+        cart.cartId = stored.get().cartId();
+        cart.version = Math.max(stored.get().version(), versionFloor);
+        for (CartItemRow row : cartItemRepository.findRowsByCartId(cart.cartId))
+            cart.lines.put(row.productId(), row.quantity());
+    }
+
+    /**
+     * Writes every line changed since the last flush. Lines whose write fails stay dirty and are
+     * retried on the next flush.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            List<HotCart> flushed = new ArrayList<>();
+            List<CartLine> upserts = new ArrayList<>();
+            List<CartLine> deletes = new ArrayList<>();
+            List<CartVersion> versions = new ArrayList<>();
+            List<Set<Long>> taken = new ArrayList<>();
+            for (HotCart cart : carts.values()) {
+                synchronized (cart) {
+                    if (!cart.versionDirty) continue;
+                    for (Long productId : cart.dirty) {
+                        Integer quantity = cart.lines.get(productId);
+                        if (quantity != null) upserts.add(new CartLine(cart.cartId, productId, quantity));
+                        else deletes.add(new CartLine(cart.cartId, productId, 0));
+                    }
+                    versions.add(new CartVersion(cart.cartId, cart.version));
+                    flushed.add(cart);
+                    taken.add(cart.dirty);
+                    cart.dirty = new HashSet<>();
+                    cart.versionDirty = false;
+                }
+            }
+            if (flushed.isEmpty()) return;
+            try {
+                for (int from = 0; from < upserts.size(); from += FLUSH_CHUNK)
+                    cartItemBatchRepository.setLineQuantities(upserts.subList(from, Math.min(upserts.size(), from + FLUSH_CHUNK)));
+                for (int from = 0; from < deletes.size(); from += FLUSH_CHUNK)
+                    cartItemBatchRepository.deleteLines(deletes.subList(from, Math.min(deletes.size(), from + FLUSH_CHUNK)));
+                Set<Long> stored = new HashSet<>();
+                for (int from = 0; from < versions.size(); from += FLUSH_CHUNK)
+                    stored.addAll(cartVersionRepository.setVersions(versions.subList(from, Math.min(versions.size(), from + FLUSH_CHUNK))));
+                log.debug("Flushed {} cart lines and {} deletions from {} carts", upserts.size(), deletes.size(), flushed.size());
+                // Carts swept from the database while held here; the next access starts a new cart
+                int orphaned = 0;
+                for (HotCart cart : flushed) {
+                    if (!stored.contains(cart.cartId) && discard(cart)) orphaned++;
+                }
+                if (orphaned > 0) log.warn("Dropped {} carts that were removed from the database while in memory", orphaned);
+            } catch (RuntimeException ex) {
+                // Writes are idempotent (they carry the current quantity), so retrying everything is safe
+                for (int i = 0; i < flushed.size(); i++) {
+                    HotCart cart = flushed.get(i);
+                    synchronized (cart) {
+                        cart.dirty.addAll(taken.get(i));
+                        cart.versionDirty = true;
+                    }
+                }
+                log.warn("Flushing {} carts failed, will retry: {}", flushed.size(), ex.toString());
+            }
+        }
+    }
+
+    /**
+     * Flushes, then evicts clean carts that are idle or, while the store is over capacity, least
+     * recently used.
+     */
+    void sweep() {
+        sweepRequested.set(false);
+        try {
+            flush();
+            long now = System.nanoTime();
+            List<HotCart> candidates = new ArrayList<>();
+            for (HotCart cart : carts.values()) {
+                if (now - cart.lastAccess > idleTimeoutNanos) evict(cart);
+                else candidates.add(cart);
+            }
+            int excess = carts.size() - maxCarts;
+            if (excess > 0) {
+                candidates.sort(Comparator.comparingLong(cart -> cart.lastAccess));
+                for (HotCart cart : candidates) {
+                    if (excess == 0) break;
+                    if (evict(cart)) excess--;
+                }
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Hot cart sweep failed", ex);
+        }
+    }
+
+    /**
+     * Drops the given users' carts without flushing them, for carts that were deleted from the database.
+     */
+    public void discard(Collection<Long> userIds) {
+        for (Long userId : userIds) {
+            HotCart cart = carts.get(userId);
+            if (cart != null) discard(cart);
+        }
+    }
+
+    private boolean discard(HotCart cart) {
+        synchronized (cart) {
+            if (cart.evicted) return false;
+            cart.evicted = true;
+            carts.remove(cart.userId, cart);
+            return true;
+        }
+    }
+
+    private boolean evict(HotCart cart) {
+        synchronized (cart) {
+            if (cart.evicted || cart.versionDirty) return false;
+            cart.evicted = true;
+            carts.remove(cart.userId, cart);
+            return true;
+        }
+    }
+
+    /**
+     * One user's cart. Lines keep insertion order, matching the id order used by the database read.
+     * Only accessed while holding its monitor.
+     */
+    public static class HotCart {
+        private final Long userId;
+        private final Map<Long, Integer> lines = new LinkedHashMap<>();
+        private Set<Long> dirty = new HashSet<>();
+        private Long cartId;
+        private long version;
+        // Set by every change, cleared once the change is flushed
+        private boolean versionDirty;
+        private boolean evicted;
+        private volatile long lastAccess = System.nanoTime();
+
+        HotCart(Long userId) {
+            this.userId = userId;
+        }
+
+        public boolean contains(Long productId) {
+            return lines.containsKey(productId);
+        }
+
+        public void add(Long productId, int quantity) {
+            lines.merge(productId, quantity, Integer::sum);
+            dirty.add(productId);
+        }
+
+        public void set(Long productId, int quantity) {
+            lines.put(productId, quantity);
+            dirty.add(productId);
+        }
+
+        public void remove(Long productId) {
+            if (lines.remove(productId) != null) dirty.add(productId);
+        }
+
+        public void clear() {
+            dirty.addAll(lines.keySet());
+            lines.clear();
+        }
+
+        private CartDto toDto() {
+            CartDto dto = new CartDto();
+            dto.setId(cartId);
+            dto.setUserId(userId);
+            dto.setVersion(version);
+            List<CartItemDto> items = new ArrayList<>(lines.size());
+            lines.forEach((productId, quantity) -> {
+                CartItemDto item = new CartItemDto();
+                item.setProductId(productId);
+                item.setQuantity(quantity);
+                items.add(item);
+            });
+            dto.setItems(items);
+            return dto;
+        }
+    }
+}
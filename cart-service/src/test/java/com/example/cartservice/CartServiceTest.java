@@ -2,30 +2,46 @@ package com.example.cartservice;
 
 
 import com.example.cartservice.dto.CartDto;
+import com.example.cartservice.dto.CartOperationDto;
 import com.example.cartservice.model.Cart;
-import com.example.cartservice.model.CartItem;
+import com.example.cartservice.repository.CartItemBatchRepository;
+import com.example.cartservice.repository.CartItemRepository;
+import com.example.cartservice.repository.CartItemRow;
 import com.example.cartservice.repository.CartRepository;
+import com.example.cartservice.repository.CartVersion;
+import com.example.cartservice.repository.CartVersionRepository;
 import com.example.cartservice.service.CartService;
+import com.example.cartservice.service.VersionMismatchException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 class CartServiceTest {
 
     private CartRepository cartRepository;
+    private CartItemRepository cartItemRepository;
+    private CartItemBatchRepository cartItemBatchRepository;
+    private CartVersionRepository cartVersionRepository;
     private CartService cartService;
 
     @BeforeEach
     void setUp() {
         cartRepository = mock(CartRepository.class);
-        cartService = new CartService(cartRepository);
+        cartItemRepository = mock(CartItemRepository.class);
+        cartItemBatchRepository = mock(CartItemBatchRepository.class);
+        cartVersionRepository = mock(CartVersionRepository.class);
+        cartService = new CartService(cartRepository, cartItemRepository, cartItemBatchRepository, cartVersionRepository,
+                Optional.empty());
     }
 
     // ---------- getCart ----------
@@ -33,17 +49,14 @@ class CartServiceTest {
     @Test
     void getCart_returnsExistingCart() {
         Long userId = 1L;
-        Cart existing = new Cart();
-        existing.setId(10L);
-        existing.setUserId(userId);
-        existing.setItems(new ArrayList<>());
-
-        when(cartRepository.findByUserId(userId)).thenReturn(Optional.of(existing));
+        when(cartRepository.findVersionByUserId(userId)).thenReturn(Optional.of(new CartVersion(10L, 4)));
+        when(cartItemRepository.findRowsByCartId(10L)).thenReturn(List.of());
 
         CartDto dto = cartService.getCart(userId);
 
         verify(cartRepository, never()).save(any(Cart.class));
         assertEquals(10L, dto.getId());
+        assertEquals(4, dto.getVersion());
         assertEquals(userId, dto.getUserId());
         assertTrue(dto.getItems().isEmpty());
     }
@@ -51,11 +64,10 @@ class CartServiceTest {
     @Test
     void getCart_createsNewCartWhenNotExists() {
         Long userId = 2L;
-        when(cartRepository.findByUserId(userId)).thenReturn(Optional.empty());
+        when(cartRepository.findVersionByUserId(userId)).thenReturn(Optional.empty());
         when(cartRepository.save(any(Cart.class))).thenAnswer(inv -> {
             Cart c = inv.getArgument(0);
             c.setId(20L);
-            if (c.getItems() == null) c.setItems(new ArrayList<>());
             return c;
         });
 
@@ -70,184 +82,213 @@ class CartServiceTest {
         assertEquals(userId, dto.getUserId());
     }
 
+    // ---------- addItem ----------
 
     @Test
-    void addItem_addsNewItemWhenNotPresent() {
+    void addItem_upsertsLineAndReturnsCartFromOneRead() {
         Long userId = 1L;
         Long productId = 100L;
+        when(cartVersionRepository.bump(userId, null)).thenReturn(Optional.of(new CartVersion(1L, 1)));
+        when(cartItemRepository.findRowsByCartId(1L)).thenReturn(List.of(new CartItemRow(productId, 3)));
 
-        Cart cart = new Cart();
-        cart.setId(1L);
-        cart.setUserId(userId);
-        cart.setItems(new ArrayList<>());
-
-        when(cartRepository.findByUserId(userId)).thenReturn(Optional.of(cart));
-        when(cartRepository.save(any(Cart.class))).thenAnswer(inv -> inv.getArgument(0));
-
-        CartDto dto = cartService.addItem(userId, productId, 3);
-
-        verify(cartRepository).save(cart);
-        assertEquals(1, cart.getItems().size());
-        CartItem item = cart.getItems().get(0);
-        assertEquals(productId, item.getProductId());
-        assertEquals(3, item.getQuantity());
+        CartDto dto = cartService.addItem(userId, productId, 3, null);
 
+        verify(cartItemRepository).addQuantity(1L, productId, 3);
+        verify(cartItemRepository, times(1)).findRowsByCartId(1L);
+        // The aggregate is never loaded or saved as a whole
+        verify(cartRepository, never()).findByUserId(any());
+        verify(cartRepository, never()).save(any(Cart.class));
         assertEquals(1, dto.getItems().size());
         assertEquals(productId, dto.getItems().get(0).getProductId());
         assertEquals(3, dto.getItems().get(0).getQuantity());
     }
 
     @Test
-    void addItem_increasesQuantityWhenItemExists() {
+    void addItem_existingLineIsIncrementedInTheDatabase() {
         Long userId = 1L;
         Long productId = 100L;
+        when(cartVersionRepository.bump(userId, null)).thenReturn(Optional.of(new CartVersion(1L, 1)));
+        when(cartItemRepository.findRowsByCartId(1L)).thenReturn(List.of(new CartItemRow(productId, 7)));
 
-        Cart cart = new Cart();
-        cart.setId(1L);
-        cart.setUserId(userId);
+        CartDto dto = cartService.addItem(userId, productId, 5, null);
 
-        CartItem existing = new CartItem();
-        existing.setProductId(productId);
-        existing.setQuantity(2);
-        existing.setCart(cart);
+        // ON CONFLICT adds to the stored quantity, so the service passes only the delta
+        verify(cartItemRepository).addQuantity(1L, productId, 5);
+        assertEquals(1, dto.getItems().size());
+        assertEquals(7, dto.getItems().get(0).getQuantity());
+    }
 
-        List<CartItem> items = new ArrayList<>();
-        items.add(existing);
-        cart.setItems(items);
+    @Test
+    void addItem_throwsWhenCartNotFound() {
+        when(cartRepository.findIdByUserId(1L)).thenReturn(Optional.empty());
+        assertThrows(RuntimeException.class,
+                () -> cartService.addItem(1L, 10L, 1, null));
+        verify(cartItemRepository, never()).addQuantity(anyLong(), anyLong(), anyInt());
+    }
 
-        when(cartRepository.findByUserId(userId)).thenReturn(Optional.of(cart));
-        when(cartRepository.save(any(Cart.class))).thenAnswer(inv -> inv.getArgument(0));
+    @Test
+    void addItem_returnsBumpedVersion() {
+        when(cartVersionRepository.bump(1L, 3L)).thenReturn(Optional.of(new CartVersion(1L, 4)));
 
-        CartDto dto = cartService.addItem(userId, productId, 5);
+        CartDto dto = cartService.addItem(1L, 100L, 1, 3L);
 
-        verify(cartRepository).save(cart);
-        assertEquals(1, cart.getItems().size());
-        assertEquals(7, cart.getItems().get(0).getQuantity());
-        assertEquals(7, dto.getItems().get(0).getQuantity());
+        assertEquals(4, dto.getVersion());
+        verify(cartItemRepository).addQuantity(1L, 100L, 1);
     }
 
     @Test
-    void addItem_throwsWhenCartNotFound() {
-        when(cartRepository.findByUserId(1L)).thenReturn(Optional.empty());
-        assertThrows(RuntimeException.class,
-                () -> cartService.addItem(1L, 10L, 1));
+    void addItem_rejectsStaleIfMatchVersion() {
+        when(cartVersionRepository.bump(1L, 3L)).thenReturn(Optional.empty());
+        when(cartRepository.findIdByUserId(1L)).thenReturn(Optional.of(1L));
+
+        assertThrows(VersionMismatchException.class, () -> cartService.addItem(1L, 100L, 1, 3L));
+        verify(cartItemRepository, never()).addQuantity(anyLong(), anyLong(), anyInt());
     }
 
+    // ---------- updateItem ----------
 
     @Test
     void updateItem_changesQuantityOfExistingItem() {
         Long userId = 1L;
         Long productId = 100L;
+        when(cartVersionRepository.bump(userId, null)).thenReturn(Optional.of(new CartVersion(1L, 1)));
+        when(cartItemRepository.setQuantity(1L, productId, 10)).thenReturn(1);
+        when(cartItemRepository.findRowsByCartId(1L)).thenReturn(List.of(new CartItemRow(productId, 10)));
 
-        Cart cart = new Cart();
-        cart.setId(1L);
-        cart.setUserId(userId);
+        CartDto dto = cartService.updateItem(userId, productId, 10, null);
 
-        CartItem existing = new CartItem();
-        existing.setProductId(productId);
-        existing.setQuantity(2);
-        existing.setCart(cart);
-        cart.setItems(new ArrayList<>(List.of(existing)));
-
-        when(cartRepository.findByUserId(userId)).thenReturn(Optional.of(cart));
-        when(cartRepository.save(any(Cart.class))).thenAnswer(inv -> inv.getArgument(0));
-
-        CartDto dto = cartService.updateItem(userId, productId, 10);
-
-        verify(cartRepository).save(cart);
-        assertEquals(10, cart.getItems().get(0).getQuantity());
+        verify(cartItemRepository).setQuantity(1L, productId, 10);
         assertEquals(10, dto.getItems().get(0).getQuantity());
     }
 
     @Test
     void updateItem_throwsWhenCartNotFound() {
-        when(cartRepository.findByUserId(1L)).thenReturn(Optional.empty());
+        when(cartRepository.findIdByUserId(1L)).thenReturn(Optional.empty());
         assertThrows(RuntimeException.class,
-                () -> cartService.updateItem(1L, 100L, 5));
+                () -> cartService.updateItem(1L, 100L, 5, null));
     }
 
     @Test
     void updateItem_throwsWhenItemNotFound() {
-        Long userId = 1L;
-        Cart cart = new Cart();
-        cart.setId(1L);
-        cart.setUserId(userId);
-        cart.setItems(new ArrayList<>());
-
-        when(cartRepository.findByUserId(userId)).thenReturn(Optional.of(cart));
+        when(cartVersionRepository.bump(1L, null)).thenReturn(Optional.of(new CartVersion(1L, 1)));
+        when(cartItemRepository.setQuantity(1L, 999L, 5)).thenReturn(0);
 
         assertThrows(RuntimeException.class,
-                () -> cartService.updateItem(userId, 999L, 5));
+                () -> cartService.updateItem(1L, 999L, 5, null));
     }
 
+    // ---------- removeItem ----------
 
     @Test
     void removeItem_removesItemFromCart() {
         Long userId = 1L;
         Long productId = 100L;
+        when(cartVersionRepository.bump(userId, null)).thenReturn(Optional.of(new CartVersion(1L, 1)));
+        when(cartItemRepository.findRowsByCartId(1L)).thenReturn(List.of(new CartItemRow(200L, 1)));
 
-        Cart cart = new Cart();
-        cart.setId(1L);
-        cart.setUserId(userId);
+        CartDto dto = cartService.removeItem(userId, productId, null);
 
-        CartItem item1 = new CartItem();
-        item1.setProductId(productId);
-        item1.setQuantity(3);
-        item1.setCart(cart);
-
-        CartItem item2 = new CartItem();
-        item2.setProductId(200L);
-        item2.setQuantity(1);
-        item2.setCart(cart);
-
-        cart.setItems(new ArrayList<>(List.of(item1, item2)));
-
-        when(cartRepository.findByUserId(userId)).thenReturn(Optional.of(cart));
-        when(cartRepository.save(any(Cart.class))).thenAnswer(inv -> inv.getArgument(0));
-
-        CartDto dto = cartService.removeItem(userId, productId);
-
-        verify(cartRepository).save(cart);
-        assertEquals(1, cart.getItems().size());
+        verify(cartItemRepository).deleteItem(1L, productId);
         assertEquals(1, dto.getItems().size());
         assertEquals(200L, dto.getItems().get(0).getProductId());
     }
 
     @Test
     void removeItem_throwsWhenCartNotFound() {
-        when(cartRepository.findByUserId(1L)).thenReturn(Optional.empty());
+        when(cartRepository.findIdByUserId(1L)).thenReturn(Optional.empty());
         assertThrows(RuntimeException.class,
-                () -> cartService.removeItem(1L, 100L));
+                () -> cartService.removeItem(1L, 100L, null));
     }
 
+    // ---------- clearCart ----------
 
     @Test
     void clearCart_removesAllItems() {
-        Long userId = 1L;
+        when(cartVersionRepository.bump(1L, null)).thenReturn(Optional.of(new CartVersion(1L, 1)));
 
-        Cart cart = new Cart();
-        cart.setId(1L);
-        cart.setUserId(userId);
+        cartService.clearCart(1L, null);
 
-        CartItem item1 = new CartItem();
-        item1.setProductId(100L);
-        item1.setQuantity(3);
-        item1.setCart(cart);
-
-        cart.setItems(new ArrayList<>(List.of(item1)));
+        verify(cartItemRepository).deleteAllItems(1L);
+        verify(cartRepository, never()).save(any(Cart.class));
+    }
 
-        when(cartRepository.findByUserId(userId)).thenReturn(Optional.of(cart));
+    @Test
+    void clearCart_throwsWhenCartNotFound() {
+        when(cartRepository.findIdByUserId(1L)).thenReturn(Optional.empty());
+        assertThrows(RuntimeException.class,
+                () -> cartService.clearCart(1L, null));
+    }
 
-        cartService.clearCart(userId);
+    // ---------- applyOperations ----------
 
-        verify(cartRepository).save(cart);
-        assertTrue(cart.getItems().isEmpty());
+    @Test
+    void applyOperations_foldsOperationsIntoOneStatementPerKind() {
+        when(cartVersionRepository.bump(1L, null)).thenReturn(Optional.of(new CartVersion(1L, 1)));
+
+        cartService.applyOperations(1L, List.of(
+                op("add", 100L, 2),
+                op("add", 100L, 1),
+                op("set", 200L, 5),
+                op("add", 200L, 1),
+                op("remove", 300L, 0),
+                op("add", 300L, 4),
+                op("add", 400L, 1),
+                op("remove", 400L, 0),
+                op("set", 500L, 0)), null);
+
+        verify(cartItemBatchRepository).addQuantities(1L, Map.of(100L, 3));
+        verify(cartItemBatchRepository).setQuantities(1L, Map.of(200L, 6, 300L, 4));
+        verify(cartItemBatchRepository).deleteItems(1L, Set.of(400L, 500L));
+        verify(cartItemRepository, times(1)).findRowsByCartId(1L);
     }
 
     @Test
-    void clearCart_throwsWhenCartNotFound() {
-        when(cartRepository.findByUserId(1L)).thenReturn(Optional.empty());
+    void applyOperations_rejectsUnknownOperationBeforeTouchingTheCart() {
         assertThrows(RuntimeException.class,
-                () -> cartService.clearCart(1L));
+                () -> cartService.applyOperations(1L, List.of(op("add", 1L, 1), op("double", 1L, 0)), null));
+        verifyNoInteractions(cartItemBatchRepository);
+    }
+
+    @Test
+    void applyOperations_usesFewerRoundTripsAndStatementsThanPerItemCalls() {
+        when(cartVersionRepository.bump(1L, null)).thenReturn(Optional.of(new CartVersion(1L, 1)));
+        when(cartItemRepository.setQuantity(anyLong(), anyLong(), anyInt())).thenReturn(1);
+        List<CartOperationDto> operations = List.of(
+                op("add", 100L, 1), op("add", 101L, 2), op("add", 102L, 1),
+                op("set", 100L, 4), op("set", 103L, 2), op("remove", 101L, 0),
+                op("add", 104L, 1), op("remove", 105L, 0));
+
+        // Per-item endpoints: one HTTP request, and a cart lookup, mutation and read each, per operation
+        for (CartOperationDto operation : operations) {
+            switch (operation.getOp()) {
+                case "add" -> cartService.addItem(1L, operation.getProductId(), operation.getQuantity(), null);
+                case "set" -> cartService.updateItem(1L, operation.getProductId(), operation.getQuantity(), null);
+                case "remove" -> cartService.removeItem(1L, operation.getProductId(), null);
+            }
+        }
+        int perItemStatements = statements();
+
+        clearInvocations(cartRepository, cartVersionRepository, cartItemRepository, cartItemBatchRepository);
+        cartService.applyOperations(1L, operations, null);
+        int batchStatements = statements();
+
+        assertEquals(3 * operations.size(), perItemStatements);
+        // Cart lookup, delete, set, add and the final read
+        assertEquals(5, batchStatements);
+    }
+
+    private int statements() {
+        return mockingDetails(cartRepository).getInvocations().size()
+                + mockingDetails(cartVersionRepository).getInvocations().size()
+                + mockingDetails(cartItemRepository).getInvocations().size()
+                + mockingDetails(cartItemBatchRepository).getInvocations().size();
+    }
+
+    private static CartOperationDto op(String op, Long productId, int quantity) {
+        CartOperationDto dto = new CartOperationDto();
+        dto.setOp(op);
+        dto.setProductId(productId);
+        dto.setQuantity(quantity);
+        return dto;
     }
 }
@@ -0,0 +1,50 @@
+package com.example.cartservice.controller;
+
+import com.example.cartservice.dto.CartDto;
+import com.example.cartservice.dto.CartItemDto;
+import com.example.cartservice.service.VersionMismatchException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CartControllerTest {
+
+    @Test
+    void etag_changesWhenPricesChangeAtTheSameVersion() {
+        String before = CartController.etag(cart(3, 100));
+        String after = CartController.etag(cart(3, 120));
+
+        assertNotEquals(before, after);
+        assertEquals(before, CartController.etag(cart(3, 100)));
+    }
+
+    @Test
+    void etag_changesWhenPricesBecomeUnavailable() {
+        assertNotEquals(CartController.etag(cart(3, 100)), CartController.etag(cart(3, null)));
+    }
+
+    @Test
+    void expectedVersion_acceptsFullAndBareTags() {
+        assertEquals(3L, CartController.expectedVersion(CartController.etag(cart(3, 100))));
+        assertEquals(3L, CartController.expectedVersion("\"3\""));
+        assertNull(CartController.expectedVersion("*"));
+        assertThrows(VersionMismatchException.class, () -> CartController.expectedVersion("W/\"3\""));
+    }
+
+    private static CartDto cart(long version, Integer price) {
+        CartItemDto item = new CartItemDto();
+        item.setProductId(1L);
+        item.setQuantity(2);
+        item.setTitle("Product 1");
+        item.setPrice(price);
+        item.setLineTotal(price == null ? null : price * 2);
+        CartDto cart = new CartDto();
+        cart.setUserId(1L);
+        cart.setVersion(version);
+        cart.setItems(List.of(item));
+        cart.setTotal(item.getLineTotal());
+        return cart;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.cartservice.service;
+
+import com.example.cartservice.client.ProductClient;
+import com.example.cartservice.client.ProductPrice;
+import com.example.cartservice.dto.CartDto;
+import com.example.cartservice.dto.CartItemDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class CartPricerTest {
+
+    private ProductClient productClient;
+    private SimpleMeterRegistry meterRegistry;
+    private CartPricer cartPricer;
+    private final List<Set<Long>> requested = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        productClient = mock(ProductClient.class);
+        meterRegistry = new SimpleMeterRegistry();
+        cartPricer = new CartPricer(productClient, meterRegistry, Duration.ofMinutes(1), 1000);
+        when(productClient.getPrices(anyCollection())).thenAnswer(inv -> {
+            Collection<Long> ids = inv.getArgument(0);
+            requested.add(Set.copyOf(ids));
+            // Product 404 does not exist
+            return ids.stream().filter(id -> id != 404L).map(id -> new ProductPrice(id, "Product " + id, (int) (id * 10))).toList();
+        });
+    }
+
+    @Test
+    void price_addsLineTotalsAndCartTotal() {
+        CartDto cart = cartPricer.price(cart(item(1L, 2), item(2L, 3)));
+
+        assertEquals("Product 1", cart.getItems().get(0).getTitle());
+        assertEquals(10, cart.getItems().get(0).getPrice());
+        assertEquals(20, cart.getItems().get(0).getLineTotal());
+        assertEquals(60, cart.getItems().get(1).getLineTotal());
+        assertEquals(80, cart.getTotal());
+    }
+
+    @Test
+    void price_fetchesOnlyUncachedProductsInOneRequest() {
+        cartPricer.price(cart(item(1L, 1), item(2L, 1), item(3L, 1)));
+        cartPricer.price(cart(item(2L, 1), item(3L, 1), item(4L, 1), item(5L, 1)));
+        cartPricer.price(cart(item(1L, 1), item(5L, 1)));
+
+        assertEquals(List.of(Set.of(1L, 2L, 3L), Set.of(4L, 5L)), requested);
+        assertEquals(4.0 / 9, meterRegistry.get("cart.prices.hit.ratio").gauge().value(), 1e-9);
+        assertEquals(3, meterRegistry.get("cart.pricing").timer().count());
+    }
+
+    @Test
+    void price_leavesTotalEmptyWhenALineCannotBePriced() {
+        CartDto cart = cartPricer.price(cart(item(1L, 1), item(404L, 1)));
+
+        assertNull(cart.getItems().get(1).getPrice());
+        assertEquals(10, cart.getItems().get(0).getLineTotal());
+        assertNull(cart.getTotal());
+    }
+
+    @Test
+    void price_returnsUnpricedCartWhenProductServiceFails() {
+        when(productClient.getPrices(anyCollection())).thenThrow(new RuntimeException("connect timed out"));
+
+        CartDto cart = cartPricer.price(cart(item(1L, 1)));
+
+        assertNull(cart.getItems().get(0).getPrice());
+        assertNull(cart.getTotal());
+    }
+
+    @Test
+    void price_emptyCartCostsNoRequest() {
+        assertEquals(0, cartPricer.price(cart()).getTotal());
+        verifyNoInteractions(productClient);
+    }
+
+    private static CartDto cart(CartItemDto... items) {
+        CartDto cart = new CartDto();
+        cart.setId(1L);
+        cart.setUserId(1L);
+        cart.setItems(List.of(items));
+        return cart;
+    }
+
+    private static CartItemDto item(Long productId, int quantity) {
+        CartItemDto item = new CartItemDto();
+        item.setProductId(productId);
+        item.setQuantity(quantity);
+        return item;
+    }
+}
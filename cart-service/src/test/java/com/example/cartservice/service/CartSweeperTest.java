@@ -0,0 +1,93 @@
+package com.example.cartservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CartSweeperTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private HotCartStore hotCarts;
+    private SimpleMeterRegistry meterRegistry;
+    private final List<Object[]> statements = new ArrayList<>();
+    // Idle carts left in the stand-in table, identified by user id
+    private long idleCarts;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        hotCarts = mock(HotCartStore.class);
+        meterRegistry = new SimpleMeterRegistry();
+        // Each call deletes up to LIMIT carts with two lines each
+        doAnswer(inv -> {
+            statements.add(new Object[]{inv.getArgument(2), inv.getArgument(3), inv.getArgument(4)});
+            RowCallbackHandler handler = inv.getArgument(1);
+            int limit = inv.getArgument(4);
+            long chunk = Math.min(limit, idleCarts);
+            for (long i = 0; i < chunk; i++) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getLong("user_id")).thenReturn(idleCarts - i);
+                when(rs.getLong("items")).thenReturn(chunk * 2);
+                handler.processRow(rs);
+            }
+            idleCarts -= chunk;
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(), any(), any());
+    }
+
+    private CartSweeper sweeper(Duration ttl, Duration emptyTtl, int batchSize) {
+        return new CartSweeper(jdbcTemplate, Optional.of(hotCarts), meterRegistry, ttl, emptyTtl, Duration.ofHours(1),
+                batchSize, "cart");
+    }
+
+    @Test
+    void sweep_deletesInBoundedChunksUntilNoneAreLeft() {
+        idleCarts = 1_250;
+
+        int swept = sweeper(Duration.ofDays(30), Duration.ofDays(1), 500).sweep();
+
+        assertEquals(1_250, swept);
+        assertEquals(3, statements.size());
+        assertTrue(statements.stream().allMatch(args -> (int) args[2] == 500));
+        assertEquals(1_250, meterRegistry.get("cart.sweeper.carts.deleted").counter().count());
+        assertEquals(2_500, meterRegistry.get("cart.sweeper.items.deleted").counter().count());
+        assertEquals(1, meterRegistry.get("cart.sweeper.duration").timer().count());
+        verify(hotCarts, times(3)).discard(anyList());
+    }
+
+    @Test
+    void sweep_usesSeparateCutoffForEmptyCarts() {
+        LocalDateTime before = LocalDateTime.now();
+
+        sweeper(Duration.ofDays(30), Duration.ofDays(1), 500).sweep();
+
+        Timestamp emptyCutoff = (Timestamp) statements.get(0)[0];
+        Timestamp cutoff = (Timestamp) statements.get(0)[1];
+        assertFalse(emptyCutoff.toLocalDateTime().isAfter(before.minusDays(1).plusMinutes(1)));
+        assertTrue(emptyCutoff.toLocalDateTime().isAfter(before.minusDays(1).minusMinutes(1)));
+        assertTrue(cutoff.toLocalDateTime().isBefore(before.minusDays(29)));
+        assertEquals(1, statements.size());
+        assertEquals(0, meterRegistry.get("cart.sweeper.carts.deleted").counter().count());
+    }
+
+    @Test
+    void sweep_neverKeepsEmptyCartsLongerThanFilledOnes() {
+        sweeper(Duration.ofHours(1), Duration.ofDays(1), 500).sweep();
+
+        assertEquals(statements.get(0)[0], statements.get(0)[1]);
+    }
+}
@@ -0,0 +1,286 @@
+package com.example.cartservice.service;
+
+import com.example.cartservice.dto.CartDto;
+import com.example.cartservice.repository.CartItemBatchRepository;
+import com.example.cartservice.repository.CartItemRepository;
+import com.example.cartservice.repository.CartItemRow;
+import com.example.cartservice.repository.CartLine;
+import com.example.cartservice.repository.CartRepository;
+import com.example.cartservice.repository.CartVersion;
+import com.example.cartservice.repository.CartVersionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class HotCartStoreTest {
+
+    private CartRepository cartRepository;
+    private CartItemRepository cartItemRepository;
+    private CartItemBatchRepository cartItemBatchRepository;
+    private CartVersionRepository cartVersionRepository;
+    // Lines as written by flushes, keyed by "cartId:productId"
+    private final Map<String, Integer> written = new ConcurrentHashMap<>();
+    private final Map<Long, Long> writtenVersions = new ConcurrentHashMap<>();
+    private final Set<Long> sweptCartIds = ConcurrentHashMap.newKeySet();
+    // Simulated database round trip per statement
+    private long latencyNanos;
+    private boolean failWrites;
+
+    @BeforeEach
+    void setUp() {
+        cartRepository = mock(CartRepository.class);
+        cartItemRepository = mock(CartItemRepository.class);
+        cartItemBatchRepository = mock(CartItemBatchRepository.class);
+        cartVersionRepository = mock(CartVersionRepository.class);
+        when(cartRepository.findVersionByUserId(anyLong())).thenAnswer(inv -> {
+            roundTrip();
+            return Optional.of(new CartVersion(inv.getArgument(0, Long.class) + 1000, 0));
+        });
+        when(cartVersionRepository.bump(anyLong(), isNull())).thenAnswer(inv -> {
+            roundTrip();
+            return Optional.of(new CartVersion(inv.getArgument(0, Long.class) + 1000, 1));
+        });
+        when(cartVersionRepository.setVersions(anyCollection())).thenAnswer(inv -> {
+            roundTrip();
+            Collection<CartVersion> versions = inv.getArgument(0);
+            versions.forEach(version -> writtenVersions.put(version.cartId(), version.version()));
+            return versions.stream().map(CartVersion::cartId).filter(id -> !sweptCartIds.contains(id)).collect(Collectors.toSet());
+        });
+        when(cartItemRepository.findRowsByCartId(anyLong())).thenAnswer(inv -> {
+            roundTrip();
+            return List.of();
+        });
+        when(cartItemRepository.addQuantity(anyLong(), anyLong(), anyInt())).thenAnswer(inv -> {
+            roundTrip();
+            return 1;
+        });
+        when(cartItemBatchRepository.setLineQuantities(anyCollection())).thenAnswer(inv -> {
+            roundTrip();
+            if (failWrites) throw new RuntimeException("connection refused");
+            Collection<CartLine> lines = inv.getArgument(0);
+            lines.forEach(line -> written.put(line.cartId() + ":" + line.productId(), line.quantity()));
+            return lines.size();
+        });
+        when(cartItemBatchRepository.deleteLines(anyCollection())).thenAnswer(inv -> {
+            roundTrip();
+            Collection<CartLine> lines = inv.getArgument(0);
+            lines.forEach(line -> written.remove(line.cartId() + ":" + line.productId()));
+            return lines.size();
+        });
+    }
+
+    private void roundTrip() {
+        if (latencyNanos > 0) LockSupport.parkNanos(latencyNanos);
+    }
+
+    private HotCartStore store(Duration idleTimeout, int maxCarts) {
+        return store(Duration.ofSeconds(1), idleTimeout, maxCarts);
+    }
+
+    private HotCartStore store(Duration flushInterval, Duration idleTimeout, int maxCarts) {
+        return new HotCartStore(cartRepository, cartItemRepository, cartItemBatchRepository, cartVersionRepository,
+                flushInterval, idleTimeout, maxCarts);
+    }
+
+    @Test
+    void mutationsAreServedFromMemoryAfterOneLoad() {
+        when(cartItemRepository.findRowsByCartId(1001L)).thenReturn(List.of(new CartItemRow(10L, 2)));
+        HotCartStore store = store(Duration.ofMinutes(10), 100);
+        CartService service = new CartService(cartRepository, cartItemRepository, cartItemBatchRepository, cartVersionRepository, Optional.of(store));
+
+        service.addItem(1L, 10L, 1, null);
+        service.addItem(1L, 20L, 4, null);
+        service.updateItem(1L, 20L, 5, null);
+        CartDto cart = service.getCart(1L);
+
+        assertEquals(1001L, cart.getId());
+        assertEquals(List.of(10L, 20L), cart.getItems().stream().map(i -> i.getProductId()).toList());
+        assertEquals(3, cart.getItems().get(0).getQuantity());
+        assertEquals(5, cart.getItems().get(1).getQuantity());
+        verify(cartRepository, times(1)).findVersionByUserId(1L);
+        verify(cartItemRepository, times(1)).findRowsByCartId(1001L);
+        verifyNoInteractions(cartItemBatchRepository);
+        assertThrows(RuntimeException.class, () -> service.updateItem(1L, 99L, 1, null));
+    }
+
+    @Test
+    void flushWritesChangedLinesOfAllCartsTogether() {
+        HotCartStore store = store(Duration.ofMinutes(10), 100);
+        when(cartItemRepository.findRowsByCartId(1002L)).thenReturn(List.of(new CartItemRow(7L, 1)));
+        store.update(1L, null, cart -> cart.add(10L, 1));
+        store.update(2L, null, cart -> {
+            cart.remove(7L);
+            cart.set(8L, 3);
+        });
+
+        store.flush();
+        store.flush();
+
+        verify(cartItemBatchRepository, times(1)).setLineQuantities(anyCollection());
+        verify(cartItemBatchRepository, times(1)).deleteLines(anyCollection());
+        assertEquals(Map.of("1001:10", 1, "1002:8", 3), written);
+    }
+
+    @Test
+    void failedFlushIsRetried() {
+        HotCartStore store = store(Duration.ofMinutes(10), 100);
+        store.update(1L, null, cart -> cart.add(10L, 1));
+        failWrites = true;
+
+        store.flush();
+        assertTrue(written.isEmpty());
+        failWrites = false;
+        store.update(1L, null, cart -> cart.add(10L, 1));
+        store.flush();
+
+        assertEquals(Map.of("1001:10", 2), written);
+    }
+
+    @Test
+    void versionsAreBumpedCheckedAndFlushed() {
+        HotCartStore store = store(Duration.ofMinutes(10), 100);
+        long loaded = store.read(1L).getVersion();
+
+        CartDto changed = store.update(1L, loaded, cart -> cart.add(10L, 1));
+        assertEquals(loaded + 1, changed.getVersion());
+        assertThrows(VersionMismatchException.class, () -> store.update(1L, loaded, cart -> cart.add(10L, 1)));
+        assertEquals(1, store.read(1L).getItems().get(0).getQuantity());
+
+        store.flush();
+        assertEquals(Map.of(1001L, loaded + 1), writtenVersions);
+        // Versions handed out by this instance never repeat what an earlier one could have issued
+        assertTrue(loaded >= System.currentTimeMillis() * 1000 - 60_000_000L);
+    }
+
+    @Test
+    void cartsRemovedFromTheDatabaseAreDropped() {
+        HotCartStore store = store(Duration.ofMinutes(10), 100);
+        store.update(1L, null, cart -> cart.add(10L, 1));
+        store.update(2L, null, cart -> cart.add(10L, 1));
+        store.read(3L);
+
+        // Cart 1 was swept between its last change and the flush
+        sweptCartIds.add(1001L);
+        store.flush();
+        // Cart 3 was swept and the sweeper reports it
+        store.discard(List.of(3L));
+
+        assertEquals(1, store.size());
+        store.read(1L);
+        verify(cartRepository, times(2)).findVersionByUserId(1L);
+    }
+
+    @Test
+    void missingCartIsNotCachedForMutations() {
+        when(cartRepository.findVersionByUserId(5L)).thenReturn(Optional.empty());
+        HotCartStore store = store(Duration.ofMinutes(10), 100);
+
+        assertThrows(RuntimeException.class, () -> store.update(5L, null, cart -> cart.add(1L, 1)));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void sweepEvictsIdleAndLeastRecentlyUsedCartsOnlyOnceFlushed() {
+        HotCartStore idle = store(Duration.ZERO, 100);
+        idle.update(1L, null, cart -> cart.add(10L, 1));
+        idle.sweep();
+        assertEquals(0, idle.size());
+        assertEquals(Map.of("1001:10", 1), written);
+
+        HotCartStore bounded = store(Duration.ofMinutes(10), 2);
+        for (long userId = 1; userId <= 3; userId++) bounded.read(userId);
+        bounded.read(1L);
+        bounded.sweep();
+        assertEquals(2, bounded.size());
+        // User 2 was least recently used and is loaded again
+        bounded.read(2L);
+        verify(cartRepository, times(2)).findVersionByUserId(2L);
+    }
+
+    @Test
+    void writeBehind_persistsEveryAddMadeByConcurrentThreads() throws Exception {
+        int threads = 8;
+        int users = 50;
+        int opsPerThread = 500;
+        HotCartStore store = store(Duration.ofMillis(5), Duration.ofMinutes(10), users);
+        store.afterPropertiesSet();
+        CartService hot = new CartService(cartRepository, cartItemRepository, cartItemBatchRepository, cartVersionRepository, Optional.of(store));
+
+        run(hot, threads, users, opsPerThread);
+        store.destroy();
+
+        int total = 0;
+        for (long userId = 0; userId < users; userId++) total += hot.getCart(userId).getItems().stream().mapToInt(i -> i.getQuantity()).sum();
+        assertEquals(threads * opsPerThread, total);
+        assertEquals(total, written.values().stream().mapToInt(Integer::intValue).sum());
+        // Lines reach the database in batches, not one statement per add
+        verify(cartItemRepository, never()).addQuantity(anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void loadTest_cartOpsWithAndWithoutHotStore() throws Exception {
+        int threads = 8;
+        int users = 500;
+        int opsPerThread = 2_000;
+        latencyNanos = 200_000;
+
+        CartService direct = new CartService(cartRepository, cartItemRepository, cartItemBatchRepository, cartVersionRepository, Optional.empty());
+        double directOps = run(direct, threads, users, opsPerThread / 10);
+
+        // A short flush interval loses less on a crash but flushes more often
+        HotCartStore eager = store(Duration.ofMillis(5), Duration.ofMinutes(10), users);
+        eager.afterPropertiesSet();
+        double eagerOps = run(new CartService(cartRepository, cartItemRepository, cartItemBatchRepository, cartVersionRepository, Optional.of(eager)),
+                threads, users, opsPerThread);
+        eager.destroy();
+
+        HotCartStore store = store(Duration.ofMinutes(10), users);
+        store.afterPropertiesSet();
+        double hotOps = run(new CartService(cartRepository, cartItemRepository, cartItemBatchRepository, cartVersionRepository, Optional.of(store)),
+                threads, users, opsPerThread);
+        store.destroy();
+
+        System.out.printf("Cart ops with %d threads, %d users, 200 µs per statement: database %.0f ops/s, "
+                        + "hot store %.0f ops/s (flush every 5 ms), %.0f ops/s (flush every 1 s)%n",
+                threads, users, directOps, eagerOps, hotOps);
+    }
+
+    private static double run(CartService service, int threads, int users, int opsPerThread) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < opsPerThread; i++)
+                    service.addItem((long) random.nextInt(users), (long) random.nextInt(20), 1, null);
+                return null;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (var future : futures) future.get();
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+        return threads * opsPerThread / seconds;
+    }
+}
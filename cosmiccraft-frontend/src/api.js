@@ -1,12 +1,14 @@
 import axios from 'axios';
 
-const API_URL = 'http://localhost:8080/api';
+export const API_HOST = 'http://localhost:8080';
+const API_URL = `${API_HOST}/api`;
 
 export const register = (data) => axios.post(`${API_URL}/users/register`, data);
 export const login = (data) => axios.post(`${API_URL}/users/login`, data);
 
 export const getProducts = (params) => axios.get(`${API_URL}/products`, { params });
 export const getProduct = (id) => axios.get(`${API_URL}/products/${id}`);
+export const getProductBatch = (ids) => axios.post(`${API_URL}/products/batch`, ids);
 
 export const getCart = (userId) => axios.get(`${API_URL}/cart/${userId}`);
 export const addToCart = (userId, productId, quantity) =>
@@ -14,10 +16,14 @@ export const addToCart = (userId, productId, quantity) =>
 export const removeFromCart = (userId, productId) =>
     axios.delete(`${API_URL}/cart/${userId}/items/${productId}`);
 
-export const createOrder = (userId, userEmail, items, total) =>
-    axios.post(`${API_URL}/orders/create?userId=${userId}&userEmail=${userEmail}&total=${total}`, items);
+// Заказ собирается из серверной корзины по текущим ценам, корзина очищается.
+// Повтор с тем же idempotencyKey возвращает уже созданный заказ, а не дубликат
+export const checkout = (userId, userEmail, idempotencyKey) =>
+    axios.post(`${API_URL}/orders/checkout`, null,
+        { params: { userId, userEmail }, headers: { 'Idempotency-Key': idempotencyKey } });
 
-export const getOrders = (userId) => axios.get(`${API_URL}/orders/user/${userId}`);
+// Order listings are paged: pass the previous page's nextCursor to continue
+export const getOrders = (userId, cursor) => axios.get(`${API_URL}/orders/user/${userId}`, { params: { cursor } });
 export const getWishlist = (userId) => axios.get(`${API_URL}/wishlist/${userId}`);
 export const addToWishlist = (userId, productId) => axios.post(`${API_URL}/wishlist/${userId}/products?productId=${productId}`);
 export const removeFromWishlist = (userId, productId) => axios.delete(`${API_URL}/wishlist/${userId}/products/${productId}`);
@@ -29,7 +35,13 @@ export const deleteCategory = (id) => axios.delete(`${API_URL}/categories/${id}`
 export const createProduct = (data) => axios.post(`${API_URL}/products`, data);
 export const deleteProduct = (id) => axios.delete(`${API_URL}/products/${id}`);
 
-export const getAllOrders = () => axios.get(`${API_URL}/orders/all`);
+export const getOrderStats = () => axios.get(`${API_URL}/orders/stats`);
+export const getAllOrders = (cursor) => axios.get(`${API_URL}/orders/all`, { params: { cursor } });
+// Streamed by order-service; used as a download link
+export const ordersExportUrl = (from, to, format) =>
+    `${API_URL}/orders/export?from=${from}&to=${to}&format=${format}`;
 export const updateOrderStatus = (id, status) => axios.put(`${API_URL}/orders/${id}/status?status=${status}`);
+// { SHIPPED: [1, 2], ... } -> { updated: {...}, rejected: { id: текущий статус } }
+export const updateOrderStatuses = (idsByStatus) => axios.put(`${API_URL}/orders/status`, idsByStatus);
 
 export const getAllUsers = () => axios.get(`${API_URL}/users/all`);
@@ -2,10 +2,18 @@ import React, { useEffect, useState } from 'react';
 import {
     getProducts, createProduct, deleteProduct,
     getCategories, createCategory, deleteCategory,
-    getAllOrders, updateOrderStatus,
+    getAllOrders, updateOrderStatus, updateOrderStatuses, ordersExportUrl, getOrderStats,
     getAllUsers
 } from '../api';
 
+// Переходы, разрешённые order-service
+const NEXT_STATUSES = {
+    NEW: ['PAID', 'CANCELLED'],
+    PAID: ['SHIPPED', 'CANCELLED'],
+    SHIPPED: ['DELIVERED', 'CANCELLED'],
+};
+const STATUS_ACTIONS = { PAID: 'Оплачен', SHIPPED: 'Отправлен', DELIVERED: 'Доставлен', CANCELLED: 'Отменить' };
+
 function AdminPanel() {
     // -- товары --
     const [products, setProducts] = useState([]);
@@ -15,14 +23,21 @@ function AdminPanel() {
     const [newCategory, setNewCategory] = useState({ name: '', description: '' });
     // -- заказы --
     const [orders, setOrders] = useState([]);
+    const [ordersCursor, setOrdersCursor] = useState(null);
+    const [exportRange, setExportRange] = useState({ from: '', to: '' });
+    const [stats, setStats] = useState(null);
     // -- юзеры --
     const [users, setUsers] = useState([]);
 
     useEffect(() => {
-        getProducts().then(res => setProducts(res.data || []));
+        getProducts().then(res => setProducts(res.data.content || []));
         getCategories().then(res => setCategories(res.data || []));
-        getAllOrders().then(res => setOrders(res.data || []));
+        getAllOrders().then(res => {
+            setOrders(res.data.content || []);
+            setOrdersCursor(res.data.nextCursor);
+        });
         getAllUsers().then(res => setUsers(res.data || []));
+        getOrderStats().then(res => setStats(res.data));
     }, []);
 
     // --- ТОВАРЫ ---
@@ -36,7 +51,7 @@ function AdminPanel() {
         price = +price;
         await createProduct({ title, description, price, categoryId });
         const res = await getProducts();
-        setProducts(res.data || []);
+        setProducts(res.data.content || []);
         setNewProduct({ title: '', description: '', price: '', categoryId: '' });
     };
 
@@ -54,9 +69,24 @@ function AdminPanel() {
     };
 
     // --- ЗАКАЗЫ ---
+    const handleMoreOrders = async () => {
+        const res = await getAllOrders(ordersCursor);
+        setOrders([...orders, ...res.data.content]);
+        setOrdersCursor(res.data.nextCursor);
+    };
     const handleUpdateOrderStatus = async (id, status) => {
-        await updateOrderStatus(id, status);
-        setOrders(orders.map(o => o.id === id ? {...o, status} : o));
+        try {
+            await updateOrderStatus(id, status);
+            setOrders(orders.map(o => o.id === id ? {...o, status} : o));
+        } catch (err) {
+            alert('Статус заказа уже изменён');
+        }
+    };
+    const handleShipAllPaid = async () => {
+        const ids = orders.filter(o => o.status === 'PAID').map(o => o.id);
+        const res = await updateOrderStatuses({ SHIPPED: ids });
+        const shipped = res.data.updated.SHIPPED;
+        setOrders(orders.map(o => shipped.includes(o.id) ? {...o, status: 'SHIPPED'} : o));
     };
 
     return (
@@ -72,19 +102,42 @@ function AdminPanel() {
                     </div>
                 ))}
             </section>
+            {/* Статистика продаж за 30 дней */}
+            {stats && <section>
+                <h2>Продажи</h2>
+                <p>Выручка за 30 дней: {stats.daily.reduce((sum, d) => sum + d.revenue, 0)}₽,
+                    заказов: {stats.daily.reduce((sum, d) => sum + d.orders, 0)}</p>
+                <p>По статусам: {stats.byStatus.map(s => `${s.status}: ${s.orders}`).join(', ')}</p>
+                <p>Топ товаров: {stats.topProducts.map(p => `#${p.productId} × ${p.units}`).join(', ')}</p>
+            </section>}
             {/* Все заказы */}
             <section>
                 <h2>Заказы</h2>
+                <div>
+                    Выгрузка с <input type="date" value={exportRange.from}
+                                      onChange={e => setExportRange({ ...exportRange, from: e.target.value })} />
+                    по <input type="date" value={exportRange.to}
+                              onChange={e => setExportRange({ ...exportRange, to: e.target.value })} />
+                    {exportRange.from && exportRange.to && <>
+                        <a href={ordersExportUrl(exportRange.from, exportRange.to, 'csv')}> CSV</a>
+                        <a href={ordersExportUrl(exportRange.from, exportRange.to, 'ndjson')}> NDJSON</a>
+                    </>}
+                </div>
+                <button onClick={handleShipAllPaid}>Отправить все оплаченные</button>
                 {orders.map(o => (
                     <div key={o.id} style={{ border: '1px solid #ccc', marginBottom: 10, padding: 10 }}>
                         Заказ #{o.id}, Пользователь: {o.userId}, Статус: {o.status}, Сумма: {o.total}
                         <div>
-                            <button onClick={() => handleUpdateOrderStatus(o.id, 'SHIPPED')}>Выполнен</button>
-                            <button onClick={() => handleUpdateOrderStatus(o.id, 'CANCELLED')}>Отменить</button>
+                            {(NEXT_STATUSES[o.status] || []).map(status => (
+                                <button key={status} onClick={() => handleUpdateOrderStatus(o.id, status)}>
+                                    {STATUS_ACTIONS[status]}
+                                </button>
+                            ))}
                         </div>
                         <div>Товары: {o.items.map(i => <span key={i.productId}>{i.productId} x {i.quantity}; </span>)}</div>
                     </div>
                 ))}
+                {ordersCursor && <button onClick={handleMoreOrders}>Показать ещё</button>}
             </section>
             {/* Все категории + форма добавления */}
             <section>
@@ -1,8 +1,10 @@
-import React, { useEffect, useState } from 'react';
-import { getCart, removeFromCart, createOrder } from '../api';
+import React, { useEffect, useRef, useState } from 'react';
+import { getCart, removeFromCart, checkout } from '../api';
 
 function Cart() {
     const [cart, setCart] = useState({ items: [] });
+    // Одинаковый для повторных нажатий, пока заказ не создан
+    const orderKey = useRef(crypto.randomUUID());
     const user = JSON.parse(localStorage.getItem('user') || '{}');
 
     useEffect(() => {
@@ -15,10 +17,9 @@ function Cart() {
     };
 
     const handleCheckout = async () => {
-        const total = cart.items.reduce((sum, i) => sum + (i.quantity * 15), 0); // заглушка цены
-        const orderItems = cart.items.map(i => ({ productId: i.productId, quantity: i.quantity, price: 100 }));
         try {
-            await createOrder(user.id, user.email, orderItems, total);
+            await checkout(user.id, user.email, orderKey.current);
+            orderKey.current = crypto.randomUUID();
             alert('Заказ создан! Проверьте email.');
             setCart({ items: [] });
         } catch (err) {
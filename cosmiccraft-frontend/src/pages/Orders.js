@@ -3,10 +3,16 @@ import { getOrders } from '../api';
 
 function Orders() {
     const [orders, setOrders] = useState([]);
+    const [nextCursor, setNextCursor] = useState(null);
     const user = JSON.parse(localStorage.getItem('user') || '{}');
 
+    const loadOrders = (cursor) => getOrders(user.id, cursor).then(res => {
+        setOrders(prev => cursor ? [...prev, ...res.data.content] : res.data.content);
+        setNextCursor(res.data.nextCursor);
+    });
+
     useEffect(() => {
-        if (user.id) getOrders(user.id).then(res => setOrders(res.data));
+        if (user.id) loadOrders();
     }, [user.id]);
 
     return (
@@ -20,6 +26,7 @@ function Orders() {
                     <div>Товары: {order.items.map(i => <span key={i.productId}>{i.productId} x {i.quantity}; </span>)}</div>
                 </div>
             ))}
+            {nextCursor && <button onClick={() => loadOrders(nextCursor)}>Показать ещё</button>}
         </div>
     );
 }
@@ -1,12 +1,12 @@
 import React, { useEffect, useState } from 'react';
-import { getProducts, addToCart } from '../api';
+import { API_HOST, getProducts, addToCart } from '../api';
 
 function Products() {
     const [products, setProducts] = useState([]);
     const user = JSON.parse(localStorage.getItem('user') || '{}');
 
     useEffect(() => {
-        getProducts().then(res => setProducts(res.data));
+        getProducts().then(res => setProducts(res.data.content || []));
     }, []);
 
     const handleAddToCart = async (productId) => {
@@ -25,6 +25,9 @@ function Products() {
             <div style={{ display: 'grid', gridTemplateColumns: 'repeat(3, 1fr)', gap: '20px' }}>
                 {products.map(p => (
                     <div key={p.id} style={{ border: '1px solid #ccc', padding: '10px' }}>
+                        {p.images && p.images.length > 0 && (
+                            <img src={API_HOST + p.images[0].thumbnailUrl} alt={p.title} width={160} />
+                        )}
                         <h3>{p.title}</h3>
                         <p>{p.description}</p>
                         <p>Цена: {p.price}₽</p>
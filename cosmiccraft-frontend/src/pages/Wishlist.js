@@ -1,12 +1,19 @@
 import React, { useEffect, useState } from 'react';
-import { getWishlist, addToWishlist, removeFromWishlist } from '../api';
+import { API_HOST, getWishlist, removeFromWishlist, getProductBatch } from '../api';
 
 function Wishlist() {
     const user = JSON.parse(localStorage.getItem('user') || '{}');
     const [wishlist, setWishlist] = useState({ products: [] });
+    const [summaries, setSummaries] = useState({});
 
     useEffect(() => {
-        if (user.id) getWishlist(user.id).then(res => setWishlist(res.data));
+        if (!user.id) return;
+        getWishlist(user.id).then(res => {
+            setWishlist(res.data);
+            if (res.data.products.length === 0) return;
+            getProductBatch(res.data.products).then(batch =>
+                setSummaries(Object.fromEntries(batch.data.map(p => [p.id, p]))));
+        });
     }, [user.id]);
 
     const handleRemove = async (productId) => {
@@ -22,7 +29,10 @@ function Wishlist() {
             <h1>Избранное</h1>
             {wishlist.products.map(pid => (
                 <div key={pid} style={{ border: '1px solid #ccc', marginBottom: 10 }}>
-                    Товар ID: {pid}
+                    {summaries[pid]?.thumbnailUrl && (
+                        <img src={API_HOST + summaries[pid].thumbnailUrl} alt="" width={80} />
+                    )}
+                    {summaries[pid] ? `${summaries[pid].title} — ${summaries[pid].price}₽` : `Товар ID: ${pid}`}
                     <button onClick={() => handleRemove(pid)}>Удалить</button>
                 </div>
             ))}
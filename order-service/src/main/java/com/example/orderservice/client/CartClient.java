@@ -0,0 +1,30 @@
+package com.example.orderservice.client;
+
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+@Component
+public class CartClient {
+    private final RestTemplate restTemplate;
+
+    public CartClient(ServiceClients serviceClients) {
+        this.restTemplate = serviceClients.forTarget("cart-service");
+    }
+
+    public CartContents getCart(Long userId) {
+        return restTemplate.getForObject("/api/cart/{userId}", CartContents.class, userId);
+    }
+
+    /**
+     * Empties the cart only if it is still at {@code version}, so lines added after checkout read
+     * the cart survive. Fails with a 412 client error otherwise.
+     */
+    public void clearCart(Long userId, long version) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfMatch("\"" + version + "\"");
+        restTemplate.exchange("/api/cart/{userId}/clear", HttpMethod.DELETE, new HttpEntity<>(headers), Void.class, userId);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.orderservice.client;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+/**
+ * The part of cart-service's cart response checkout needs. Prices in the cart are ignored; checkout
+ * resolves current ones from product-service.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record CartContents(Long id, Long userId, long version, List<Line> items) {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Line(Long productId, int quantity) {
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.orderservice.client;
+
+import org.springframework.web.client.RestClientException;
+
+/**
+ * Thrown instead of calling a target whose circuit is open.
+ */
+public class CircuitOpenException extends RestClientException {
+    public CircuitOpenException(String target) {
+        super("Circuit open for " + target);
+    }
+}
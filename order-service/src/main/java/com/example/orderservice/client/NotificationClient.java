@@ -0,0 +1,19 @@
+package com.example.orderservice.client;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+@Component
+public class NotificationClient {
+    private final RestTemplate restTemplate;
+
+    public NotificationClient(ServiceClients serviceClients) {
+        this.restTemplate = serviceClients.forTarget("notification-service");
+    }
+
+    // Not retried here: a failed POST is retried by NotificationRelay with backoff
+    public void sendOrderEmail(String email, String subject, String text) {
+        restTemplate.postForObject("/api/notifications/order?email={email}&subject={subject}&text={text}",
+                null, String.class, email, subject, text);
+    }
+}
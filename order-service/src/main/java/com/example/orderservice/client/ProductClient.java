@@ -0,0 +1,27 @@
+package com.example.orderservice.client;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Looks up current product prices in product-service, any number of products per request.
+ */
+@Component
+public class ProductClient {
+    private final RestTemplate restTemplate;
+
+    public ProductClient(ServiceClients serviceClients) {
+        this.restTemplate = serviceClients.forTarget("product-service");
+    }
+
+    /**
+     * Products that no longer exist are missing from the result.
+     */
+    public List<ProductPrice> getPrices(Collection<Long> productIds) {
+        ProductPrice[] prices = restTemplate.postForObject("/api/products/batch", productIds, ProductPrice[].class);
+        return prices == null ? List.of() : List.of(prices);
+    }
+}
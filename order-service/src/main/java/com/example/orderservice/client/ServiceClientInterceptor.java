@@ -0,0 +1,95 @@
+package com.example.orderservice.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Guards every request to one target: fails fast while its circuit is open, retries idempotent
+ * requests on I/O errors and 502/503/504 responses, and times each attempt as
+ * {@code service.client.requests} tagged with target, method and outcome.
+ */
+class ServiceClientInterceptor implements ClientHttpRequestInterceptor {
+    private static final Set<HttpMethod> IDEMPOTENT = Set.of(
+            HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS, HttpMethod.PUT, HttpMethod.DELETE);
+    private static final Set<Integer> RETRYABLE_STATUSES = Set.of(502, 503, 504);
+
+    private final String target;
+    private final CircuitBreaker circuitBreaker;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final MeterRegistry meterRegistry;
+
+    ServiceClientInterceptor(String target, CircuitBreaker circuitBreaker, int maxAttempts, Duration retryBackoff,
+                             MeterRegistry meterRegistry) {
+        this.target = target;
+        this.circuitBreaker = circuitBreaker;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        int attempts = IDEMPOTENT.contains(request.getMethod()) ? maxAttempts : 1;
+        for (int attempt = 1; ; attempt++) {
+            if (!circuitBreaker.tryAcquire()) {
+                record(request, "REJECTED", 0);
+                throw new CircuitOpenException(target);
+            }
+            long start = System.nanoTime();
+            ClientHttpResponse response;
+            try {
+                response = execution.execute(request, body);
+            } catch (IOException ex) {
+                circuitBreaker.onFailure();
+                record(request, "IO_ERROR", System.nanoTime() - start);
+                if (attempt >= attempts) throw ex;
+                pause(attempt);
+                continue;
+            }
+            int status = response.getStatusCode().value();
+            if (status >= 500) {
+                circuitBreaker.onFailure();
+                record(request, "SERVER_ERROR", System.nanoTime() - start);
+                if (attempt < attempts && RETRYABLE_STATUSES.contains(status)) {
+                    response.close();
+                    pause(attempt);
+                    continue;
+                }
+            } else {
+                // A 4xx is the caller's problem, not a sign the target is unhealthy
+                circuitBreaker.onSuccess();
+                record(request, status >= 400 ? "CLIENT_ERROR" : "SUCCESS", System.nanoTime() - start);
+            }
+            return response;
+        }
+    }
+
+    private void record(HttpRequest request, String outcome, long nanos) {
+        Timer.builder("service.client.requests")
+                .description("Requests to other services, per attempt")
+                .tag("target", target)
+                .tag("method", request.getMethod().name())
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(Duration.ofNanos(nanos));
+    }
+
+    private void pause(int attempt) throws IOException {
+        try {
+            Thread.sleep(retryBackoff.toMillis() * attempt);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while retrying " + target, ex);
+        }
+    }
+}
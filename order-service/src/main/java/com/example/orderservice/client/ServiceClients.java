@@ -0,0 +1,72 @@
+package com.example.orderservice.client;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out one {@link RestTemplate} per target service, shared by every client of that target.
+ * <p>
+ * Each is backed by a JDK {@link HttpClient}, which keeps connections alive and reuses them across
+ * requests, and resolves relative URIs against {@code <target>.url}. Timeouts, retries and the
+ * circuit breaker take their settings from {@code <target>.*} with {@code service-client.*} as the
+ * default; see {@link ServiceClientInterceptor}. The circuit state is published as
+ * {@code service.client.circuit.open}.
+ */
+@Component
+public class ServiceClients {
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, RestTemplate> clients = new ConcurrentHashMap<>();
+
+    public ServiceClients(Environment environment, MeterRegistry meterRegistry) {
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public RestTemplate forTarget(String target) {
+        return clients.computeIfAbsent(target, this::create);
+    }
+
+    private RestTemplate create(String target) {
+        String baseUrl = environment.getProperty(target + ".url");
+        if (baseUrl == null) throw new IllegalStateException("No URL configured for " + target + " (" + target + ".url)");
+
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(setting(target, "connect-timeout", Duration.class, Duration.ofSeconds(1)))
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(setting(target, "timeout", Duration.class, Duration.ofSeconds(5)));
+
+        CircuitBreaker circuitBreaker = new CircuitBreaker(
+                setting(target, "circuit-breaker.failure-threshold", Integer.class, 5),
+                setting(target, "circuit-breaker.open-duration", Duration.class, Duration.ofSeconds(10)));
+        Gauge.builder("service.client.circuit.open", circuitBreaker, cb -> cb.getState() == CircuitBreaker.State.CLOSED ? 0 : 1)
+                .description("1 while calls to the target fail fast")
+                .tag("target", target)
+                .register(meterRegistry);
+
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+        restTemplate.setUriTemplateHandler(new DefaultUriBuilderFactory(baseUrl));
+        restTemplate.getInterceptors().add(new ServiceClientInterceptor(target, circuitBreaker,
+                setting(target, "max-attempts", Integer.class, 3),
+                setting(target, "retry-backoff", Duration.class, Duration.ofMillis(100)),
+                meterRegistry));
+        return restTemplate;
+    }
+
+    private <T> T setting(String target, String key, Class<T> type, T defaultValue) {
+        T value = environment.getProperty(target + "." + key, type);
+        return value != null ? value : environment.getProperty("service-client." + key, type, defaultValue);
+    }
+}
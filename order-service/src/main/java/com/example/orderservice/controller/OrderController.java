@@ -1,23 +1,34 @@
 package com.example.orderservice.controller;
 
 import com.example.orderservice.dto.OrderDto;
+import com.example.orderservice.dto.OrderPageDto;
+import com.example.orderservice.dto.StatusUpdateResultDto;
 import com.example.orderservice.model.OrderItem;
+import com.example.orderservice.service.CheckoutService;
 import com.example.orderservice.service.OrderService;
+import com.example.orderservice.service.OrderStatusService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/orders")
 @RequiredArgsConstructor
 public class OrderController {
     private final OrderService orderService;
+    private final CheckoutService checkoutService;
+    private final OrderStatusService orderStatusService;
 
+    // Pages are followed with the previous page's nextCursor; summary=true leaves out the items
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<OrderDto>> getUserOrders(@PathVariable Long userId) {
-        return ResponseEntity.ok(orderService.getOrdersByUser(userId));
+    public ResponseEntity<OrderPageDto> getUserOrders(@PathVariable Long userId,
+                                                      @RequestParam(required = false) String cursor,
+                                                      @RequestParam(defaultValue = "20") int size,
+                                                      @RequestParam(defaultValue = "false") boolean summary) {
+        return ResponseEntity.ok(orderService.getOrdersByUser(userId, cursor, size, summary));
     }
 
     @GetMapping("/{id}")
@@ -25,20 +36,36 @@ public class OrderController {
         return ResponseEntity.ok(orderService.getOrder(id));
     }
 
+    // Requests repeating an Idempotency-Key get the order the first one created
     @PostMapping("/create")
     public ResponseEntity<OrderDto> createOrder(@RequestParam Long userId,
                                                 @RequestParam String userEmail,
                                                 @RequestBody List<OrderItem> items,
-                                                @RequestParam int total) {
-        return ResponseEntity.ok(orderService.createOrder(userId, userEmail, items, total));
+                                                @RequestParam int total,
+                                                @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return ResponseEntity.ok(orderService.createOrder(userId, userEmail, items, total, idempotencyKey));
+    }
+
+    // Creates the order from the user's cart; retries must send the same Idempotency-Key
+    @PostMapping("/checkout")
+    public ResponseEntity<OrderDto> checkout(@RequestParam Long userId,
+                                             @RequestParam String userEmail,
+                                             @RequestHeader("Idempotency-Key") String idempotencyKey) {
+        return ResponseEntity.ok(checkoutService.checkout(userId, userEmail, idempotencyKey));
     }
 
     @PutMapping("/{id}/status")
     public ResponseEntity<Void> updateStatus(@PathVariable Long id, @RequestParam String status) {
-        orderService.updateStatus(id, status);
+        orderStatusService.updateStatus(id, status);
         return ResponseEntity.ok().build();
     }
 
+    // Body maps each target status to the order ids to move there, e.g. {"SHIPPED": [1, 2]}
+    @PutMapping("/status")
+    public ResponseEntity<StatusUpdateResultDto> updateStatuses(@RequestBody Map<String, List<Long>> idsByStatus) {
+        return ResponseEntity.ok(orderStatusService.updateStatuses(idsByStatus));
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteOrder(@PathVariable Long id) {
         orderService.deleteOrder(id);
@@ -46,7 +73,9 @@ public class OrderController {
     }
 
     @GetMapping("/all")
-    public ResponseEntity<List<OrderDto>> getAllOrders() {
-        return ResponseEntity.ok(orderService.getAllOrders());
+    public ResponseEntity<OrderPageDto> getAllOrders(@RequestParam(required = false) String cursor,
+                                                     @RequestParam(defaultValue = "50") int size,
+                                                     @RequestParam(defaultValue = "false") boolean summary) {
+        return ResponseEntity.ok(orderService.getAllOrders(cursor, size, summary));
     }
 }
@@ -0,0 +1,41 @@
+package com.example.orderservice.controller;
+
+import com.example.orderservice.transfer.OrderExportService;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * Order dump for reporting. The response body is streamed, never buffered whole.
+ */
+@RestController
+@RequestMapping("/api/orders")
+@RequiredArgsConstructor
+public class OrderExportController {
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String CSV = "text/csv";
+
+    private final OrderExportService exportService;
+
+    // Orders created from 'from' through 'to', both inclusive
+    @GetMapping("/export")
+    public void export(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                       @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                       @RequestParam(defaultValue = "csv") String format,
+                       HttpServletResponse response) throws IOException {
+        boolean csv = format.equalsIgnoreCase("csv");
+        if (!csv && !format.equalsIgnoreCase("ndjson"))
+            throw new RuntimeException("Unsupported export format: " + format);
+        if (to.isBefore(from)) throw new RuntimeException("'to' is before 'from'");
+        response.setContentType((csv ? CSV : NDJSON) + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"orders-" + from + "-" + to + "." + (csv ? "csv" : "ndjson") + "\"");
+        if (csv) exportService.exportCsv(from, to, response.getOutputStream());
+        else exportService.exportNdjson(from, to, response.getOutputStream());
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.orderservice.controller;
+
+import com.example.orderservice.dto.SalesStatsDto;
+import com.example.orderservice.stats.SalesStatsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/orders/stats")
+@RequiredArgsConstructor
+public class SalesStatsController {
+    private final SalesStatsService statsService;
+
+    // Daily figures from 'from' through 'to', by default the last 30 days
+    @GetMapping
+    public ResponseEntity<SalesStatsDto> getStats(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                  @RequestParam(defaultValue = "10") int top) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(29);
+        return ResponseEntity.ok(statsService.getStats(start, end, top));
+    }
+
+    @PostMapping("/rebuild")
+    public ResponseEntity<Void> rebuild() {
+        statsService.rebuild();
+        return ResponseEntity.ok().build();
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.orderservice.dto;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class OrderPageDto {
+    private List<OrderDto> content;
+    // Pass as ?cursor= to get the next page; null on the last page
+    private String nextCursor;
+}
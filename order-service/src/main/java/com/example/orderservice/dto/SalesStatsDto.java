@@ -0,0 +1,14 @@
+package com.example.orderservice.dto;
+
+import com.example.orderservice.stats.DailySales;
+import com.example.orderservice.stats.ProductSales;
+import com.example.orderservice.stats.StatusSales;
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class SalesStatsDto {
+    private List<DailySales> daily;
+    private List<StatusSales> byStatus;
+    private List<ProductSales> topProducts;
+}
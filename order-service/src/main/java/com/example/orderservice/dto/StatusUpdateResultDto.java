@@ -0,0 +1,13 @@
+package com.example.orderservice.dto;
+
+import lombok.Data;
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class StatusUpdateResultDto {
+    // Moved order ids per target status
+    private Map<String, List<Long>> updated;
+    // Ids that could not be moved, with their current status or NOT_FOUND
+    private Map<Long, String> rejected;
+}
@@ -0,0 +1,40 @@
+package com.example.orderservice.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.ColumnDefault;
+import java.time.LocalDateTime;
+
+/**
+ * An email still to be sent by notification-service. Written in the transaction that creates the
+ * order and deleted by {@code NotificationRelay} once delivered.
+ */
+@Entity
+@Table(name = "notification_outbox", indexes = @Index(name = "idx_notification_outbox_next_attempt", columnList = "next_attempt_at"))
+@Data
+public class NotificationOutbox {
+    public static final int MAX_ERROR_LENGTH = 1000;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long orderId;
+    private String email;
+    private String subject;
+    @Column(length = 2000)
+    private String text;
+
+    // Delivery attempts so far; rows reaching notification.relay.max-attempts are kept but no longer tried
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt = LocalDateTime.now();
+
+    private LocalDateTime createdDate = LocalDateTime.now();
+
+    @Column(length = MAX_ERROR_LENGTH)
+    private String lastError;
+}
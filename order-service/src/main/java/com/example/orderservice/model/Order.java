@@ -7,7 +7,13 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders",
+        // One order per Idempotency-Key: a retried request finds the order its first attempt created
+        uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "idempotency_key"}),
+        // Keyset pagination of order listings, per user and overall
+        indexes = {
+                @Index(name = "idx_orders_user_created", columnList = "user_id, created_date, id"),
+                @Index(name = "idx_orders_created", columnList = "created_date, id")})
 @Data
 public class Order {
     @Id
@@ -18,6 +24,8 @@ public class Order {
     private int total;
     private String status = "NEW";
     private LocalDateTime createdDate = LocalDateTime.now();
+    // Idempotency-Key of the request that created the order, if it sent one
+    private String idempotencyKey;
 
     @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER, mappedBy = "order")
     private List<OrderItem> items = new ArrayList<>();
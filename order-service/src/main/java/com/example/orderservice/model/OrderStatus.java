@@ -0,0 +1,25 @@
+package com.example.orderservice.model;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * The statuses an order goes through: NEW, PAID, SHIPPED, DELIVERED, or CANCELLED at any point
+ * before delivery. Stored by name in {@link Order#getStatus()}.
+ */
+public enum OrderStatus {
+    NEW, PAID, SHIPPED, DELIVERED, CANCELLED;
+
+    /**
+     * The statuses an order may move to this one from.
+     */
+    public Set<OrderStatus> predecessors() {
+        return switch (this) {
+            case NEW -> EnumSet.noneOf(OrderStatus.class);
+            case PAID -> EnumSet.of(NEW);
+            case SHIPPED -> EnumSet.of(PAID);
+            case DELIVERED -> EnumSet.of(SHIPPED);
+            case CANCELLED -> EnumSet.of(NEW, PAID, SHIPPED);
+        };
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.orderservice.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * Units of one product ordered, not counting cancelled orders. Maintained by
+ * {@code SalesRollupRepository}.
+ */
+@Entity
+@Table(name = "sales_by_product", indexes = @Index(name = "idx_sales_by_product_units", columnList = "units"))
+@Data
+public class SalesByProduct {
+    @Id
+    private Long productId;
+    private long units;
+    private long revenue;
+}
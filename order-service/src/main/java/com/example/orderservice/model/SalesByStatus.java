@@ -0,0 +1,17 @@
+package com.example.orderservice.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * Orders currently in one status. Maintained by {@code SalesRollupRepository}.
+ */
+@Entity
+@Table(name = "sales_by_status")
+@Data
+public class SalesByStatus {
+    @Id
+    private String status;
+    private long orders;
+    private long revenue;
+}
@@ -0,0 +1,19 @@
+package com.example.orderservice.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDate;
+
+/**
+ * Orders created on one day, not counting cancelled ones. Maintained by {@code SalesRollupRepository}.
+ */
+@Entity
+@Table(name = "sales_daily")
+@Data
+public class SalesDaily {
+    @Id
+    private LocalDate salesDate;
+    private long orders;
+    private long revenue;
+    private long units;
+}
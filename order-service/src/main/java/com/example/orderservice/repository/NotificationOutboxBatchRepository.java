@@ -0,0 +1,60 @@
+package com.example.orderservice.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Statements used by the relay to deliver {@link NotificationOutboxRepository} rows, each covering a
+ * whole batch.
+ */
+@Repository
+public class NotificationOutboxBatchRepository {
+    private final JdbcTemplate jdbcTemplate;
+    private final String table;
+
+    public NotificationOutboxBatchRepository(JdbcTemplate jdbcTemplate,
+                                             @Value("${spring.jpa.properties.hibernate.default_schema:public}") String schema) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.table = schema + ".notification_outbox";
+    }
+
+    /**
+     * Claims up to {@code limit} due rows by pushing their next attempt {@code lease} into the future
+     * and counting the attempt. Rows claimed by another relay are skipped; rows of a relay that dies
+     * mid-batch become due again once the lease runs out.
+     */
+    public List<OutboxMessage> claim(int limit, int maxAttempts, Duration lease) {
+        return jdbcTemplate.query(
+                "UPDATE " + table + " SET next_attempt_at = now() + make_interval(secs => ?), attempts = attempts + 1 " +
+                        "WHERE id IN (SELECT id FROM " + table + " WHERE next_attempt_at <= now() AND attempts < ? " +
+                        "ORDER BY next_attempt_at LIMIT ? FOR UPDATE SKIP LOCKED) " +
+                        "RETURNING id, order_id, email, subject, text, attempts",
+                (rs, i) -> new OutboxMessage(rs.getLong("id"), rs.getLong("order_id"), rs.getString("email"),
+                        rs.getString("subject"), rs.getString("text"), rs.getInt("attempts")),
+                lease.toMillis() / 1000.0, maxAttempts, limit);
+    }
+
+    public int delete(Collection<Long> ids) {
+        if (ids.isEmpty()) return 0;
+        return jdbcTemplate.update("DELETE FROM " + table + " WHERE id = ANY(?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray())));
+    }
+
+    public int reschedule(Collection<OutboxRetry> retries) {
+        if (retries.isEmpty()) return 0;
+        return jdbcTemplate.update(
+                "UPDATE " + table + " o SET next_attempt_at = now() + make_interval(secs => u.delay), last_error = u.error " +
+                        "FROM unnest(?, ?, ?) AS u(id, delay, error) WHERE o.id = u.id",
+                ps -> {
+                    ps.setArray(1, ps.getConnection().createArrayOf("bigint", retries.stream().map(OutboxRetry::id).toArray()));
+                    ps.setArray(2, ps.getConnection().createArrayOf("float8",
+                            retries.stream().map(r -> r.delay().toMillis() / 1000.0).toArray()));
+                    ps.setArray(3, ps.getConnection().createArrayOf("varchar", retries.stream().map(OutboxRetry::error).toArray()));
+                });
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.orderservice.repository;
+
+import com.example.orderservice.model.NotificationOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutbox, Long> {
+}
@@ -0,0 +1,17 @@
+package com.example.orderservice.repository;
+
+import com.example.orderservice.model.OrderItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
+
+    // Projection, so the eagerly fetched order of each item is not loaded again
+    @Query("select new com.example.orderservice.repository.OrderItemRow(i.order.id, i.productId, i.quantity, i.price) " +
+            "from OrderItem i where i.order.id in :orderIds order by i.id")
+    List<OrderItemRow> findRowsByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
+}
@@ -0,0 +1,4 @@
+package com.example.orderservice.repository;
+
+public record OrderItemRow(Long orderId, Long productId, int quantity, int price) {
+}
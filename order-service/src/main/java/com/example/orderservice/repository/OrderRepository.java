@@ -1,10 +1,41 @@
 package com.example.orderservice.repository;
 
 import com.example.orderservice.model.Order;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
     List<Order> findByUserId(Long userId);
+
+    Optional<Order> findByUserIdAndIdempotencyKey(Long userId, String idempotencyKey);
+
+    // Newest first, keyset-paged on (createdDate, id): the *Before variants continue after a page's last row
+
+    @Query("select new com.example.orderservice.repository.OrderSummaryRow(o.id, o.userId, o.total, o.status, o.createdDate) " +
+            "from Order o where o.userId = :userId order by o.createdDate desc, o.id desc")
+    List<OrderSummaryRow> findSummariesByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("select new com.example.orderservice.repository.OrderSummaryRow(o.id, o.userId, o.total, o.status, o.createdDate) " +
+            "from Order o where o.userId = :userId and (o.createdDate, o.id) < (:createdDate, :id) " +
+            "order by o.createdDate desc, o.id desc")
+    List<OrderSummaryRow> findSummariesByUserIdBefore(@Param("userId") Long userId,
+                                                      @Param("createdDate") LocalDateTime createdDate,
+                                                      @Param("id") Long id,
+                                                      Pageable pageable);
+
+    @Query("select new com.example.orderservice.repository.OrderSummaryRow(o.id, o.userId, o.total, o.status, o.createdDate) " +
+            "from Order o order by o.createdDate desc, o.id desc")
+    List<OrderSummaryRow> findSummaries(Pageable pageable);
+
+    @Query("select new com.example.orderservice.repository.OrderSummaryRow(o.id, o.userId, o.total, o.status, o.createdDate) " +
+            "from Order o where (o.createdDate, o.id) < (:createdDate, :id) order by o.createdDate desc, o.id desc")
+    List<OrderSummaryRow> findSummariesBefore(@Param("createdDate") LocalDateTime createdDate,
+                                              @Param("id") Long id,
+                                              Pageable pageable);
 }
@@ -0,0 +1,59 @@
+package com.example.orderservice.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Status changes of any number of orders, each set of them moved by one statement.
+ */
+@Repository
+public class OrderStatusRepository {
+    private final JdbcTemplate jdbcTemplate;
+    private final String table;
+
+    public OrderStatusRepository(JdbcTemplate jdbcTemplate,
+                                 @Value("${spring.jpa.properties.hibernate.default_schema:public}") String schema) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.table = schema + ".orders";
+    }
+
+    /**
+     * Sets {@code status} on those of {@code ids} currently in one of {@code from} and returns them;
+     * the others are left alone. The rows are locked first, so the returned previous status is the one
+     * that was replaced.
+     */
+    public List<StatusChangeRow> transition(Collection<Long> ids, Collection<String> from, String status) {
+        if (ids.isEmpty() || from.isEmpty()) return List.of();
+        return jdbcTemplate.query(
+                "UPDATE " + table + " o SET status = ? FROM (SELECT id, status FROM " + table +
+                        " WHERE id = ANY(?) AND status = ANY(?) FOR UPDATE) p " +
+                        "WHERE o.id = p.id RETURNING o.id, p.status AS previous, o.total, o.created_date",
+                ps -> {
+                    ps.setString(1, status);
+                    ps.setArray(2, ps.getConnection().createArrayOf("bigint", ids.toArray()));
+                    ps.setArray(3, ps.getConnection().createArrayOf("varchar", from.toArray()));
+                },
+                (rs, i) -> new StatusChangeRow(rs.getLong("id"), rs.getString("previous"), rs.getInt("total"),
+                        rs.getTimestamp("created_date").toLocalDateTime()));
+    }
+
+    /**
+     * Current status of each of {@code ids} that exists.
+     */
+    public Map<Long, String> findStatuses(Collection<Long> ids) {
+        Map<Long, String> statuses = new HashMap<>();
+        if (ids.isEmpty()) return statuses;
+        jdbcTemplate.query("SELECT id, status FROM " + table + " WHERE id = ANY(?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray())),
+                rs -> {
+                    statuses.put(rs.getLong("id"), rs.getString("status"));
+                });
+        return statuses;
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.orderservice.repository;
+
+import java.time.LocalDateTime;
+
+public record OrderSummaryRow(Long id, Long userId, int total, String status, LocalDateTime createdDate) {
+}
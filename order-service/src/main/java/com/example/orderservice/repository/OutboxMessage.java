@@ -0,0 +1,7 @@
+package com.example.orderservice.repository;
+
+/**
+ * An outbox row claimed for delivery; {@code attempts} already counts the current one.
+ */
+public record OutboxMessage(Long id, Long orderId, String email, String subject, String text, int attempts) {
+}
@@ -0,0 +1,6 @@
+package com.example.orderservice.repository;
+
+import java.time.Duration;
+
+public record OutboxRetry(Long id, Duration delay, String error) {
+}
@@ -0,0 +1,9 @@
+package com.example.orderservice.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * An order moved by {@link OrderStatusRepository#transition}, with the status it had before.
+ */
+public record StatusChangeRow(Long id, String previous, int total, LocalDateTime createdDate) {
+}
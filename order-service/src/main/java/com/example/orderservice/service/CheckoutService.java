@@ -0,0 +1,91 @@
+package com.example.orderservice.service;
+
+import com.example.orderservice.client.CartClient;
+import com.example.orderservice.client.CartContents;
+import com.example.orderservice.client.ProductClient;
+import com.example.orderservice.client.ProductPrice;
+import com.example.orderservice.dto.OrderDto;
+import com.example.orderservice.model.Order;
+import com.example.orderservice.model.OrderItem;
+import com.example.orderservice.repository.OrderRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Turns a user's cart into an order. Prices come from product-service at checkout time, never from
+ * the client, and all of them are fetched in one request.
+ * <p>
+ * Every checkout carries a client-chosen idempotency key, unique per user. Repeating a checkout with
+ * the same key returns the order the first attempt created, so a retry after a timeout never charges
+ * twice.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CheckoutService {
+    private final OrderRepository orderRepository;
+    private final OrderService orderService;
+    private final CartClient cartClient;
+    private final ProductClient productClient;
+    private final IdempotencyCache idempotencyCache;
+
+    public OrderDto checkout(Long userId, String userEmail, String idempotencyKey) {
+        return idempotencyCache.execute(userId, idempotencyKey, () -> placeOrder(userId, userEmail, idempotencyKey));
+    }
+
+    private OrderDto placeOrder(Long userId, String userEmail, String idempotencyKey) {
+        Optional<Order> existing = orderRepository.findByUserIdAndIdempotencyKey(userId, idempotencyKey);
+        if (existing.isPresent()) return orderService.toDto(existing.get());
+
+        CartContents cart = cartClient.getCart(userId);
+        if (cart == null || cart.items() == null || cart.items().isEmpty()) throw new RuntimeException("Cart is empty");
+        List<Long> productIds = cart.items().stream().map(CartContents.Line::productId).toList();
+        Map<Long, ProductPrice> prices = productClient.getPrices(productIds).stream()
+                .collect(Collectors.toMap(ProductPrice::id, Function.identity(), (a, b) -> a));
+
+        Order order = new Order();
+        order.setUserId(userId);
+        order.setStatus("NEW");
+        order.setIdempotencyKey(idempotencyKey);
+        List<OrderItem> items = new ArrayList<>();
+        int total = 0;
+        for (CartContents.Line line : cart.items()) {
+            ProductPrice price = prices.get(line.productId());
+            if (price == null) throw new RuntimeException("Product not available: " + line.productId());
+            OrderItem item = new OrderItem();
+            item.setOrder(order);
+            item.setProductId(line.productId());
+            item.setQuantity(line.quantity());
+            item.setPrice(price.price());
+            items.add(item);
+            total += price.price() * line.quantity();
+        }
+        order.setItems(items);
+        order.setTotal(total);
+        Order saved;
+        try {
+            saved = orderService.placeOrder(order, userEmail);
+        } catch (DataIntegrityViolationException ex) {
+            // A concurrent attempt with the same key got there first; it also clears the cart
+            return orderRepository.findByUserIdAndIdempotencyKey(userId, idempotencyKey)
+                    .map(orderService::toDto).orElseThrow(() -> ex);
+        }
+
+        try {
+            // Only the version that was read: items added meanwhile stay in the cart
+            cartClient.clearCart(userId, cart.version());
+        } catch (Exception e) {
+            log.warn("Failed to clear cart of user {} after order {}: {}", userId, saved.getId(), e.getMessage());
+        }
+        return orderService.toDto(saved);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.orderservice.service;
+
+import com.example.orderservice.dto.OrderDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Remembers, for {@code orders.idempotency.ttl}, the order each recent (user, Idempotency-Key)
+ * produced on this instance. Repeats are answered from memory without touching the database, and a
+ * repeat arriving while the first request is still running waits for its result instead of running
+ * again.
+ * <p>
+ * This is only the fast path: the key is also stored on the order under a unique constraint, which
+ * catches repeats after expiry, after a restart or on another instance.
+ */
+@Component
+public class IdempotencyCache {
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile long lastPurge;
+
+    private record Entry(CompletableFuture<OrderDto> result, long createdAt) {
+    }
+
+    public IdempotencyCache(@Value("${orders.idempotency.ttl:10m}") Duration ttl) {
+        this(ttl, System::nanoTime);
+    }
+
+    IdempotencyCache(Duration ttl, LongSupplier clock) {
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+        this.lastPurge = clock.getAsLong();
+    }
+
+    /**
+     * Runs {@code action} unless the key was seen recently, in which case its result is returned.
+     * A failed action is forgotten so the request can be retried; callers waiting on it get the
+     * same failure.
+     */
+    public OrderDto execute(Long userId, String idempotencyKey, Supplier<OrderDto> action) {
+        long now = clock.getAsLong();
+        purgeExpired(now);
+        String id = userId + ":" + idempotencyKey;
+        Entry fresh = new Entry(new CompletableFuture<>(), now);
+        // An entry still running is never replaced, however old: that would run the action twice
+        Entry entry = entries.compute(id, (k, existing) -> existing == null
+                || existing.result().isDone() && now - existing.createdAt() >= ttlNanos ? fresh : existing);
+        if (entry != fresh) return await(entry.result());
+        try {
+            OrderDto result = action.get();
+            fresh.result().complete(result);
+            return result;
+        } catch (RuntimeException ex) {
+            entries.remove(id, fresh);
+            fresh.result().completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private static OrderDto await(CompletableFuture<OrderDto> result) {
+        try {
+            return result.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) throw cause;
+            throw ex;
+        }
+    }
+
+    // At most once per TTL, so the map never holds much more than one TTL's worth of keys
+    private void purgeExpired(long now) {
+        if (now - lastPurge < ttlNanos) return;
+        lastPurge = now;
+        entries.values().removeIf(e -> e.result().isDone() && now - e.createdAt() >= ttlNanos);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.orderservice.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidStatusException extends RuntimeException {
+    public InvalidStatusException(String status) {
+        super("Unknown order status: " + status);
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.orderservice.service;
+
+import com.example.orderservice.client.NotificationClient;
+import com.example.orderservice.model.NotificationOutbox;
+import com.example.orderservice.repository.NotificationOutboxBatchRepository;
+import com.example.orderservice.repository.OutboxMessage;
+import com.example.orderservice.repository.OutboxRetry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers the notification outbox to notification-service in the background, so creating an order
+ * never waits for email.
+ * <p>
+ * Every {@code notification.relay.interval} it claims due rows {@code notification.relay.batch-size}
+ * at a time, sends them, then deletes the delivered ones in one statement and reschedules the failed
+ * ones in another. A failed row is retried after an exponential backoff starting at
+ * {@code notification.relay.initial-backoff} and capped at {@code notification.relay.max-backoff};
+ * after {@code notification.relay.max-attempts} it stays in the table for inspection.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "notification.relay.enabled", havingValue = "true", matchIfMissing = true)
+public class NotificationRelay implements InitializingBean, DisposableBean {
+    private final NotificationOutboxBatchRepository outboxRepository;
+    private final NotificationClient notificationClient;
+    private final Duration interval;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration lease;
+    private ScheduledExecutorService scheduler;
+
+    public NotificationRelay(NotificationOutboxBatchRepository outboxRepository,
+                             NotificationClient notificationClient,
+                             @Value("${notification.relay.interval:1s}") Duration interval,
+                             @Value("${notification.relay.batch-size:100}") int batchSize,
+                             @Value("${notification.relay.max-attempts:10}") int maxAttempts,
+                             @Value("${notification.relay.initial-backoff:5s}") Duration initialBackoff,
+                             @Value("${notification.relay.max-backoff:30m}") Duration maxBackoff,
+                             @Value("${notification.relay.lease:5m}") Duration lease) {
+        this.outboxRepository = outboxRepository;
+        this.notificationClient = notificationClient;
+        this.interval = interval;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.lease = lease;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "notification-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                relay();
+            } catch (RuntimeException ex) {
+                log.warn("Notification relay failed", ex);
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Sends due notifications batch by batch until none are left and returns the number delivered.
+     */
+    public int relay() {
+        int delivered = 0;
+        List<OutboxMessage> batch;
+        do {
+            batch = outboxRepository.claim(batchSize, maxAttempts, lease);
+            if (batch.isEmpty()) break;
+            List<Long> sent = new ArrayList<>();
+            List<OutboxRetry> retries = new ArrayList<>();
+            for (OutboxMessage message : batch) {
+                try {
+                    notificationClient.sendOrderEmail(message.email(), message.subject(), message.text());
+                    sent.add(message.id());
+                } catch (RuntimeException ex) {
+                    if (message.attempts() >= maxAttempts) {
+                        log.error("Giving up on notification {} for order {} after {} attempts: {}",
+                                message.id(), message.orderId(), message.attempts(), ex.getMessage());
+                    }
+                    retries.add(new OutboxRetry(message.id(), backoff(message.attempts()), error(ex)));
+                }
+            }
+            outboxRepository.delete(sent);
+            outboxRepository.reschedule(retries);
+            delivered += sent.size();
+        } while (batch.size() == batchSize);
+        return delivered;
+    }
+
+    // A downstream error body longer than the column would fail the reschedule of the whole batch
+    private static String error(RuntimeException ex) {
+        String message = ex.getMessage();
+        return message == null || message.length() <= NotificationOutbox.MAX_ERROR_LENGTH
+                ? message : message.substring(0, NotificationOutbox.MAX_ERROR_LENGTH);
+    }
+
+    // initial, 2x initial, 4x initial, ... up to the cap
+    Duration backoff(int attempts) {
+        int doublings = Math.min(attempts - 1, 30);
+        Duration delay = initialBackoff.multipliedBy(1L << doublings);
+        return delay.compareTo(maxBackoff) < 0 ? delay : maxBackoff;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.orderservice.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position in an order listing: the (createdDate, id) of the last order on the previous page,
+ * passed to clients as an opaque string.
+ */
+record OrderCursor(LocalDateTime createdDate, Long id) {
+
+    String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((createdDate + "/" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Null for a missing cursor, meaning the first page.
+     */
+    static OrderCursor parse(String cursor) {
+        if (cursor == null || cursor.isEmpty()) return null;
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("/", 2);
+            return new OrderCursor(LocalDateTime.parse(parts[0]), Long.valueOf(parts[1]));
+        } catch (RuntimeException ex) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+}
@@ -2,23 +2,51 @@ package com.example.orderservice.service;
 
 import com.example.orderservice.dto.OrderDto;
 import com.example.orderservice.dto.OrderItemDto;
+import com.example.orderservice.dto.OrderPageDto;
+import com.example.orderservice.model.NotificationOutbox;
 import com.example.orderservice.model.Order;
 import com.example.orderservice.model.OrderItem;
+import com.example.orderservice.repository.NotificationOutboxRepository;
+import com.example.orderservice.repository.OrderItemRepository;
+import com.example.orderservice.repository.OrderItemRow;
 import com.example.orderservice.repository.OrderRepository;
+import com.example.orderservice.repository.OrderSummaryRow;
+import com.example.orderservice.stats.SalesChange;
+import com.example.orderservice.stats.SalesRollupRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class OrderService {
+    static final int MAX_PAGE_SIZE = 100;
+
     private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final NotificationOutboxRepository notificationOutboxRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final IdempotencyCache idempotencyCache;
+    private final SalesRollupRepository salesRollupRepository;
 
-    public List<OrderDto> getOrdersByUser(Long userId) {
-        return orderRepository.findByUserId(userId).stream().map(this::toDto).collect(Collectors.toList());
+    /**
+     * One page of the user's orders, newest first. With {@code summary} the orders come without
+     * their items.
+     */
+    public OrderPageDto getOrdersByUser(Long userId, String cursor, int size, boolean summary) {
+        OrderCursor after = OrderCursor.parse(cursor);
+        Pageable limit = limit(size);
+        List<OrderSummaryRow> rows = after == null
+                ? orderRepository.findSummariesByUserId(userId, limit)
+                : orderRepository.findSummariesByUserIdBefore(userId, after.createdDate(), after.id(), limit);
+        return page(rows, limit.getPageSize() - 1, summary);
     }
 
     public OrderDto getOrder(Long id) {
@@ -26,36 +54,114 @@ public class OrderService {
     }
 
     public OrderDto createOrder(Long userId, String userEmail, List<OrderItem> items, int total) {
+        return createOrder(userId, userEmail, items, total, null);
+    }
+
+    /**
+     * With an idempotency key, repeats of the request (client retries, double submits) return the
+     * order the first one created instead of creating and announcing another.
+     */
+    public OrderDto createOrder(Long userId, String userEmail, List<OrderItem> items, int total, String idempotencyKey) {
+        if (idempotencyKey == null) return toDto(placeOrder(newOrder(userId, items, total, null), userEmail));
+        return idempotencyCache.execute(userId, idempotencyKey, () ->
+                orderRepository.findByUserIdAndIdempotencyKey(userId, idempotencyKey).map(this::toDto).orElseGet(() -> {
+                    try {
+                        return toDto(placeOrder(newOrder(userId, items, total, idempotencyKey), userEmail));
+                    } catch (DataIntegrityViolationException ex) {
+                        // Another instance placed it first
+                        return orderRepository.findByUserIdAndIdempotencyKey(userId, idempotencyKey)
+                                .map(this::toDto).orElseThrow(() -> ex);
+                    }
+                }));
+    }
+
+    private Order newOrder(Long userId, List<OrderItem> items, int total, String idempotencyKey) {
         Order order = new Order();
         order.setUserId(userId);
         order.setTotal(total);
         order.setStatus("NEW");
+        order.setIdempotencyKey(idempotencyKey);
         order.setItems(items);
         items.forEach(i -> i.setOrder(order));
-        orderRepository.save(order);
-        try {
-            sendOrderNotification(userEmail, order.getId());
-        } catch (Exception e) {
-            System.out.println("Failed to send email: " + e.getMessage());
-        }
-        return toDto(order);
+        return order;
+    }
+
+    /**
+     * Saves the order and, in the same transaction, queues the confirmation email for
+     * {@link NotificationRelay} and adds the order to the sales rollups; nothing here waits for
+     * notification-service.
+     */
+    public Order placeOrder(Order order, String userEmail) {
+        return transactionTemplate.execute(status -> {
+            Order saved = orderRepository.save(order);
+            NotificationOutbox notification = new NotificationOutbox();
+            notification.setOrderId(saved.getId());
+            notification.setEmail(userEmail);
+            notification.setSubject("Your order successfully created");
+            notification.setText("Your order #" + saved.getId() + " successfully created!");
+            notificationOutboxRepository.save(notification);
+            salesRollupRepository.apply(new SalesChange().orderAdded(saved));
+            return saved;
+        });
     }
 
-    public void updateStatus(Long id, String status) {
-        Order order = orderRepository.findById(id).orElseThrow(() -> new RuntimeException("Not found"));
-        order.setStatus(status);
-        orderRepository.save(order);
+    /**
+     * One page of all orders, newest first; memory use is bounded by the page size.
+     */
+    public OrderPageDto getAllOrders(String cursor, int size, boolean summary) {
+        OrderCursor after = OrderCursor.parse(cursor);
+        Pageable limit = limit(size);
+        List<OrderSummaryRow> rows = after == null
+                ? orderRepository.findSummaries(limit)
+                : orderRepository.findSummariesBefore(after.createdDate(), after.id(), limit);
+        return page(rows, limit.getPageSize() - 1, summary);
     }
 
-    public List<OrderDto> getAllOrders() {
-        return orderRepository.findAll().stream().map(this::toDto).collect(Collectors.toList());
+    // One row more than the page holds, to tell whether another page follows
+    private static Pageable limit(int size) {
+        return PageRequest.of(0, Math.max(1, Math.min(size, MAX_PAGE_SIZE)) + 1);
+    }
+
+    // Items of the whole page come from one query
+    private OrderPageDto page(List<OrderSummaryRow> rows, int size, boolean summary) {
+        List<OrderSummaryRow> content = rows.size() > size ? rows.subList(0, size) : rows;
+        Map<Long, List<OrderItemDto>> items = summary || content.isEmpty() ? Map.of()
+                : orderItemRepository.findRowsByOrderIdIn(content.stream().map(OrderSummaryRow::id).toList()).stream()
+                .collect(Collectors.groupingBy(OrderItemRow::orderId, Collectors.mapping(this::toItemDto, Collectors.toList())));
+        OrderPageDto page = new OrderPageDto();
+        page.setContent(content.stream().map(row -> {
+            OrderDto dto = new OrderDto();
+            dto.setId(row.id());
+            dto.setUserId(row.userId());
+            dto.setTotal(row.total());
+            dto.setStatus(row.status());
+            dto.setCreatedDate(String.valueOf(row.createdDate()));
+            if (!summary) dto.setItems(items.getOrDefault(row.id(), List.of()));
+            return dto;
+        }).toList());
+        if (rows.size() > size) {
+            OrderSummaryRow last = content.get(content.size() - 1);
+            page.setNextCursor(new OrderCursor(last.createdDate(), last.id()).encode());
+        }
+        return page;
+    }
+
+    private OrderItemDto toItemDto(OrderItemRow row) {
+        OrderItemDto dto = new OrderItemDto();
+        dto.setProductId(row.productId());
+        dto.setQuantity(row.quantity());
+        dto.setPrice(row.price());
+        return dto;
     }
 
     public void deleteOrder(Long id) {
-        orderRepository.deleteById(id);
+        transactionTemplate.executeWithoutResult(tx -> {
+            orderRepository.findById(id).ifPresent(order -> salesRollupRepository.apply(new SalesChange().orderRemoved(order)));
+            orderRepository.deleteById(id);
+        });
     }
 
-    private OrderDto toDto(Order order) {
+    OrderDto toDto(Order order) {
         OrderDto dto = new OrderDto();
         dto.setId(order.getId());
         dto.setUserId(order.getUserId());
@@ -71,14 +177,4 @@ public class OrderService {
         }).collect(Collectors.toList()));
         return dto;
     }
-
-    public void sendOrderNotification(String userEmail, Long orderId) {
-        RestTemplate restTemplate = new RestTemplate();
-        String url = "http://notification-service:8086/api/notifications/order";
-        //String url = "http://localhost:8086/api/notifications/order";
-        restTemplate.postForObject(url +
-                "?email=" + userEmail +
-                "&subject=Your order successfully created" +
-                "&text=Your order #" + orderId + " successfully created!", null, String.class);
-    }
 }
@@ -0,0 +1,119 @@
+package com.example.orderservice.service;
+
+import com.example.orderservice.dto.StatusUpdateResultDto;
+import com.example.orderservice.model.OrderStatus;
+import com.example.orderservice.repository.OrderItemRepository;
+import com.example.orderservice.repository.OrderItemRow;
+import com.example.orderservice.repository.OrderStatusRepository;
+import com.example.orderservice.repository.StatusChangeRow;
+import com.example.orderservice.stats.SalesChange;
+import com.example.orderservice.stats.SalesRollupRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Moves orders between statuses along {@link OrderStatus}. An order whose current status is not a
+ * predecessor of the target is left alone and reported.
+ */
+@Service
+@RequiredArgsConstructor
+public class OrderStatusService {
+    static final String NOT_FOUND = "NOT_FOUND";
+
+    private final OrderStatusRepository orderStatusRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final SalesRollupRepository salesRollupRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public void updateStatus(Long id, String status) {
+        StatusUpdateResultDto result = updateStatuses(Map.of(status, List.of(id)));
+        String current = result.getRejected().get(id);
+        if (NOT_FOUND.equals(current)) throw new RuntimeException("Not found");
+        if (current != null) throw new StatusTransitionException(id, current, status);
+    }
+
+    /**
+     * Moves the orders listed under each target status, in one transaction: one conditional UPDATE
+     * per target, one query for the items of orders entering or leaving CANCELLED, one query for the
+     * current status of rejected ids, and one upsert per sales rollup.
+     */
+    public StatusUpdateResultDto updateStatuses(Map<String, ? extends Collection<Long>> idsByStatus) {
+        // Validated up front so a bad request changes nothing; applied in lifecycle order. An id under
+        // two targets would be moved through both, so each id gets a single target
+        Map<OrderStatus, Collection<Long>> targets = new EnumMap<>(OrderStatus.class);
+        Map<Long, OrderStatus> targetById = new HashMap<>();
+        idsByStatus.forEach((status, ids) -> {
+            OrderStatus target = parse(status);
+            if (ids == null) throw new InvalidStatusUpdateException("No order ids given for status " + status);
+            if (targets.containsKey(target)) throw new InvalidStatusUpdateException("Status listed more than once: " + target);
+            for (Long id : ids) {
+                if (id == null) throw new InvalidStatusUpdateException("Order id must not be null");
+                OrderStatus other = targetById.putIfAbsent(id, target);
+                if (other != null && other != target)
+                    throw new InvalidStatusUpdateException("Order " + id + " is listed under both " + other + " and " + target);
+            }
+            targets.put(target, ids);
+        });
+
+        return transactionTemplate.execute(tx -> {
+            Map<String, List<Long>> updated = new LinkedHashMap<>();
+            Set<Long> rejected = new LinkedHashSet<>();
+            Map<OrderStatus, List<StatusChangeRow>> moved = new EnumMap<>(OrderStatus.class);
+            targets.forEach((target, ids) -> {
+                Set<Long> requested = new LinkedHashSet<>(ids);
+                List<StatusChangeRow> rows = orderStatusRepository.transition(requested,
+                        target.predecessors().stream().map(Enum::name).toList(), target.name());
+                moved.put(target, rows);
+                List<Long> movedIds = rows.stream().map(StatusChangeRow::id).toList();
+                updated.put(target.name(), movedIds);
+                Set<Long> movedSet = Set.copyOf(movedIds);
+                requested.stream().filter(id -> !movedSet.contains(id)).forEach(rejected::add);
+            });
+
+            salesRollupRepository.apply(salesChange(moved));
+
+            StatusUpdateResultDto result = new StatusUpdateResultDto();
+            result.setUpdated(updated);
+            Map<Long, String> current = orderStatusRepository.findStatuses(rejected);
+            Map<Long, String> reasons = new LinkedHashMap<>();
+            for (Long id : rejected) reasons.put(id, current.getOrDefault(id, NOT_FOUND));
+            result.setRejected(reasons);
+            return result;
+        });
+    }
+
+    private SalesChange salesChange(Map<OrderStatus, List<StatusChangeRow>> moved) {
+        String cancelled = OrderStatus.CANCELLED.name();
+        List<Long> crossing = new ArrayList<>();
+        moved.forEach((target, rows) -> rows.stream()
+                .filter(row -> cancelled.equals(row.previous()) != (target == OrderStatus.CANCELLED))
+                .forEach(row -> crossing.add(row.id())));
+        Map<Long, List<OrderItemRow>> items = crossing.isEmpty() ? Map.of()
+                : orderItemRepository.findRowsByOrderIdIn(crossing).stream()
+                .collect(Collectors.groupingBy(OrderItemRow::orderId));
+        SalesChange change = new SalesChange();
+        moved.forEach((target, rows) -> rows.forEach(row -> change.statusChanged(row.createdDate(), row.total(),
+                items.getOrDefault(row.id(), List.of()), row.previous(), target.name())));
+        return change;
+    }
+
+    private static OrderStatus parse(String status) {
+        try {
+            return OrderStatus.valueOf(status.toUpperCase());
+        } catch (RuntimeException ex) {
+            throw new InvalidStatusException(status);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.orderservice.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class StatusTransitionException extends RuntimeException {
+    public StatusTransitionException(Long id, String from, String to) {
+        super("Order " + id + " cannot move from " + from + " to " + to);
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.orderservice.stats;
+
+import java.time.LocalDate;
+
+public record DailySales(LocalDate date, long orders, long revenue, long units) {
+}
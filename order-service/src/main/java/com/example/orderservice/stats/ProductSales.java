@@ -0,0 +1,4 @@
+package com.example.orderservice.stats;
+
+public record ProductSales(Long productId, long units, long revenue) {
+}
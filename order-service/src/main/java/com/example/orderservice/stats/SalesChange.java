@@ -0,0 +1,90 @@
+package com.example.orderservice.stats;
+
+import com.example.orderservice.model.Order;
+import com.example.orderservice.model.OrderStatus;
+import com.example.orderservice.repository.OrderItemRow;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * The net effect of one or more order changes on the sales rollups, written by
+ * {@link SalesRollupRepository#apply} in one statement per rollup table.
+ * <p>
+ * Every order counts towards its status; cancelled orders don't count towards daily or product
+ * sales. Keys are kept sorted so concurrent transactions lock rollup rows in the same order.
+ */
+public class SalesChange {
+    static final String CANCELLED = OrderStatus.CANCELLED.name();
+
+    // [orders, revenue, units]
+    final Map<LocalDate, long[]> daily = new TreeMap<>();
+    // [orders, revenue]
+    final Map<String, long[]> byStatus = new TreeMap<>();
+    // [units, revenue]
+    final Map<Long, long[]> byProduct = new TreeMap<>();
+
+    public SalesChange orderAdded(Order order) {
+        return order(order.getCreatedDate(), order.getStatus(), order.getTotal(), items(order), 1);
+    }
+
+    public SalesChange orderRemoved(Order order) {
+        return order(order.getCreatedDate(), order.getStatus(), order.getTotal(), items(order), -1);
+    }
+
+    public SalesChange statusChanged(Order order, String from, String to) {
+        return statusChanged(order.getCreatedDate(), order.getTotal(), items(order), from, to);
+    }
+
+    /**
+     * {@code items} are only read when the order moves into or out of {@code CANCELLED}.
+     */
+    public SalesChange statusChanged(LocalDateTime createdDate, int total, Collection<OrderItemRow> items,
+                                     String from, String to) {
+        if (Objects.equals(from, to)) return this;
+        add(byStatus, from, -1, -total);
+        add(byStatus, to, 1, total);
+        if (counted(from) != counted(to)) sales(createdDate, total, items, counted(to) ? 1 : -1);
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return daily.isEmpty() && byStatus.isEmpty() && byProduct.isEmpty();
+    }
+
+    private SalesChange order(LocalDateTime createdDate, String status, int total, Collection<OrderItemRow> items, int sign) {
+        add(byStatus, status, sign, (long) sign * total);
+        if (counted(status)) sales(createdDate, total, items, sign);
+        return this;
+    }
+
+    private void sales(LocalDateTime createdDate, int total, Collection<OrderItemRow> items, int sign) {
+        long units = 0;
+        for (OrderItemRow item : items) {
+            units += item.quantity();
+            add(byProduct, item.productId(), (long) sign * item.quantity(), (long) sign * item.quantity() * item.price());
+        }
+        add(daily, createdDate.toLocalDate(), sign, (long) sign * total, sign * units);
+    }
+
+    private static boolean counted(String status) {
+        return !CANCELLED.equals(status);
+    }
+
+    private static List<OrderItemRow> items(Order order) {
+        return order.getItems().stream()
+                .map(i -> new OrderItemRow(order.getId(), i.getProductId(), i.getQuantity(), i.getPrice()))
+                .toList();
+    }
+
+    private static <K> void add(Map<K, long[]> rollup, K key, long... deltas) {
+        if (key == null) return;
+        long[] sums = rollup.computeIfAbsent(key, k -> new long[deltas.length]);
+        for (int i = 0; i < deltas.length; i++) sums[i] += deltas[i];
+    }
+}
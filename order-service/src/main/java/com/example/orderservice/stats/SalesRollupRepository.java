@@ -0,0 +1,145 @@
+package com.example.orderservice.stats;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reads and maintains the sales rollup tables. Changes are applied as deltas, with one
+ * {@code unnest} upsert per table however many orders they cover; they must run in the
+ * transaction that changes the orders.
+ */
+@Repository
+public class SalesRollupRepository {
+    private final JdbcTemplate jdbcTemplate;
+    private final String ordersTable;
+    private final String itemsTable;
+    private final String dailyTable;
+    private final String statusTable;
+    private final String productTable;
+
+    public SalesRollupRepository(JdbcTemplate jdbcTemplate,
+                                 @Value("${spring.jpa.properties.hibernate.default_schema:public}") String schema) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ordersTable = schema + ".orders";
+        this.itemsTable = schema + ".order_items";
+        this.dailyTable = schema + ".sales_daily";
+        this.statusTable = schema + ".sales_by_status";
+        this.productTable = schema + ".sales_by_product";
+    }
+
+    /**
+     * Returns the number of statements issued, at most one per rollup table.
+     */
+    public int apply(SalesChange change) {
+        int statements = 0;
+        Map<LocalDate, long[]> daily = nonZero(change.daily);
+        if (!daily.isEmpty()) {
+            statements++;
+            jdbcTemplate.update(
+                    "INSERT INTO " + dailyTable + " (sales_date, orders, revenue, units) " +
+                            "SELECT * FROM unnest(?, ?, ?, ?) " +
+                            "ON CONFLICT (sales_date) DO UPDATE SET orders = sales_daily.orders + EXCLUDED.orders, " +
+                            "revenue = sales_daily.revenue + EXCLUDED.revenue, units = sales_daily.units + EXCLUDED.units",
+                    ps -> {
+                        ps.setArray(1, ps.getConnection().createArrayOf("date", daily.keySet().stream().map(Date::valueOf).toArray()));
+                        ps.setArray(2, ps.getConnection().createArrayOf("bigint", column(daily, 0)));
+                        ps.setArray(3, ps.getConnection().createArrayOf("bigint", column(daily, 1)));
+                        ps.setArray(4, ps.getConnection().createArrayOf("bigint", column(daily, 2)));
+                    });
+        }
+        Map<String, long[]> byStatus = nonZero(change.byStatus);
+        if (!byStatus.isEmpty()) {
+            statements++;
+            jdbcTemplate.update(
+                    "INSERT INTO " + statusTable + " (status, orders, revenue) " +
+                            "SELECT * FROM unnest(?, ?, ?) " +
+                            "ON CONFLICT (status) DO UPDATE SET orders = sales_by_status.orders + EXCLUDED.orders, " +
+                            "revenue = sales_by_status.revenue + EXCLUDED.revenue",
+                    ps -> {
+                        ps.setArray(1, ps.getConnection().createArrayOf("varchar", byStatus.keySet().toArray()));
+                        ps.setArray(2, ps.getConnection().createArrayOf("bigint", column(byStatus, 0)));
+                        ps.setArray(3, ps.getConnection().createArrayOf("bigint", column(byStatus, 1)));
+                    });
+        }
+        Map<Long, long[]> byProduct = nonZero(change.byProduct);
+        if (!byProduct.isEmpty()) {
+            statements++;
+            jdbcTemplate.update(
+                    "INSERT INTO " + productTable + " (product_id, units, revenue) " +
+                            "SELECT * FROM unnest(?, ?, ?) " +
+                            "ON CONFLICT (product_id) DO UPDATE SET units = sales_by_product.units + EXCLUDED.units, " +
+                            "revenue = sales_by_product.revenue + EXCLUDED.revenue",
+                    ps -> {
+                        ps.setArray(1, ps.getConnection().createArrayOf("bigint", byProduct.keySet().toArray()));
+                        ps.setArray(2, ps.getConnection().createArrayOf("bigint", column(byProduct, 0)));
+                        ps.setArray(3, ps.getConnection().createArrayOf("bigint", column(byProduct, 1)));
+                    });
+        }
+        return statements;
+    }
+
+    public List<DailySales> findDaily(LocalDate from, LocalDate to) {
+        return jdbcTemplate.query(
+                "SELECT sales_date, orders, revenue, units FROM " + dailyTable +
+                        " WHERE sales_date BETWEEN ? AND ? ORDER BY sales_date",
+                (rs, i) -> new DailySales(rs.getDate("sales_date").toLocalDate(), rs.getLong("orders"),
+                        rs.getLong("revenue"), rs.getLong("units")),
+                Date.valueOf(from), Date.valueOf(to));
+    }
+
+    public List<StatusSales> findByStatus() {
+        return jdbcTemplate.query(
+                "SELECT status, orders, revenue FROM " + statusTable + " WHERE orders <> 0 ORDER BY status",
+                (rs, i) -> new StatusSales(rs.getString("status"), rs.getLong("orders"), rs.getLong("revenue")));
+    }
+
+    public List<ProductSales> findTopProducts(int limit) {
+        return jdbcTemplate.query(
+                "SELECT product_id, units, revenue FROM " + productTable +
+                        " WHERE units > 0 ORDER BY units DESC, product_id LIMIT ?",
+                (rs, i) -> new ProductSales(rs.getLong("product_id"), rs.getLong("units"), rs.getLong("revenue")),
+                limit);
+    }
+
+    /**
+     * Recomputes every rollup from the orders. Order changes wait while it runs (the orders table is
+     * share-locked), so the result is consistent with the orders at that point.
+     */
+    public void rebuild() {
+        jdbcTemplate.execute("LOCK TABLE " + ordersTable + " IN SHARE MODE");
+        jdbcTemplate.update("DELETE FROM " + dailyTable);
+        jdbcTemplate.update("DELETE FROM " + statusTable);
+        jdbcTemplate.update("DELETE FROM " + productTable);
+        jdbcTemplate.update(
+                "INSERT INTO " + dailyTable + " (sales_date, orders, revenue, units) " +
+                        "SELECT o.created_date::date, count(*), sum(o.total), coalesce(sum(i.units), 0) FROM " + ordersTable + " o " +
+                        "LEFT JOIN (SELECT order_id, sum(quantity) AS units FROM " + itemsTable + " GROUP BY order_id) i " +
+                        "ON i.order_id = o.id WHERE o.status <> '" + SalesChange.CANCELLED + "' GROUP BY 1");
+        jdbcTemplate.update(
+                "INSERT INTO " + statusTable + " (status, orders, revenue) " +
+                        "SELECT status, count(*), sum(total) FROM " + ordersTable + " WHERE status IS NOT NULL GROUP BY status");
+        jdbcTemplate.update(
+                "INSERT INTO " + productTable + " (product_id, units, revenue) " +
+                        "SELECT i.product_id, sum(i.quantity), sum(i.quantity::bigint * i.price) FROM " + itemsTable + " i " +
+                        "JOIN " + ordersTable + " o ON o.id = i.order_id " +
+                        "WHERE o.status <> '" + SalesChange.CANCELLED + "' GROUP BY i.product_id");
+    }
+
+    private static <K> Map<K, long[]> nonZero(Map<K, long[]> rollup) {
+        Map<K, long[]> result = new TreeMap<>(rollup);
+        result.values().removeIf(sums -> Arrays.stream(sums).allMatch(v -> v == 0));
+        return result;
+    }
+
+    private static Object[] column(Map<?, long[]> rollup, int index) {
+        return rollup.values().stream().map(sums -> sums[index]).toArray();
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.orderservice.stats;
+
+import com.example.orderservice.dto.SalesStatsDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+/**
+ * Dashboard numbers, read from the rollup tables only; their cost does not grow with the number of
+ * orders.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SalesStatsService {
+    static final int MAX_TOP_PRODUCTS = 100;
+
+    private final SalesRollupRepository rollupRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public SalesStatsDto getStats(LocalDate from, LocalDate to, int top) {
+        SalesStatsDto stats = new SalesStatsDto();
+        stats.setDaily(rollupRepository.findDaily(from, to));
+        stats.setByStatus(rollupRepository.findByStatus());
+        stats.setTopProducts(rollupRepository.findTopProducts(Math.max(1, Math.min(top, MAX_TOP_PRODUCTS))));
+        return stats;
+    }
+
+    /**
+     * Recomputes the rollups from scratch, e.g. to backfill them for orders created before they
+     * existed.
+     */
+    public void rebuild() {
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> rollupRepository.rebuild());
+        log.info("Rebuilt sales rollups in {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,4 @@
+package com.example.orderservice.stats;
+
+public record StatusSales(String status, long orders, long revenue) {
+}
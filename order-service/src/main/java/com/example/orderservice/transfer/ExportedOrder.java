@@ -0,0 +1,14 @@
+package com.example.orderservice.transfer;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * One order in an NDJSON export.
+ */
+public record ExportedOrder(long id, long userId, String status, int total, LocalDateTime createdDate,
+                            List<Item> items) {
+
+    public record Item(long productId, int quantity, int price) {
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.orderservice.transfer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the orders created in a date range, with their items, as NDJSON (one order per line) or
+ * CSV (one item per line).
+ * <p>
+ * Rows are read through a single forward-only cursor that fetches {@code orders.export.fetch-size}
+ * rows at a time, and each row is written out as soon as it is read, so memory use does not depend
+ * on the range. PostgreSQL only honours the fetch size inside a transaction, hence the read-only
+ * one around the query. Output is flushed after every fetch.
+ */
+@Service
+public class OrderExportService {
+    static final String[] CSV_HEADER = {"orderId", "userId", "status", "createdDate", "orderTotal",
+            "productId", "quantity", "price", "lineTotal"};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final JsonMapper jsonMapper;
+    private final int fetchSize;
+    private final String ordersTable;
+    private final String itemsTable;
+
+    public OrderExportService(JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              JsonMapper jsonMapper,
+                              @Value("${orders.export.fetch-size:1000}") int fetchSize,
+                              @Value("${spring.jpa.properties.hibernate.default_schema:public}") String schema) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.jsonMapper = jsonMapper;
+        this.fetchSize = fetchSize;
+        this.ordersTable = schema + ".orders";
+        this.itemsTable = schema + ".order_items";
+    }
+
+    /**
+     * Returns the number of orders written.
+     */
+    public long exportNdjson(LocalDate from, LocalDate to, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        // Rows of one order are adjacent, so only the current order is held
+        List<OrderLine> current = new ArrayList<>();
+        long[] orders = {0};
+        RowWriter writeOrder = () -> {
+            if (current.isEmpty()) return;
+            writer.write(jsonMapper.writeValueAsString(toOrder(current)));
+            writer.write('\n');
+            current.clear();
+            orders[0]++;
+        };
+        export(from, to, writer, line -> {
+            if (!current.isEmpty() && current.get(0).orderId() != line.orderId()) writeOrder.write();
+            current.add(line);
+        });
+        writeOrder.write();
+        writer.flush();
+        return orders[0];
+    }
+
+    /**
+     * Returns the number of orders written.
+     */
+    public long exportCsv(LocalDate from, LocalDate to, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        CsvWriter csv = new CsvWriter(writer);
+        csv.writeRecord((Object[]) CSV_HEADER);
+        long[] orders = {0};
+        long[] lastOrderId = {-1};
+        export(from, to, writer, line -> {
+            if (line.orderId() != lastOrderId[0]) {
+                orders[0]++;
+                lastOrderId[0] = line.orderId();
+            }
+            csv.writeRecord(line.orderId(), line.userId(), line.status(), line.createdDate(), line.total(),
+                    line.productId(), line.quantity(), line.price(),
+                    line.productId() == null ? null : line.quantity() * line.price());
+        });
+        writer.flush();
+        return orders[0];
+    }
+
+    private interface LineWriter {
+        void write(OrderLine line) throws IOException;
+    }
+
+    private interface RowWriter {
+        void write() throws IOException;
+    }
+
+    // Both dates inclusive
+    private void export(LocalDate from, LocalDate to, Writer writer, LineWriter lineWriter) throws IOException {
+        long[] rows = {0};
+        String sql = "SELECT o.id, o.user_id, o.status, o.total, o.created_date, i.product_id, i.quantity, i.price " +
+                "FROM " + ordersTable + " o LEFT JOIN " + itemsTable + " i ON i.order_id = o.id " +
+                "WHERE o.created_date >= ? AND o.created_date < ? ORDER BY o.created_date, o.id, i.id";
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(fetchSize);
+                ps.setTimestamp(1, Timestamp.valueOf(from.atStartOfDay()));
+                ps.setTimestamp(2, Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+                return ps;
+            }, rs -> {
+                try {
+                    lineWriter.write(new OrderLine(
+                            rs.getLong("id"),
+                            rs.getLong("user_id"),
+                            rs.getString("status"),
+                            rs.getInt("total"),
+                            rs.getTimestamp("created_date").toLocalDateTime(),
+                            rs.getObject("product_id", Long.class),
+                            rs.getObject("quantity", Integer.class),
+                            rs.getObject("price", Integer.class)));
+                    if (++rows[0] % fetchSize == 0) writer.flush();
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    private static ExportedOrder toOrder(List<OrderLine> lines) {
+        OrderLine first = lines.get(0);
+        List<ExportedOrder.Item> items = lines.stream()
+                .filter(line -> line.productId() != null)
+                .map(line -> new ExportedOrder.Item(line.productId(), line.quantity(), line.price()))
+                .toList();
+        return new ExportedOrder(first.orderId(), first.userId(), first.status(), first.total(), first.createdDate(), items);
+    }
+}
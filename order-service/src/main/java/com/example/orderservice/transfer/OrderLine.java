@@ -0,0 +1,11 @@
+package com.example.orderservice.transfer;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row of the export query: an order joined with one of its items. The item fields are null for
+ * an order without items.
+ */
+record OrderLine(long orderId, long userId, String status, int total, LocalDateTime createdDate,
+                 Long productId, Integer quantity, Integer price) {
+}
@@ -0,0 +1,153 @@
+package com.example.orderservice;
+
+import com.example.orderservice.client.CartClient;
+import com.example.orderservice.client.CartContents;
+import com.example.orderservice.client.ProductClient;
+import com.example.orderservice.client.ProductPrice;
+import com.example.orderservice.dto.OrderDto;
+import com.example.orderservice.model.NotificationOutbox;
+import com.example.orderservice.model.Order;
+import com.example.orderservice.repository.NotificationOutboxRepository;
+import com.example.orderservice.repository.OrderItemRepository;
+import com.example.orderservice.repository.OrderRepository;
+import com.example.orderservice.service.CheckoutService;
+import com.example.orderservice.service.IdempotencyCache;
+import com.example.orderservice.stats.SalesRollupRepository;
+import com.example.orderservice.service.OrderService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CheckoutServiceTest {
+
+    private OrderRepository orderRepository;
+    private NotificationOutboxRepository notificationOutboxRepository;
+    private OrderService orderService;
+    private CartClient cartClient;
+    private ProductClient productClient;
+    private CheckoutService checkoutService;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository = mock(OrderRepository.class);
+        notificationOutboxRepository = mock(NotificationOutboxRepository.class);
+        IdempotencyCache idempotencyCache = new IdempotencyCache(Duration.ofMinutes(10));
+        orderService = new OrderService(orderRepository, mock(OrderItemRepository.class), notificationOutboxRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), idempotencyCache, mock(SalesRollupRepository.class));
+        cartClient = mock(CartClient.class);
+        productClient = mock(ProductClient.class);
+        checkoutService = new CheckoutService(orderRepository, orderService, cartClient, productClient, idempotencyCache);
+
+        when(orderRepository.findByUserIdAndIdempotencyKey(1L, "key-1")).thenReturn(Optional.empty());
+        when(cartClient.getCart(1L)).thenReturn(new CartContents(5L, 1L, 7L, List.of(
+                new CartContents.Line(10L, 2),
+                new CartContents.Line(20L, 1))));
+        when(productClient.getPrices(anyCollection())).thenReturn(List.of(
+                new ProductPrice(10L, "Telescope", 300),
+                new ProductPrice(20L, "Star map", 50)));
+        when(orderRepository.save(any(Order.class))).thenAnswer(inv -> {
+            Order order = inv.getArgument(0);
+            order.setId(100L);
+            return order;
+        });
+    }
+
+    @Test
+    void checkout_pricesAllLinesInOneCallAndClearsReadVersion() {
+        OrderDto dto = checkoutService.checkout(1L, "a@b.c", "key-1");
+
+        assertEquals(100L, dto.getId());
+        assertEquals(650, dto.getTotal());
+        assertEquals(2, dto.getItems().size());
+        assertEquals(300, dto.getItems().get(0).getPrice());
+        verify(productClient, times(1)).getPrices(List.of(10L, 20L));
+        ArgumentCaptor<Order> captor = ArgumentCaptor.forClass(Order.class);
+        verify(orderRepository).save(captor.capture());
+        assertEquals("key-1", captor.getValue().getIdempotencyKey());
+        assertEquals("NEW", captor.getValue().getStatus());
+        verify(cartClient).clearCart(1L, 7L);
+        verify(notificationOutboxRepository).save(any(NotificationOutbox.class));
+    }
+
+    @Test
+    void checkout_replayReturnsExistingOrderWithoutRemoteCalls() {
+        Order existing = new Order();
+        existing.setId(100L);
+        existing.setUserId(1L);
+        existing.setTotal(650);
+        when(orderRepository.findByUserIdAndIdempotencyKey(1L, "key-1")).thenReturn(Optional.of(existing));
+
+        OrderDto dto = checkoutService.checkout(1L, "a@b.c", "key-1");
+
+        assertEquals(100L, dto.getId());
+        verifyNoInteractions(cartClient, productClient);
+        verify(orderRepository, never()).save(any());
+    }
+
+    @Test
+    void checkout_repeatWhileCachedSkipsDatabaseAndRemoteCalls() {
+        checkoutService.checkout(1L, "a@b.c", "key-1");
+        clearInvocations(orderRepository, cartClient, productClient);
+
+        OrderDto dto = checkoutService.checkout(1L, "a@b.c", "key-1");
+
+        assertEquals(100L, dto.getId());
+        verifyNoInteractions(orderRepository, cartClient, productClient);
+    }
+
+    @Test
+    void checkout_missingProductFailsBeforeSaving() {
+        when(productClient.getPrices(anyCollection())).thenReturn(List.of(new ProductPrice(10L, "Telescope", 300)));
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> checkoutService.checkout(1L, "a@b.c", "key-1"));
+
+        assertEquals("Product not available: 20", ex.getMessage());
+        verify(orderRepository, never()).save(any());
+        verify(cartClient, never()).clearCart(anyLong(), anyLong());
+    }
+
+    @Test
+    void checkout_emptyCartFails() {
+        when(cartClient.getCart(1L)).thenReturn(new CartContents(5L, 1L, 7L, List.of()));
+
+        assertThrows(RuntimeException.class, () -> checkoutService.checkout(1L, "a@b.c", "key-1"));
+        verifyNoInteractions(productClient);
+    }
+
+    @Test
+    void checkout_concurrentAttemptWithSameKeyReturnsItsOrder() {
+        Order winner = new Order();
+        winner.setId(99L);
+        winner.setUserId(1L);
+        when(orderRepository.save(any(Order.class))).thenThrow(new DataIntegrityViolationException("duplicate key"));
+        when(orderRepository.findByUserIdAndIdempotencyKey(1L, "key-1"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(winner));
+
+        OrderDto dto = checkoutService.checkout(1L, "a@b.c", "key-1");
+
+        assertEquals(99L, dto.getId());
+        verify(cartClient, never()).clearCart(anyLong(), anyLong());
+        verify(notificationOutboxRepository, never()).save(any());
+    }
+
+    @Test
+    void checkout_cartClearFailureStillReturnsOrder() {
+        doThrow(new RuntimeException("412")).when(cartClient).clearCart(1L, 7L);
+
+        OrderDto dto = checkoutService.checkout(1L, "a@b.c", "key-1");
+
+        assertEquals(100L, dto.getId());
+    }
+}
@@ -1,18 +1,37 @@
 package com.example.orderservice;
 
 import com.example.orderservice.dto.OrderDto;
+import com.example.orderservice.dto.OrderPageDto;
+import com.example.orderservice.model.NotificationOutbox;
 import com.example.orderservice.model.Order;
 import com.example.orderservice.model.OrderItem;
+import com.example.orderservice.repository.NotificationOutboxRepository;
+import com.example.orderservice.repository.OrderItemRepository;
+import com.example.orderservice.repository.OrderItemRow;
 import com.example.orderservice.repository.OrderRepository;
+import com.example.orderservice.repository.OrderSummaryRow;
+import com.example.orderservice.service.InvalidCursorException;
+import com.example.orderservice.service.IdempotencyCache;
+import com.example.orderservice.stats.SalesChange;
+import com.example.orderservice.stats.SalesRollupRepository;
 import com.example.orderservice.service.OrderService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -20,49 +39,99 @@ import static org.mockito.Mockito.*;
 class OrderServiceTest {
 
     private OrderRepository orderRepository;
+    private OrderItemRepository orderItemRepository;
+    private SalesRollupRepository salesRollupRepository;
+    private NotificationOutboxRepository notificationOutboxRepository;
     private OrderService orderService;
 
     @BeforeEach
     void setUp() {
         orderRepository = mock(OrderRepository.class);
-        // Создаём реальный сервис
-        OrderService realService = new OrderService(orderRepository);
-        // И делаем spy, чтобы подменить sendOrderNotification
-        orderService = spy(realService);
+        orderItemRepository = mock(OrderItemRepository.class);
+        notificationOutboxRepository = mock(NotificationOutboxRepository.class);
+        salesRollupRepository = mock(SalesRollupRepository.class);
+        orderService = new OrderService(orderRepository, orderItemRepository, notificationOutboxRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), new IdempotencyCache(Duration.ofMinutes(10)),
+                salesRollupRepository);
     }
 
     // ---------- getOrdersByUser ----------
 
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 3, 1, 12, 0);
+
+    private static OrderSummaryRow row(long id, long userId, int minutesAgo) {
+        return new OrderSummaryRow(id, userId, 100 * (int) id, "NEW", NOW.minusMinutes(minutesAgo));
+    }
+
     @Test
-    void getOrdersByUser_returnsDtos() {
+    void getOrdersByUser_returnsPageWithItemsFromOneQuery() {
         Long userId = 1L;
-        Order order1 = new Order();
-        order1.setId(10L);
-        order1.setUserId(userId);
-        order1.setTotal(500);
-        order1.setStatus("NEW");
-        order1.setCreatedDate(LocalDateTime.now());
-        order1.setItems(new ArrayList<>());
+        when(orderRepository.findSummariesByUserId(eq(userId), any(Pageable.class)))
+                .thenReturn(List.of(row(10, 1, 0), row(9, 1, 5)));
+        when(orderItemRepository.findRowsByOrderIdIn(List.of(10L, 9L))).thenReturn(List.of(
+                new OrderItemRow(10L, 100L, 1, 50),
+                new OrderItemRow(10L, 101L, 2, 25),
+                new OrderItemRow(9L, 100L, 3, 50)));
+
+        OrderPageDto page = orderService.getOrdersByUser(userId, null, 20, false);
+
+        assertEquals(2, page.getContent().size());
+        assertEquals(10L, page.getContent().get(0).getId());
+        assertEquals(1000, page.getContent().get(0).getTotal());
+        assertEquals(2, page.getContent().get(0).getItems().size());
+        assertEquals(3, page.getContent().get(1).getItems().get(0).getQuantity());
+        assertNull(page.getNextCursor());
+        verify(orderItemRepository, times(1)).findRowsByOrderIdIn(anyCollection());
+        verify(orderRepository, never()).findByUserId(any());
+    }
 
-        when(orderRepository.findByUserId(userId)).thenReturn(List.of(order1));
+    @Test
+    void getOrdersByUser_returnsEmptyPageWhenNoOrders() {
+        when(orderRepository.findSummariesByUserId(eq(2L), any(Pageable.class))).thenReturn(List.of());
 
-        List<OrderDto> result = orderService.getOrdersByUser(userId);
+        OrderPageDto page = orderService.getOrdersByUser(2L, null, 20, false);
 
-        verify(orderRepository).findByUserId(userId);
-        assertEquals(1, result.size());
-        assertEquals(10L, result.get(0).getId());
-        assertEquals(userId, result.get(0).getUserId());
-        assertEquals(500, result.get(0).getTotal());
-        assertEquals("NEW", result.get(0).getStatus());
+        assertTrue(page.getContent().isEmpty());
+        assertNull(page.getNextCursor());
+        verifyNoInteractions(orderItemRepository);
     }
 
     @Test
-    void getOrdersByUser_returnsEmptyListWhenNoOrders() {
-        when(orderRepository.findByUserId(2L)).thenReturn(List.of());
+    void getOrdersByUser_cursorContinuesAfterLastRowOfPage() {
+        // Asked for 2, the repository returns the one extra row showing more exist
+        ArgumentCaptor<Pageable> limit = ArgumentCaptor.forClass(Pageable.class);
+        when(orderRepository.findSummariesByUserId(eq(1L), limit.capture()))
+                .thenReturn(List.of(row(10, 1, 0), row(9, 1, 0), row(8, 1, 5)));
+
+        OrderPageDto first = orderService.getOrdersByUser(1L, null, 2, true);
+
+        assertEquals(3, limit.getValue().getPageSize());
+        assertEquals(2, first.getContent().size());
+        assertNotNull(first.getNextCursor());
+
+        when(orderRepository.findSummariesByUserIdBefore(eq(1L), any(), any(), any(Pageable.class)))
+                .thenReturn(List.of(row(8, 1, 5)));
+        OrderPageDto second = orderService.getOrdersByUser(1L, first.getNextCursor(), 2, true);
+
+        // Ties on createdDate are broken by id
+        verify(orderRepository).findSummariesByUserIdBefore(eq(1L), eq(NOW), eq(9L), any(Pageable.class));
+        assertEquals(8L, second.getContent().get(0).getId());
+        assertNull(second.getNextCursor());
+    }
 
-        List<OrderDto> result = orderService.getOrdersByUser(2L);
+    @Test
+    void getOrdersByUser_summaryLeavesOutItems() {
+        when(orderRepository.findSummariesByUserId(eq(1L), any(Pageable.class))).thenReturn(List.of(row(10, 1, 0)));
 
-        assertTrue(result.isEmpty());
+        OrderPageDto page = orderService.getOrdersByUser(1L, null, 20, true);
+
+        assertNull(page.getContent().get(0).getItems());
+        verifyNoInteractions(orderItemRepository);
+    }
+
+    @Test
+    void getOrdersByUser_rejectsMalformedCursor() {
+        assertThrows(InvalidCursorException.class, () -> orderService.getOrdersByUser(1L, "not-a-cursor", 20, false));
     }
 
     // ---------- getOrder ----------
@@ -99,7 +168,7 @@ class OrderServiceTest {
     // ---------- createOrder ----------
 
     @Test
-    void createOrder_savesOrderAndSendsNotification() {
+    void createOrder_savesOrderAndQueuesNotification() {
         Long userId = 1L;
         String email = "user@test.com";
         int total = 300;
@@ -119,9 +188,6 @@ class OrderServiceTest {
             return o;
         });
 
-        // Подменяем HTTP-вызов, чтобы не делать реальный запрос
-        doNothing().when(orderService).sendOrderNotification(anyString(), anyLong());
-
         OrderDto dto = orderService.createOrder(userId, email, items, total);
 
         // Проверяем сохранение
@@ -142,16 +208,17 @@ class OrderServiceTest {
         assertEquals("NEW", dto.getStatus());
         assertEquals(1, dto.getItems().size());
 
-        // Проверяем отправку уведомления
-        verify(orderService).sendOrderNotification(email, 77L);
+        // Уведомление ставится в outbox, а не отправляется сразу
+        ArgumentCaptor<NotificationOutbox> notification = ArgumentCaptor.forClass(NotificationOutbox.class);
+        verify(notificationOutboxRepository).save(notification.capture());
+        assertEquals(77L, notification.getValue().getOrderId());
+        assertEquals(email, notification.getValue().getEmail());
+        assertEquals("Your order #77 successfully created!", notification.getValue().getText());
+        verify(salesRollupRepository).apply(any(SalesChange.class));
     }
 
     @Test
-    void createOrder_continuesWhenNotificationFails() {
-        Long userId = 1L;
-        String email = "user@test.com";
-        int total = 100;
-
+    void createOrder_failsWhenNotificationCannotBeQueued() {
         OrderItem item = new OrderItem();
         item.setProductId(1L);
         item.setPrice(100);
@@ -162,74 +229,95 @@ class OrderServiceTest {
         when(orderRepository.save(any(Order.class))).thenAnswer(inv -> {
             Order o = inv.getArgument(0);
             o.setId(5L);
-            o.setCreatedDate(LocalDateTime.now());
             return o;
         });
+        // Очередь в той же транзакции: без уведомления заказ откатывается
+        when(notificationOutboxRepository.save(any(NotificationOutbox.class)))
+                .thenThrow(new RuntimeException("DB error"));
 
-        // Симулируем ошибку при отправке
-        doThrow(new RuntimeException("Network error"))
-                .when(orderService).sendOrderNotification(email, 5L);
-
-        // Заказ всё равно должен создаться
-        OrderDto dto = orderService.createOrder(userId, email, items, total);
-
-        assertEquals(5L, dto.getId());
-        assertEquals(userId, dto.getUserId());
-        verify(orderService).sendOrderNotification(email, 5L);
+        assertThrows(RuntimeException.class, () -> orderService.createOrder(1L, "user@test.com", items, 100));
     }
 
-    // ---------- updateStatus ----------
+    private static List<OrderItem> oneItem() {
+        OrderItem item = new OrderItem();
+        item.setProductId(1L);
+        item.setPrice(100);
+        item.setQuantity(1);
+        List<OrderItem> items = new ArrayList<>();
+        items.add(item);
+        return items;
+    }
 
     @Test
-    void updateStatus_changesStatusAndSaves() {
-        Order order = new Order();
-        order.setId(1L);
-        order.setStatus("NEW");
+    void createOrder_sameKeyFromManyThreadsCreatesOneOrder() throws Exception {
+        when(orderRepository.findByUserIdAndIdempotencyKey(1L, "key-1")).thenReturn(Optional.empty());
+        when(orderRepository.save(any(Order.class))).thenAnswer(inv -> {
+            Thread.sleep(50);
+            Order o = inv.getArgument(0);
+            o.setId(42L);
+            return o;
+        });
+
+        int threads = 32;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<OrderDto>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                return orderService.createOrder(1L, "user@test.com", oneItem(), 100, "key-1");
+            }));
+        }
+        start.countDown();
+        for (Future<OrderDto> result : results) assertEquals(42L, result.get().getId());
+        pool.shutdown();
+
+        verify(orderRepository, times(1)).save(any(Order.class));
+        verify(notificationOutboxRepository, times(1)).save(any(NotificationOutbox.class));
+    }
 
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+    @Test
+    void createOrder_repeatedKeyAfterRestartReturnsStoredOrder() {
+        Order stored = new Order();
+        stored.setId(42L);
+        stored.setUserId(1L);
+        stored.setTotal(100);
+        when(orderRepository.findByUserIdAndIdempotencyKey(1L, "key-1")).thenReturn(Optional.of(stored));
 
-        orderService.updateStatus(1L, "PAID");
+        OrderDto dto = orderService.createOrder(1L, "user@test.com", oneItem(), 100, "key-1");
 
-        assertEquals("PAID", order.getStatus());
-        verify(orderRepository).save(order);
+        assertEquals(42L, dto.getId());
+        verify(orderRepository, never()).save(any());
     }
 
     @Test
-    void updateStatus_throwsWhenNotFound() {
-        when(orderRepository.findById(1L)).thenReturn(Optional.empty());
-
-        RuntimeException exception = assertThrows(RuntimeException.class,
-                () -> orderService.updateStatus(1L, "PAID"));
-        assertEquals("Not found", exception.getMessage());
+    void createOrder_keyTakenByAnotherInstanceReturnsItsOrder() {
+        Order winner = new Order();
+        winner.setId(42L);
+        winner.setUserId(1L);
+        when(orderRepository.findByUserIdAndIdempotencyKey(1L, "key-1"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(winner));
+        when(orderRepository.save(any(Order.class))).thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        assertEquals(42L, orderService.createOrder(1L, "user@test.com", oneItem(), 100, "key-1").getId());
+        verify(notificationOutboxRepository, never()).save(any());
     }
 
     // ---------- getAllOrders ----------
 
     @Test
-    void getAllOrders_returnsDtos() {
-        Order o1 = new Order();
-        o1.setId(1L);
-        o1.setUserId(1L);
-        o1.setTotal(100);
-        o1.setStatus("NEW");
-        o1.setCreatedDate(LocalDateTime.now());
-        o1.setItems(new ArrayList<>());
-
-        Order o2 = new Order();
-        o2.setId(2L);
-        o2.setUserId(2L);
-        o2.setTotal(200);
-        o2.setStatus("PAID");
-        o2.setCreatedDate(LocalDateTime.now());
-        o2.setItems(new ArrayList<>());
-
-        when(orderRepository.findAll()).thenReturn(List.of(o1, o2));
+    void getAllOrders_returnsPageNeverLargerThanMaximum() {
+        ArgumentCaptor<Pageable> limit = ArgumentCaptor.forClass(Pageable.class);
+        when(orderRepository.findSummaries(limit.capture())).thenReturn(List.of(row(2, 2, 0), row(1, 1, 5)));
 
-        List<OrderDto> dtos = orderService.getAllOrders();
+        OrderPageDto page = orderService.getAllOrders(null, 1_000_000, true);
 
-        assertEquals(2, dtos.size());
-        assertEquals(1L, dtos.get(0).getId());
-        assertEquals(2L, dtos.get(1).getId());
+        assertEquals(101, limit.getValue().getPageSize());
+        assertEquals(2, page.getContent().size());
+        assertEquals(2L, page.getContent().get(0).getId());
+        assertEquals(1L, page.getContent().get(1).getId());
+        verify(orderRepository, never()).findAll();
     }
 
     // ---------- deleteOrder ----------
@@ -241,5 +329,19 @@ class OrderServiceTest {
         verify(orderRepository).deleteById(10L);
     }
 
+    @Test
+    void deleteOrder_removesOrderFromRollups() {
+        Order order = new Order();
+        order.setId(10L);
+        order.setStatus("NEW");
+        order.setTotal(300);
+        when(orderRepository.findById(10L)).thenReturn(Optional.of(order));
+
+        orderService.deleteOrder(10L);
+
+        verify(salesRollupRepository).apply(any(SalesChange.class));
+        verify(orderRepository).deleteById(10L);
+    }
+
 }
 
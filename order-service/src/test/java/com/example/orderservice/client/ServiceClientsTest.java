@@ -0,0 +1,138 @@
+package com.example.orderservice.client;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServiceClientsTest {
+
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    // Statuses served before answering 200
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private SimpleMeterRegistry meterRegistry;
+    private RestTemplate client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            exchange.getRequestBody().readAllBytes();
+            byte[] body = exchange.getRequestURI().getRawQuery() == null ? "ok".getBytes(StandardCharsets.UTF_8)
+                    : exchange.getRequestURI().getRawQuery().getBytes(StandardCharsets.UTF_8);
+            int status = failuresLeft.getAndDecrement() > 0 ? 503 : 200;
+            exchange.sendResponseHeaders(status, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("test-service.url", "http://localhost:" + server.getAddress().getPort())
+                .withProperty("service-client.max-attempts", "3")
+                .withProperty("service-client.retry-backoff", "1ms")
+                .withProperty("test-service.circuit-breaker.failure-threshold", "4");
+        environment.setConversionService(new ApplicationConversionService());
+        meterRegistry = new SimpleMeterRegistry();
+        client = new ServiceClients(environment, meterRegistry).forTarget("test-service");
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private double attempts(String method, String outcome) {
+        var timer = meterRegistry.find("service.client.requests")
+                .tags("target", "test-service", "method", method, "outcome", outcome).timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    @Test
+    void get_isRetriedOnUnavailableAndRecorded() {
+        failuresLeft.set(2);
+
+        assertEquals("ok", client.getForObject("/api/things/{id}", String.class, 1));
+
+        assertEquals(3, requests.get());
+        assertEquals(2, attempts("GET", "SERVER_ERROR"));
+        assertEquals(1, attempts("GET", "SUCCESS"));
+    }
+
+    @Test
+    void post_isNotRetried() {
+        failuresLeft.set(1);
+
+        assertThrows(HttpServerErrorException.class, () -> client.postForObject("/api/things", "x", String.class));
+
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void uriVariables_areEncoded() {
+        String query = client.postForObject("/api/notify?text={text}", null, String.class, "Order #5 & more");
+
+        assertEquals("text=Order%20%235%20%26%20more", query);
+    }
+
+    @Test
+    void connections_areKeptAliveAcrossRequests() {
+        for (int i = 0; i < 20; i++) client.getForObject("/api/things", String.class);
+
+        assertEquals(20, requests.get());
+        assertEquals(1, clientPorts.size());
+    }
+
+    @Test
+    void openCircuit_failsFastWithoutCallingTarget() {
+        failuresLeft.set(100);
+        // Two calls of up to three attempts each; the fourth failure opens the circuit
+        assertThrows(HttpServerErrorException.class, () -> client.getForObject("/api/things", String.class));
+        assertThrows(CircuitOpenException.class, () -> client.getForObject("/api/things", String.class));
+        int calledTarget = requests.get();
+
+        assertThrows(CircuitOpenException.class, () -> client.getForObject("/api/things", String.class));
+
+        assertEquals(4, calledTarget);
+        assertEquals(calledTarget, requests.get());
+        assertEquals(1, meterRegistry.get("service.client.circuit.open").tag("target", "test-service").gauge().value());
+        assertTrue(attempts("GET", "REJECTED") >= 2);
+    }
+
+    @Test
+    void circuitBreaker_closesAfterSuccessfulTrial() {
+        AtomicLong now = new AtomicLong();
+        CircuitBreaker breaker = new CircuitBreaker(2, Duration.ofSeconds(10), now::get);
+        breaker.onFailure();
+        breaker.onFailure();
+        assertFalse(breaker.tryAcquire());
+
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertTrue(breaker.tryAcquire());
+        // Only one trial at a time
+        assertFalse(breaker.tryAcquire());
+        breaker.onSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.orderservice.service;
+
+import com.example.orderservice.dto.OrderDto;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final IdempotencyCache cache = new IdempotencyCache(Duration.ofMinutes(10), now::get);
+    private final AtomicInteger runs = new AtomicInteger();
+
+    private OrderDto order() {
+        OrderDto dto = new OrderDto();
+        dto.setId((long) runs.incrementAndGet());
+        return dto;
+    }
+
+    @Test
+    void execute_runsOncePerKeyWithinTtl() {
+        assertEquals(1L, cache.execute(1L, "a", this::order).getId());
+        assertEquals(1L, cache.execute(1L, "a", this::order).getId());
+        // Keys are scoped by user
+        assertEquals(2L, cache.execute(2L, "a", this::order).getId());
+    }
+
+    @Test
+    void execute_runsAgainAfterExpiryAndPurgesOldKeys() {
+        cache.execute(1L, "a", this::order);
+        cache.execute(1L, "b", this::order);
+        now.addAndGet(Duration.ofMinutes(10).toNanos());
+
+        assertEquals(3L, cache.execute(1L, "a", this::order).getId());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void execute_neverExpiresAnEntryStillRunning() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<OrderDto> first = CompletableFuture.supplyAsync(() -> cache.execute(1L, "a", () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                throw new IllegalStateException(ex);
+            }
+            return order();
+        }));
+        started.await();
+        now.addAndGet(Duration.ofMinutes(11).toNanos());
+
+        CompletableFuture<OrderDto> repeat = new CompletableFuture<>();
+        Thread repeater = new Thread(() -> repeat.complete(cache.execute(1L, "a", this::order)));
+        repeater.start();
+        // Parked on the first request's result rather than running its own
+        while (repeater.getState() != Thread.State.WAITING && !repeat.isDone()) Thread.sleep(1);
+        release.countDown();
+
+        assertEquals(1L, first.get(5, TimeUnit.SECONDS).getId());
+        assertEquals(1L, repeat.get(5, TimeUnit.SECONDS).getId());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void execute_forgetsFailuresSoTheyCanBeRetried() {
+        assertThrows(IllegalStateException.class, () -> cache.execute(1L, "a", () -> {
+            throw new IllegalStateException("Cart is empty");
+        }));
+
+        assertEquals(1L, cache.execute(1L, "a", this::order).getId());
+    }
+}
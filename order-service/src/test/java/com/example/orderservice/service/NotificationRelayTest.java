@@ -0,0 +1,95 @@
+package com.example.orderservice.service;
+
+import com.example.orderservice.client.NotificationClient;
+import com.example.orderservice.model.NotificationOutbox;
+import com.example.orderservice.repository.NotificationOutboxBatchRepository;
+import com.example.orderservice.repository.OutboxMessage;
+import com.example.orderservice.repository.OutboxRetry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class NotificationRelayTest {
+
+    private NotificationOutboxBatchRepository outboxRepository;
+    private NotificationClient notificationClient;
+    private NotificationRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        outboxRepository = mock(NotificationOutboxBatchRepository.class);
+        notificationClient = mock(NotificationClient.class);
+        relay = new NotificationRelay(outboxRepository, notificationClient, Duration.ofSeconds(1), 2, 3,
+                Duration.ofSeconds(5), Duration.ofMinutes(1), Duration.ofMinutes(5));
+    }
+
+    private static OutboxMessage message(long id, int attempts) {
+        return new OutboxMessage(id, id * 10, "u" + id + "@test.com", "Subject", "Text " + id, attempts);
+    }
+
+    @Test
+    void relay_deliversBatchesUntilOutboxIsDrained() {
+        when(outboxRepository.claim(2, 3, Duration.ofMinutes(5)))
+                .thenReturn(List.of(message(1, 1), message(2, 1)))
+                .thenReturn(List.of(message(3, 1)));
+
+        assertEquals(3, relay.relay());
+
+        verify(outboxRepository, times(2)).claim(anyInt(), anyInt(), any());
+        verify(notificationClient).sendOrderEmail("u3@test.com", "Subject", "Text 3");
+        verify(outboxRepository).delete(List.of(1L, 2L));
+        verify(outboxRepository).delete(List.of(3L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void relay_reschedulesFailuresWithBackoffAndDeletesTheRest() {
+        when(outboxRepository.claim(anyInt(), anyInt(), any()))
+                .thenReturn(List.of(message(1, 2), message(2, 1)))
+                .thenReturn(List.of());
+        doThrow(new RuntimeException("Connection refused"))
+                .when(notificationClient).sendOrderEmail(eq("u1@test.com"), anyString(), anyString());
+
+        assertEquals(1, relay.relay());
+
+        verify(outboxRepository).delete(List.of(2L));
+        ArgumentCaptor<Collection<OutboxRetry>> retries = ArgumentCaptor.forClass(Collection.class);
+        verify(outboxRepository).reschedule(retries.capture());
+        OutboxRetry retry = retries.getValue().iterator().next();
+        assertEquals(1L, retry.id());
+        assertEquals(Duration.ofSeconds(10), retry.delay());
+        assertEquals("Connection refused", retry.error());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void relay_truncatesLongErrorsToTheColumnLength() {
+        when(outboxRepository.claim(anyInt(), anyInt(), any()))
+                .thenReturn(List.of(message(1, 1)))
+                .thenReturn(List.of());
+        doThrow(new RuntimeException("x".repeat(5000)))
+                .when(notificationClient).sendOrderEmail(anyString(), anyString(), anyString());
+
+        relay.relay();
+
+        ArgumentCaptor<Collection<OutboxRetry>> retries = ArgumentCaptor.forClass(Collection.class);
+        verify(outboxRepository).reschedule(retries.capture());
+        assertEquals(NotificationOutbox.MAX_ERROR_LENGTH, retries.getValue().iterator().next().error().length());
+    }
+
+    @Test
+    void backoff_doublesUpToTheCap() {
+        assertEquals(Duration.ofSeconds(5), relay.backoff(1));
+        assertEquals(Duration.ofSeconds(20), relay.backoff(3));
+        assertEquals(Duration.ofMinutes(1), relay.backoff(5));
+        assertEquals(Duration.ofMinutes(1), relay.backoff(100));
+    }
+}
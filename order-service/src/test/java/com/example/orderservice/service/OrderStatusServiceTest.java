@@ -0,0 +1,145 @@
+package com.example.orderservice.service;
+
+import com.example.orderservice.dto.StatusUpdateResultDto;
+import com.example.orderservice.repository.OrderItemRepository;
+import com.example.orderservice.repository.OrderItemRow;
+import com.example.orderservice.repository.OrderStatusRepository;
+import com.example.orderservice.repository.StatusChangeRow;
+import com.example.orderservice.stats.SalesChange;
+import com.example.orderservice.stats.SalesRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OrderStatusServiceTest {
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2024, 5, 1, 10, 0);
+
+    private OrderStatusRepository orderStatusRepository;
+    private OrderItemRepository orderItemRepository;
+    private SalesRollupRepository salesRollupRepository;
+    private OrderStatusService service;
+
+    @BeforeEach
+    void setUp() {
+        orderStatusRepository = mock(OrderStatusRepository.class);
+        orderItemRepository = mock(OrderItemRepository.class);
+        salesRollupRepository = mock(SalesRollupRepository.class);
+        service = new OrderStatusService(orderStatusRepository, orderItemRepository, salesRollupRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+    }
+
+    private static StatusChangeRow moved(long id, String previous) {
+        return new StatusChangeRow(id, previous, 100, CREATED);
+    }
+
+    @Test
+    void updateStatuses_issuesOneTransitionPerTargetAndReportsRejectedIds() {
+        when(orderStatusRepository.transition(any(), any(), eq("SHIPPED"))).thenReturn(List.of(moved(1, "PAID")));
+        when(orderStatusRepository.transition(any(), any(), eq("PAID"))).thenReturn(List.of(moved(3, "NEW")));
+        when(orderStatusRepository.findStatuses(Set.of(2L, 4L))).thenReturn(Map.of(2L, "NEW"));
+        Map<String, List<Long>> changes = new LinkedHashMap<>();
+        changes.put("shipped", List.of(1L, 2L));
+        changes.put("PAID", List.of(3L, 4L));
+
+        StatusUpdateResultDto result = service.updateStatuses(changes);
+
+        assertEquals(List.of(3L), result.getUpdated().get("PAID"));
+        assertEquals(List.of(1L), result.getUpdated().get("SHIPPED"));
+        assertEquals(Map.of(2L, "NEW", 4L, "NOT_FOUND"), result.getRejected());
+        verify(orderStatusRepository).transition(Set.of(1L, 2L), List.of("PAID"), "SHIPPED");
+        verify(orderStatusRepository).transition(Set.of(3L, 4L), List.of("NEW"), "PAID");
+        verify(orderStatusRepository, times(2)).transition(any(), any(), any());
+    }
+
+    @Test
+    void updateStatuses_appliesOneRollupChangeAndLoadsItemsOnlyForCancellations() {
+        when(orderStatusRepository.transition(any(), any(), eq("SHIPPED"))).thenReturn(List.of(moved(1, "PAID")));
+        when(orderStatusRepository.transition(any(), any(), eq("CANCELLED")))
+                .thenReturn(List.of(moved(2, "NEW"), moved(3, "PAID")));
+        when(orderItemRepository.findRowsByOrderIdIn(any()))
+                .thenReturn(List.of(new OrderItemRow(2L, 7L, 1, 100), new OrderItemRow(3L, 7L, 2, 50)));
+
+        service.updateStatuses(Map.of("SHIPPED", List.of(1L), "CANCELLED", List.of(2L, 3L)));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<Long>> ids = ArgumentCaptor.forClass(Collection.class);
+        verify(orderItemRepository).findRowsByOrderIdIn(ids.capture());
+        assertEquals(List.of(2L, 3L), List.copyOf(ids.getValue()));
+        ArgumentCaptor<SalesChange> change = ArgumentCaptor.forClass(SalesChange.class);
+        verify(salesRollupRepository).apply(change.capture());
+        assertFalse(change.getValue().isEmpty());
+    }
+
+    @Test
+    void updateStatuses_rejectsUnknownStatusBeforeTouchingOrders() {
+        assertThrows(InvalidStatusException.class,
+                () -> service.updateStatuses(Map.of("PAID", List.of(1L), "LOST", List.of(2L))));
+
+        verifyNoInteractions(orderStatusRepository, salesRollupRepository);
+    }
+
+    @Test
+    void updateStatuses_rejectsIdListedUnderTwoTargetsBeforeTouchingOrders() {
+        assertThrows(InvalidStatusUpdateException.class,
+                () -> service.updateStatuses(Map.of("PAID", List.of(1L), "SHIPPED", List.of(2L, 1L))));
+        assertThrows(InvalidStatusUpdateException.class,
+                () -> service.updateStatuses(Map.of("paid", List.of(1L), "PAID", List.of(2L))));
+
+        verifyNoInteractions(orderStatusRepository, salesRollupRepository);
+    }
+
+    @Test
+    void updateStatuses_rejectsMissingIdsBeforeTouchingOrders() {
+        Map<String, List<Long>> nullList = new HashMap<>();
+        nullList.put("PAID", null);
+        List<Long> nullId = new ArrayList<>();
+        nullId.add(null);
+
+        assertThrows(InvalidStatusUpdateException.class, () -> service.updateStatuses(nullList));
+        assertThrows(InvalidStatusUpdateException.class, () -> service.updateStatuses(Map.of("PAID", nullId)));
+
+        verifyNoInteractions(orderStatusRepository, salesRollupRepository);
+    }
+
+    @Test
+    void updateStatus_movesOrderFromAllowedPredecessor() {
+        when(orderStatusRepository.transition(any(), any(), eq("PAID"))).thenReturn(List.of(moved(1, "NEW")));
+
+        service.updateStatus(1L, "PAID");
+
+        verify(orderStatusRepository).transition(Set.of(1L), List.of("NEW"), "PAID");
+        verify(orderItemRepository, never()).findRowsByOrderIdIn(any());
+    }
+
+    @Test
+    void updateStatus_throwsConflictWhenTransitionIsNotAllowed() {
+        when(orderStatusRepository.findStatuses(Set.of(1L))).thenReturn(Map.of(1L, "DELIVERED"));
+
+        StatusTransitionException exception = assertThrows(StatusTransitionException.class,
+                () -> service.updateStatus(1L, "CANCELLED"));
+        assertEquals("Order 1 cannot move from DELIVERED to CANCELLED", exception.getMessage());
+    }
+
+    @Test
+    void updateStatus_throwsWhenNotFound() {
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> service.updateStatus(1L, "PAID"));
+        assertEquals("Not found", exception.getMessage());
+    }
+}
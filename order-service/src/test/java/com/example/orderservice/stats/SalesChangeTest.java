@@ -0,0 +1,90 @@
+package com.example.orderservice.stats;
+
+import com.example.orderservice.model.Order;
+import com.example.orderservice.model.OrderItem;
+import com.example.orderservice.repository.OrderItemRow;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SalesChangeTest {
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2025, 3, 1, 12, 0);
+    private static final LocalDate DAY = CREATED.toLocalDate();
+
+    private static Order order(long id, String status) {
+        Order order = new Order();
+        order.setId(id);
+        order.setStatus(status);
+        order.setTotal(250);
+        order.setCreatedDate(CREATED);
+        for (long productId : new long[]{10, 20}) {
+            OrderItem item = new OrderItem();
+            item.setProductId(productId);
+            item.setQuantity(productId == 10 ? 2 : 1);
+            item.setPrice(productId == 10 ? 100 : 50);
+            order.getItems().add(item);
+        }
+        return order;
+    }
+
+    @Test
+    void orderAdded_countsTowardsDayStatusAndProducts() {
+        SalesChange change = new SalesChange().orderAdded(order(1, "NEW")).orderAdded(order(2, "NEW"));
+
+        assertArrayEquals(new long[]{2, 500, 6}, change.daily.get(DAY));
+        assertArrayEquals(new long[]{2, 500}, change.byStatus.get("NEW"));
+        assertArrayEquals(new long[]{4, 400}, change.byProduct.get(10L));
+        assertArrayEquals(new long[]{2, 100}, change.byProduct.get(20L));
+    }
+
+    @Test
+    void statusChanged_movesBetweenStatusesAndOnlyTouchesSalesOnCancellation() {
+        SalesChange paid = new SalesChange().statusChanged(order(1, "PAID"), "NEW", "PAID");
+
+        assertArrayEquals(new long[]{-1, -250}, paid.byStatus.get("NEW"));
+        assertArrayEquals(new long[]{1, 250}, paid.byStatus.get("PAID"));
+        assertTrue(paid.daily.isEmpty());
+        assertTrue(paid.byProduct.isEmpty());
+
+        SalesChange cancelled = new SalesChange().statusChanged(order(1, "CANCELLED"), "PAID", "CANCELLED");
+
+        assertArrayEquals(new long[]{-1, -250, -3}, cancelled.daily.get(DAY));
+        assertArrayEquals(new long[]{-2, -200}, cancelled.byProduct.get(10L));
+    }
+
+    @Test
+    void orderRemoved_undoesOrderAdded() {
+        SalesChange change = new SalesChange().orderAdded(order(1, "NEW")).orderRemoved(order(1, "NEW"));
+
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        assertEquals(0, new SalesRollupRepository(jdbcTemplate, "orders").apply(change));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void apply_issuesOneStatementPerTableForAnyNumberOfOrders() {
+        SalesChange change = new SalesChange();
+        for (long id = 1; id <= 500; id++) {
+            Order order = order(id, "NEW");
+            order.setCreatedDate(CREATED.minusDays(id % 30));
+            change.orderAdded(order);
+        }
+        change.statusChanged(CREATED, 250, List.of(new OrderItemRow(1L, 10L, 2, 100)), "NEW", "CANCELLED");
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+        assertEquals(3, new SalesRollupRepository(jdbcTemplate, "orders").apply(change));
+
+        verify(jdbcTemplate, times(3)).update(anyString(), any(PreparedStatementSetter.class));
+        assertEquals(30, change.daily.size());
+        assertArrayEquals(new long[]{499, 499 * 250L}, change.byStatus.get("NEW"));
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.orderservice.transfer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OrderExportServiceTest {
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2025, 3, 1, 12, 0);
+
+    private JdbcTemplate jdbcTemplate;
+    private PreparedStatement statement;
+    private OrderExportService exportService;
+    // Orders in the stand-in table, each with itemsPerOrder items; order 2 has none
+    private long orders;
+    private int itemsPerOrder;
+    private long flushes;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        statement = mock(PreparedStatement.class);
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString(), eq(ResultSet.TYPE_FORWARD_ONLY), eq(ResultSet.CONCUR_READ_ONLY)))
+                .thenReturn(statement);
+        exportService = new OrderExportService(jdbcTemplate, mock(PlatformTransactionManager.class),
+                JsonMapper.builder().build(), 1000, "orders");
+        // Feeds the rows one by one, as a cursor would
+        doAnswer(inv -> {
+            PreparedStatementCreator creator = inv.getArgument(0);
+            creator.createPreparedStatement(connection);
+            RowCallbackHandler handler = inv.getArgument(1);
+            // Stub-only, so a long run doesn't record every call
+            ResultSet rs = mock(ResultSet.class, withSettings().stubOnly());
+            long[] current = new long[2];
+            when(rs.getLong("id")).thenAnswer(i -> current[0]);
+            when(rs.getLong("user_id")).thenAnswer(i -> current[0] % 10);
+            when(rs.getString("status")).thenReturn("NEW, paid");
+            when(rs.getInt("total")).thenAnswer(i -> (int) current[0] * 100);
+            when(rs.getTimestamp("created_date")).thenReturn(Timestamp.valueOf(CREATED));
+            when(rs.getObject("product_id", Long.class)).thenAnswer(i -> current[1] == 0 ? null : current[1]);
+            when(rs.getObject("quantity", Integer.class)).thenAnswer(i -> current[1] == 0 ? null : 2);
+            when(rs.getObject("price", Integer.class)).thenAnswer(i -> current[1] == 0 ? null : 50);
+            for (long id = 1; id <= orders; id++) {
+                current[0] = id;
+                if (id == 2) {
+                    current[1] = 0;
+                    handler.processRow(rs);
+                    continue;
+                }
+                for (int item = 1; item <= itemsPerOrder; item++) {
+                    current[1] = 100 + item;
+                    handler.processRow(rs);
+                }
+            }
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    void export_usesForwardOnlyCursorWithFetchSizeAndInclusiveRange() throws Exception {
+        orders = 1;
+        itemsPerOrder = 1;
+
+        exportService.exportCsv(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 12, 31), new ByteArrayOutputStream());
+
+        verify(statement).setFetchSize(1000);
+        verify(statement).setTimestamp(1, Timestamp.valueOf(LocalDateTime.of(2025, 1, 1, 0, 0)));
+        verify(statement).setTimestamp(2, Timestamp.valueOf(LocalDateTime.of(2026, 1, 1, 0, 0)));
+    }
+
+    @Test
+    void exportNdjson_writesOneLinePerOrderWithItsItems() throws Exception {
+        orders = 3;
+        itemsPerOrder = 2;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long exported = exportService.exportNdjson(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 1), out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, exported);
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].contains("\"items\":[{\"productId\":101,\"quantity\":2,\"price\":50},{\"productId\":102"));
+        assertTrue(lines[1].contains("\"id\":2") && lines[1].contains("\"items\":[]"));
+        assertTrue(lines[2].contains("\"createdDate\":\"2025-03-01T12:00:00\""));
+    }
+
+    @Test
+    void exportCsv_writesOneLinePerItemWithHeader() throws Exception {
+        orders = 2;
+        itemsPerOrder = 1;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long exported = exportService.exportCsv(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 1), out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertEquals(2, exported);
+        assertEquals(String.join(",", OrderExportService.CSV_HEADER), lines[0]);
+        assertEquals("1,1,\"NEW, paid\",2025-03-01T12:00,100,101,2,50,100", lines[1]);
+        assertEquals("2,2,\"NEW, paid\",2025-03-01T12:00,200,,,,", lines[2]);
+    }
+
+    @Test
+    void exportNdjson_streams20kOrdersFlushingPerFetch() throws Exception {
+        orders = 20_000;
+        itemsPerOrder = 3;
+        CountingStream out = new CountingStream();
+
+        long exported = exportService.exportNdjson(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 12, 31), out);
+
+        assertTrue(out.bytes > 0);
+        assertEquals(20_000, exported);
+        assertTrue(flushes >= 59);
+    }
+
+    private class CountingStream extends OutputStream {
+        long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+    }
+}
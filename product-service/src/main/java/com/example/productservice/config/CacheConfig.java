@@ -0,0 +1,25 @@
+package com.example.productservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+// Caching runs ahead of the transaction interceptor so cache hits never open a transaction
+@Configuration
+@EnableCaching(order = Ordered.HIGHEST_PRECEDENCE)
+public class CacheConfig {
+    public static final String PRODUCTS = "products";
+    public static final String CATEGORIES = "categories";
+
+    @Bean
+    public CacheManager cacheManager(@Value("${product.cache.spec:maximumSize=10000,expireAfterWrite=10m,recordStats}") String spec) {
+        // Caches are declared up front so actuator binds their hit/miss metrics at startup
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(PRODUCTS, CATEGORIES);
+        cacheManager.setCacheSpecification(spec);
+        return cacheManager;
+    }
+}
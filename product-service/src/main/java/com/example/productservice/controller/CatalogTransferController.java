@@ -0,0 +1,49 @@
+package com.example.productservice.controller;
+
+import com.example.productservice.dto.ImportResultDto;
+import com.example.productservice.transfer.CatalogExportService;
+import com.example.productservice.transfer.CatalogImportService;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Bulk catalog load and dump. The request and response bodies are streamed, never buffered whole.
+ */
+@RestController
+@RequestMapping("/api/products")
+@RequiredArgsConstructor
+public class CatalogTransferController {
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String CSV = "text/csv";
+
+    private final CatalogImportService importService;
+    private final CatalogExportService exportService;
+
+    @PostMapping(value = "/import", consumes = NDJSON)
+    public ResponseEntity<ImportResultDto> importNdjson(InputStream body) throws IOException {
+        return ResponseEntity.ok(importService.importNdjson(body));
+    }
+
+    @PostMapping(value = "/import", consumes = CSV)
+    public ResponseEntity<ImportResultDto> importCsv(InputStream body) throws IOException {
+        return ResponseEntity.ok(importService.importCsv(body));
+    }
+
+    @GetMapping("/export")
+    public void export(@RequestParam(defaultValue = "ndjson") String format, HttpServletResponse response) throws IOException {
+        boolean csv = format.equalsIgnoreCase("csv");
+        if (!csv && !format.equalsIgnoreCase("ndjson"))
+            throw new RuntimeException("Unsupported export format: " + format);
+        response.setContentType((csv ? CSV : NDJSON) + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"products." + (csv ? "csv" : "ndjson") + "\"");
+        if (csv) exportService.exportCsv(response.getOutputStream());
+        else exportService.exportNdjson(response.getOutputStream());
+    }
+}
@@ -1,27 +1,82 @@
 package com.example.productservice.controller;
 
+import com.example.productservice.dto.FacetsDto;
+import com.example.productservice.dto.PageDto;
 import com.example.productservice.dto.ProductDto;
+import com.example.productservice.dto.ProductSummaryDto;
+import com.example.productservice.dto.SuggestionDto;
+import com.example.productservice.model.Image;
 import com.example.productservice.service.ProductService;
+import com.example.productservice.storage.ImageVariant;
+import com.example.productservice.storage.ImageVariantUnavailableException;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.nio.channels.Channels;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/products")
 @RequiredArgsConstructor
 public class ProductController {
 
+    private static final CacheControl IMAGE_CACHE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+
     private final ProductService productService;
 
     @GetMapping
-    public ResponseEntity<List<ProductDto>> getProducts(
+    public ResponseEntity<PageDto<ProductDto>> getProducts(
+            @RequestParam(required = false) String title,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) Integer maxPrice,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String sort) {
+        return ResponseEntity.ok(productService.getProducts(title, categoryId, maxPrice, page, size, sort));
+    }
+
+    @GetMapping("/facets")
+    public ResponseEntity<FacetsDto> getFacets(
             @RequestParam(required = false) String title,
             @RequestParam(required = false) Long categoryId,
             @RequestParam(required = false) Integer maxPrice) {
-        return ResponseEntity.ok(productService.getProducts(title, categoryId, maxPrice));
+        return ResponseEntity.ok(productService.getFacets(title, categoryId, maxPrice));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<PageDto<ProductSummaryDto>> search(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(productService.search(q, page, size));
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SuggestionDto>> suggest(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(productService.suggest(prefix, limit));
+    }
+
+    @GetMapping("/batch")
+    public ResponseEntity<List<ProductSummaryDto>> getProductBatch(@RequestParam List<Long> ids) {
+        return ResponseEntity.ok(productService.getProductSummaries(ids));
+    }
+
+    // Same lookup for id lists too long for a query string
+    @PostMapping("/batch")
+    public ResponseEntity<List<ProductSummaryDto>> postProductBatch(@RequestBody List<Long> ids) {
+        return ResponseEntity.ok(productService.getProductSummaries(ids));
     }
 
     @GetMapping("/{id}")
@@ -29,6 +84,37 @@ public class ProductController {
         return ResponseEntity.ok(productService.getProduct(id));
     }
 
+    @GetMapping("/{id}/images/{imageId}")
+    public void getImage(@PathVariable Long id, @PathVariable Long imageId,
+                         @RequestParam(required = false) Integer size,
+                         WebRequest request, HttpServletResponse response) throws IOException {
+        Image image = productService.getImage(id, imageId);
+        Optional<ImageVariant> variant = Optional.empty();
+        CacheControl cacheControl = IMAGE_CACHE;
+        if (size != null) {
+            try {
+                variant = productService.getImageVariant(image, size);
+            } catch (ImageVariantUnavailableException ex) {
+                // Stand-in for a variant not generated yet: must not be cached under the ?size= URL
+                cacheControl = CacheControl.noCache();
+            }
+        }
+        String etag = "\"" + image.getSha256() + variant.map(v -> "-" + size).orElse("") + "\"";
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        if (request.checkNotModified(etag)) return;
+        if (variant.isPresent()) {
+            response.setContentType(variant.get().contentType());
+            response.setContentLengthLong(variant.get().size());
+            productService.transferImageVariant(variant.get(), Channels.newChannel(response.getOutputStream()));
+            return;
+        }
+        response.setContentType(image.getContentType() != null
+                ? image.getContentType()
+                : MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setContentLengthLong(image.getSize());
+        productService.transferImage(image, Channels.newChannel(response.getOutputStream()));
+    }
+
     @PostMapping
     public ResponseEntity<ProductDto> createProduct(@RequestBody ProductDto dto) {
         ProductDto product = productService.createProduct(
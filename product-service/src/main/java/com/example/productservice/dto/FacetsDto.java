@@ -0,0 +1,27 @@
+package com.example.productservice.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class FacetsDto {
+    private long totalElements;
+    private List<CategoryFacet> categories;
+    private List<PriceRangeFacet> priceRanges;
+
+    @Data
+    public static class CategoryFacet {
+        private Long categoryId;
+        private String name;
+        private int count;
+    }
+
+    @Data
+    public static class PriceRangeFacet {
+        private int from;
+        // Null for the open-ended top range
+        private Integer to;
+        private int count;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.productservice.dto;
+
+import lombok.Data;
+
+@Data
+public class ImageDto {
+    private Long id;
+    private String originalFileName;
+    private String contentType;
+    private String url;
+    private String thumbnailUrl;
+}
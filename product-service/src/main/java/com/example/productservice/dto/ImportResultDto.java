@@ -0,0 +1,14 @@
+package com.example.productservice.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ImportResultDto {
+    private int imported;
+    private int rejected;
+    // First rejected rows, as "line N: reason"
+    private List<String> errors;
+    private long elapsedMillis;
+}
@@ -0,0 +1,36 @@
+package com.example.productservice.dto;
+
+import lombok.Data;
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+import java.util.function.Function;
+
+@Data
+public class PageDto<T> {
+    private List<T> content;
+    private int page;
+    private int size;
+    private long totalElements;
+    private int totalPages;
+
+    public static <E, T> PageDto<T> of(Page<E> page, Function<E, T> mapper) {
+        PageDto<T> dto = new PageDto<>();
+        dto.setContent(page.getContent().stream().map(mapper).toList());
+        dto.setPage(page.getNumber());
+        dto.setSize(page.getSize());
+        dto.setTotalElements(page.getTotalElements());
+        dto.setTotalPages(page.getTotalPages());
+        return dto;
+    }
+
+    public static <T> PageDto<T> of(List<T> content, int page, int size, long totalElements) {
+        PageDto<T> dto = new PageDto<>();
+        dto.setContent(content);
+        dto.setPage(page);
+        dto.setSize(size);
+        dto.setTotalElements(totalElements);
+        dto.setTotalPages((int) ((totalElements + size - 1) / size));
+        return dto;
+    }
+}
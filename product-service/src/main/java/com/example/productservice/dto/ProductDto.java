@@ -12,5 +12,5 @@ public class ProductDto {
     private boolean isOnSale;
     private Long categoryId;
     private String categoryName;
-    private List<String> imagesBase64;
+    private List<ImageDto> images;
 }
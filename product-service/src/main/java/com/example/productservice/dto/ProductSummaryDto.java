@@ -0,0 +1,12 @@
+package com.example.productservice.dto;
+
+import lombok.Data;
+
+@Data
+public class ProductSummaryDto {
+    private Long id;
+    private String title;
+    private int price;
+    private boolean onSale;
+    private String thumbnailUrl;
+}
@@ -0,0 +1,9 @@
+package com.example.productservice.dto;
+
+import lombok.Data;
+
+@Data
+public class SuggestionDto {
+    private Long productId;
+    private String title;
+}
@@ -2,6 +2,7 @@ package com.example.productservice.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.ColumnDefault;
 
 @Entity
 @Table(name = "images")
@@ -11,10 +12,16 @@ public class Image {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     private String originalFileName;
+    private String contentType;
 
-    @Lob
-    private byte[] bytes;
+    // Content lives in the BlobStore under this SHA-256 key; only metadata is kept in the table
+    @Column(length = 64)
+    private String sha256;
+    // Defaulted so schema update can add the column to a legacy table that still has rows
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long size;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     private Product product;
 }
@@ -3,4 +3,9 @@ package com.example.productservice.repository;
 import com.example.productservice.model.Image;
 import org.springframework.data.jpa.repository.JpaRepository;
 
-public interface ImageRepository extends JpaRepository<Image, Long> {}
+import java.util.Optional;
+
+public interface ImageRepository extends JpaRepository<Image, Long> {
+    Optional<Image> findByIdAndProductId(Long id, Long productId);
+    boolean existsBySha256(String sha256);
+}
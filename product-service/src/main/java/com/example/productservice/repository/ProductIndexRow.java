@@ -0,0 +1,7 @@
+package com.example.productservice.repository;
+
+import java.time.LocalDateTime;
+
+public record ProductIndexRow(Long id, String title, String description, LocalDateTime createdDate,
+                              Long categoryId, int price) {
+}
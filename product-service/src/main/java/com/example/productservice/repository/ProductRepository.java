@@ -1,10 +1,26 @@
 package com.example.productservice.repository;
 
 import com.example.productservice.model.Product;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
 import java.util.List;
 
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
     List<Product> findByTitleContainingIgnoreCase(String title);
     List<Product> findByCategoryId(Long categoryId);
-}
\ No newline at end of file
+
+    @Query("select new com.example.productservice.repository.ProductSummaryRow(" +
+            "p.id, p.title, p.price, p.isOnSale, (select min(i.id) from Image i where i.product = p)) " +
+            "from Product p where p.id in :ids")
+    List<ProductSummaryRow> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select new com.example.productservice.repository.ProductIndexRow(" +
+            "p.id, p.title, p.description, p.createdDate, c.id, p.price) " +
+            "from Product p left join p.category c where p.id > :afterId order by p.id")
+    List<ProductIndexRow> findIndexRowsAfter(@Param("afterId") long afterId, Pageable pageable);
+}
@@ -0,0 +1,46 @@
+package com.example.productservice.repository;
+
+import com.example.productservice.model.Product;
+import org.springframework.data.jpa.domain.Specification;
+
+public final class ProductSpecifications {
+    private static final char LIKE_ESCAPE = '\\';
+
+    private ProductSpecifications() {
+    }
+
+    public static Specification<Product> filter(String title, Long categoryId, Integer maxPrice) {
+        Specification<Product> spec = (root, query, cb) -> cb.conjunction();
+        if (title != null && !title.isEmpty())
+            spec = spec.and(titleContains(title));
+        if (categoryId != null)
+            spec = spec.and(inCategory(categoryId));
+        if (maxPrice != null)
+            spec = spec.and(priceAtMost(maxPrice));
+        return spec;
+    }
+
+    // The search text is matched literally: LIKE wildcards typed by the user are escaped
+    public static Specification<Product> titleContains(String title) {
+        String pattern = "%" + escapeLike(title.toLowerCase()) + "%";
+        return (root, query, cb) -> cb.like(cb.lower(root.get("title")), pattern, LIKE_ESCAPE);
+    }
+
+    static String escapeLike(String text) {
+        StringBuilder escaped = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == LIKE_ESCAPE || c == '%' || c == '_') escaped.append(LIKE_ESCAPE);
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    public static Specification<Product> inCategory(Long categoryId) {
+        return (root, query, cb) -> cb.equal(root.get("category").get("id"), categoryId);
+    }
+
+    public static Specification<Product> priceAtMost(int maxPrice) {
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("price"), maxPrice);
+    }
+}
@@ -0,0 +1,4 @@
+package com.example.productservice.repository;
+
+public record ProductSummaryRow(Long id, String title, int price, boolean onSale, Long firstImageId) {
+}
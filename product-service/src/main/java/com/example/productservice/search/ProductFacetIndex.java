@@ -0,0 +1,279 @@
+package com.example.productservice.search;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Category and price-range counts for the product listing filters, answered from memory.
+ * <p>
+ * Each product has a small integer ordinal (reused after deletes); every category and every
+ * configured price range keeps a bitset of the ordinals in it. A facet query builds the filter mask
+ * once and counts each facet as the popcount of its AND with that mask, word by word and without
+ * materializing the intersection.
+ * Facets are disjunctive: category counts ignore the category filter and price counts ignore the
+ * price filter, so they show what selecting another value would return.
+ */
+@Component
+public class ProductFacetIndex {
+    private final List<PriceRange> priceRanges;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> ordinalByProduct = new HashMap<>();
+    private final Map<Long, Bits> byCategory = new HashMap<>();
+    private final Bits[] byPriceRange;
+    private final Bits live = new Bits();
+    private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+    private Long[] categories = new Long[0];
+    private int[] prices = new int[0];
+    private String[] lowerTitles = new String[0];
+    // Products put or removed since beginLoad(); null when no load is running
+    private Set<Long> changedDuringLoad;
+
+    public record PriceRange(int from, Integer to) {
+        boolean contains(int price) {
+            return price >= from && (to == null || price < to);
+        }
+    }
+
+    public record FacetCounts(int total, Map<Long, Integer> categories, List<Integer> priceRanges) {
+    }
+
+    public ProductFacetIndex(@Value("${product.facets.price-ranges:0-500,500-1000,1000-3000,3000-}") String priceRanges) {
+        this.priceRanges = parseRanges(priceRanges);
+        this.byPriceRange = new Bits[this.priceRanges.size()];
+        for (int i = 0; i < byPriceRange.length; i++) byPriceRange[i] = new Bits();
+    }
+
+    public List<PriceRange> priceRanges() {
+        return priceRanges;
+    }
+
+    public void put(Long productId, Long categoryId, int price, String title) {
+        lock.writeLock().lock();
+        try {
+            if (changedDuringLoad != null) changedDuringLoad.add(productId);
+            putLocked(productId, categoryId, price, title);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a product read by the startup load, unless it was put or removed since {@link #beginLoad()}:
+     * the live state is then newer than the row.
+     */
+    public void load(Long productId, Long categoryId, int price, String title) {
+        lock.writeLock().lock();
+        try {
+            if (changedDuringLoad != null && changedDuringLoad.contains(productId)) return;
+            putLocked(productId, categoryId, price, title);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Empties the index and starts recording the products changed while the startup load runs.
+     */
+    public void beginLoad() {
+        lock.writeLock().lock();
+        try {
+            clearLocked();
+            changedDuringLoad = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void finishLoad() {
+        lock.writeLock().lock();
+        try {
+            changedDuringLoad = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void putLocked(Long productId, Long categoryId, int price, String title) {
+        Integer ordinal = ordinalByProduct.get(productId);
+        if (ordinal != null) {
+            unlinkLocked(ordinal);
+        } else {
+            ordinal = freeOrdinals.isEmpty() ? ordinalByProduct.size() : freeOrdinals.pop();
+            ordinalByProduct.put(productId, ordinal);
+            ensureCapacity(ordinal + 1);
+        }
+        categories[ordinal] = categoryId;
+        prices[ordinal] = price;
+        lowerTitles[ordinal] = title == null ? "" : title.toLowerCase(Locale.ROOT);
+        live.set(ordinal);
+        if (categoryId != null) byCategory.computeIfAbsent(categoryId, k -> new Bits()).set(ordinal);
+        for (int i = 0; i < priceRanges.size(); i++)
+            if (priceRanges.get(i).contains(price)) byPriceRange[i].set(ordinal);
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            if (changedDuringLoad != null) changedDuringLoad.add(productId);
+            Integer ordinal = ordinalByProduct.remove(productId);
+            if (ordinal == null) return;
+            unlinkLocked(ordinal);
+            live.clear(ordinal);
+            categories[ordinal] = null;
+            lowerTitles[ordinal] = null;
+            freeOrdinals.push(ordinal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            clearLocked();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void clearLocked() {
+        ordinalByProduct.clear();
+        byCategory.clear();
+        for (int i = 0; i < byPriceRange.length; i++) byPriceRange[i] = new Bits();
+        live.words = new long[0];
+        live.count = 0;
+        freeOrdinals.clear();
+        categories = new Long[0];
+        prices = new int[0];
+        lowerTitles = new String[0];
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinalByProduct.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts for the same filter {@code getProducts} applies: case-insensitive title substring,
+     * category and maximum price, each optional. The title substring has no precomputed set and is
+     * a pass over the in-memory lower-cased titles.
+     */
+    public FacetCounts count(String title, Long categoryId, Integer maxPrice) {
+        lock.readLock().lock();
+        try {
+            long[] base = live.words.clone();
+            if (title != null && !title.isEmpty()) and(base, titleMatches(title.toLowerCase(Locale.ROOT)));
+            long[] withCategory = base.clone();
+            if (categoryId != null) {
+                Bits category = byCategory.get(categoryId);
+                and(withCategory, category == null ? new long[0] : category.words);
+            }
+            long[] withPrice = base.clone();
+            if (maxPrice != null) and(withPrice, priceAtMost(maxPrice));
+
+            Map<Long, Integer> categoryCounts = new LinkedHashMap<>();
+            for (Map.Entry<Long, Bits> entry : byCategory.entrySet()) {
+                int count = andCount(withPrice, entry.getValue().words);
+                if (count > 0) categoryCounts.put(entry.getKey(), count);
+            }
+            List<Integer> priceCounts = new ArrayList<>(byPriceRange.length);
+            for (Bits bits : byPriceRange) priceCounts.add(andCount(withCategory, bits.words));
+            return new FacetCounts(andCount(withCategory, withPrice), categoryCounts, priceCounts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long[] titleMatches(String lowerTitle) {
+        long[] words = new long[live.words.length];
+        for (int ordinal = 0; ordinal < words.length * 64 && ordinal < lowerTitles.length; ordinal++)
+            if (live.get(ordinal) && lowerTitles[ordinal].contains(lowerTitle)) words[ordinal >>> 6] |= 1L << ordinal;
+        return words;
+    }
+
+    // maxPrice is free-form, so it is a pass over the packed price array rather than a stored set;
+    // dead ordinals are masked off by the caller
+    private long[] priceAtMost(int maxPrice) {
+        long[] words = new long[live.words.length];
+        for (int ordinal = 0; ordinal < words.length * 64 && ordinal < prices.length; ordinal++)
+            if (prices[ordinal] <= maxPrice) words[ordinal >>> 6] |= 1L << ordinal;
+        return words;
+    }
+
+    private static void and(long[] target, long[] other) {
+        for (int i = 0; i < target.length; i++) target[i] &= i < other.length ? other[i] : 0;
+    }
+
+    private static int andCount(long[] a, long[] b) {
+        int count = 0;
+        for (int i = 0, n = Math.min(a.length, b.length); i < n; i++) count += Long.bitCount(a[i] & b[i]);
+        return count;
+    }
+
+    private void unlinkLocked(int ordinal) {
+        Long categoryId = categories[ordinal];
+        if (categoryId != null) {
+            Bits bits = byCategory.get(categoryId);
+            bits.clear(ordinal);
+            if (bits.count == 0) byCategory.remove(categoryId);
+        }
+        for (Bits bits : byPriceRange) bits.clear(ordinal);
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= prices.length) return;
+        int capacity = Math.max(size, prices.length * 2);
+        categories = Arrays.copyOf(categories, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        lowerTitles = Arrays.copyOf(lowerTitles, capacity);
+    }
+
+    static List<PriceRange> parseRanges(String spec) {
+        List<PriceRange> ranges = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            String range = part.trim();
+            if (range.isEmpty()) continue;
+            int dash = range.indexOf('-');
+            if (dash < 0) throw new IllegalArgumentException("Invalid price range: " + range);
+            int from = Integer.parseInt(range.substring(0, dash).trim());
+            String to = range.substring(dash + 1).trim();
+            ranges.add(new PriceRange(from, to.isEmpty() ? null : Integer.parseInt(to)));
+        }
+        return List.copyOf(ranges);
+    }
+
+    /**
+     * Growable bitset whose words the query loops read directly, so facet counts need no copies.
+     */
+    private static final class Bits {
+        long[] words = new long[0];
+        int count;
+
+        void set(int bit) {
+            int word = bit >>> 6;
+            if (word >= words.length) words = Arrays.copyOf(words, Math.max(word + 1, words.length * 2));
+            if ((words[word] & (1L << bit)) == 0) count++;
+            words[word] |= 1L << bit;
+        }
+
+        void clear(int bit) {
+            int word = bit >>> 6;
+            if (word >= words.length || (words[word] & (1L << bit)) == 0) return;
+            words[word] &= ~(1L << bit);
+            count--;
+        }
+
+        boolean get(int bit) {
+            int word = bit >>> 6;
+            return word < words.length && (words[word] & (1L << bit)) != 0;
+        }
+    }
+}
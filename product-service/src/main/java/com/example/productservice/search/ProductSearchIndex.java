@@ -0,0 +1,263 @@
+package com.example.productservice.search;
+
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over product title and description, ranked with BM25.
+ * <p>
+ * Every indexed version of a product gets a fresh ordinal; posting lists are append-only arrays of
+ * ordinals, so an update or delete only marks the old ordinal dead. Once dead ordinals outnumber
+ * live ones the whole index is compacted from the per-document term lists it keeps.
+ * <p>
+ * Query tokens are ANDed. The last token also matches as a prefix (type-as-you-search), and so do
+ * the others when they have no exact match, with a lower weight than exact hits.
+ */
+@Component
+public class ProductSearchIndex {
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int TITLE_BOOST = 2;
+    private static final double PREFIX_WEIGHT = 0.7;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, PostingList> postings = new TreeMap<>();
+    private final List<Doc> docs = new ArrayList<>();
+    private final Map<Long, Integer> ordinalByProduct = new HashMap<>();
+    private long totalLength;
+    // Products put or removed since beginLoad(); null when no load is running
+    private Set<Long> changedDuringLoad;
+
+    public void put(Long productId, String title, String description) {
+        index(productId, title, description, false);
+    }
+
+    /**
+     * Adds a product read by the startup load, unless it was put or removed since {@link #beginLoad()}:
+     * the live state is then newer than the row.
+     */
+    public void load(Long productId, String title, String description) {
+        index(productId, title, description, true);
+    }
+
+    /**
+     * Empties the index and starts recording the products changed while the startup load runs.
+     */
+    public void beginLoad() {
+        lock.writeLock().lock();
+        try {
+            clearLocked();
+            changedDuringLoad = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void finishLoad() {
+        lock.writeLock().lock();
+        try {
+            changedDuringLoad = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void index(Long productId, String title, String description, boolean loaded) {
+        Map<String, Integer> tf = new HashMap<>();
+        List<String> titleTokens = Tokenizer.tokenize(title);
+        List<String> descriptionTokens = Tokenizer.tokenize(description);
+        titleTokens.forEach(t -> tf.merge(t, TITLE_BOOST, Integer::sum));
+        descriptionTokens.forEach(t -> tf.merge(t, 1, Integer::sum));
+        int length = TITLE_BOOST * titleTokens.size() + descriptionTokens.size();
+
+        lock.writeLock().lock();
+        try {
+            if (changedDuringLoad != null) {
+                if (!loaded) changedDuringLoad.add(productId);
+                else if (changedDuringLoad.contains(productId)) return;
+            }
+            removeLocked(productId);
+            addLocked(productId, tf, length);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            if (changedDuringLoad != null) changedDuringLoad.add(productId);
+            removeLocked(productId);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            clearLocked();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void clearLocked() {
+        postings.clear();
+        docs.clear();
+        ordinalByProduct.clear();
+        totalLength = 0;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinalByProduct.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public SearchResult search(String query, int offset, int limit) {
+        List<String> tokens = Tokenizer.tokenize(query).stream().distinct().toList();
+        if (tokens.isEmpty()) return new SearchResult(0, List.of());
+
+        lock.readLock().lock();
+        try {
+            int liveDocs = ordinalByProduct.size();
+            if (liveDocs == 0) return new SearchResult(0, List.of());
+            double avgLength = (double) totalLength / liveDocs;
+            double[] scores = new double[docs.size()];
+            int[] matchedTokens = new int[docs.size()];
+
+            for (int t = 0; t < tokens.size(); t++) {
+                String token = tokens.get(t);
+                boolean last = t == tokens.size() - 1;
+                Map<String, PostingList> expansions = expand(token, last);
+                // A token counts once per document even if several expansions hit it
+                int marker = t + 1;
+                for (Map.Entry<String, PostingList> entry : expansions.entrySet()) {
+                    PostingList list = entry.getValue();
+                    double weight = entry.getKey().equals(token) ? 1.0 : PREFIX_WEIGHT;
+                    double idf = Math.log(1 + (liveDocs - list.live + 0.5) / (list.live + 0.5));
+                    for (int i = 0; i < list.size; i++) {
+                        int ordinal = list.ordinals[i];
+                        Doc doc = docs.get(ordinal);
+                        if (!doc.live || matchedTokens[ordinal] < t) continue;
+                        int tf = list.frequencies[i];
+                        double norm = K1 * (1 - B + B * doc.length / avgLength);
+                        scores[ordinal] += weight * idf * tf * (K1 + 1) / (tf + norm);
+                        matchedTokens[ordinal] = marker;
+                    }
+                }
+            }
+
+            PriorityQueue<SearchHit> top = new PriorityQueue<>(Comparator.comparingDouble(SearchHit::score)
+                    .thenComparing(SearchHit::productId, Comparator.reverseOrder()));
+            int keep = offset + limit;
+            int total = 0;
+            for (int ordinal = 0; ordinal < scores.length; ordinal++) {
+                if (matchedTokens[ordinal] != tokens.size()) continue;
+                total++;
+                if (keep == 0) continue;
+                top.offer(new SearchHit(docs.get(ordinal).productId, scores[ordinal]));
+                if (top.size() > keep) top.poll();
+            }
+            List<SearchHit> hits = new ArrayList<>(top);
+            hits.sort(Comparator.comparingDouble(SearchHit::score).reversed().thenComparing(SearchHit::productId));
+            return new SearchResult(total, hits.subList(Math.min(offset, hits.size()), hits.size()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<String, PostingList> expand(String token, boolean prefix) {
+        PostingList exact = postings.get(token);
+        if (!prefix && exact != null) return Map.of(token, exact);
+        Map<String, PostingList> expansions = new HashMap<>();
+        for (Map.Entry<String, PostingList> entry : postings.tailMap(token, true).entrySet()) {
+            if (!entry.getKey().startsWith(token) || expansions.size() == MAX_PREFIX_EXPANSIONS) break;
+            if (entry.getValue().live > 0) expansions.put(entry.getKey(), entry.getValue());
+        }
+        return expansions;
+    }
+
+    private void addLocked(Long productId, Map<String, Integer> tf, int length) {
+        int ordinal = docs.size();
+        String[] terms = tf.keySet().toArray(new String[0]);
+        int[] frequencies = new int[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            frequencies[i] = tf.get(terms[i]);
+            postings.computeIfAbsent(terms[i], k -> new PostingList()).add(ordinal, frequencies[i]);
+        }
+        docs.add(new Doc(productId, length, terms, frequencies));
+        ordinalByProduct.put(productId, ordinal);
+        totalLength += length;
+    }
+
+    private void removeLocked(Long productId) {
+        Integer ordinal = ordinalByProduct.remove(productId);
+        if (ordinal == null) return;
+        Doc doc = docs.get(ordinal);
+        doc.live = false;
+        totalLength -= doc.length;
+        for (String term : doc.terms) {
+            PostingList list = postings.get(term);
+            if (--list.live == 0) postings.remove(term);
+        }
+    }
+
+    private void compactIfNeeded() {
+        int dead = docs.size() - ordinalByProduct.size();
+        if (dead < 1024 || dead < ordinalByProduct.size()) return;
+        List<Doc> live = docs.stream().filter(d -> d.live).toList();
+        postings.clear();
+        docs.clear();
+        ordinalByProduct.clear();
+        totalLength = 0;
+        for (Doc doc : live) {
+            Map<String, Integer> tf = new HashMap<>();
+            for (int i = 0; i < doc.terms.length; i++) tf.put(doc.terms[i], doc.frequencies[i]);
+            addLocked(doc.productId, tf, doc.length);
+        }
+    }
+
+    private static final class Doc {
+        final Long productId;
+        final int length;
+        final String[] terms;
+        final int[] frequencies;
+        boolean live = true;
+
+        Doc(Long productId, int length, String[] terms, int[] frequencies) {
+            this.productId = productId;
+            this.length = length;
+            this.terms = terms;
+            this.frequencies = frequencies;
+        }
+    }
+
+    private static final class PostingList {
+        int[] ordinals = new int[4];
+        int[] frequencies = new int[4];
+        int size;
+        int live;
+
+        void add(int ordinal, int frequency) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            ordinals[size] = ordinal;
+            frequencies[size] = frequency;
+            size++;
+            live++;
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package com.example.productservice.search;
+
+public record SearchHit(Long productId, double score) {
+}
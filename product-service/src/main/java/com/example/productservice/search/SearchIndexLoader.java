@@ -0,0 +1,56 @@
+package com.example.productservice.search;
+
+import com.example.productservice.repository.ProductRepository;
+import com.example.productservice.repository.ProductIndexRow;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rebuilds the search index, title suggester and facet index from the products table on startup,
+ * walking it by id in fixed-size chunks so only one chunk of descriptions is in memory at a time.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SearchIndexLoader implements ApplicationRunner {
+    private static final int CHUNK_SIZE = 1000;
+
+    private final ProductRepository productRepository;
+    private final ProductSearchIndex searchIndex;
+    private final TitleSuggester titleSuggester;
+    private final ProductFacetIndex facetIndex;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.currentTimeMillis();
+        // The server is already taking requests; edits made during the load must survive it
+        searchIndex.beginLoad();
+        facetIndex.beginLoad();
+        titleSuggester.beginLoad();
+        List<TitleSuggester.Entry> titles = new ArrayList<>();
+        long afterId = 0;
+        List<ProductIndexRow> chunk;
+        do {
+            chunk = productRepository.findIndexRowsAfter(afterId, PageRequest.ofSize(CHUNK_SIZE));
+            for (ProductIndexRow row : chunk) {
+                searchIndex.load(row.id(), row.title(), row.description());
+                facetIndex.load(row.id(), row.categoryId(), row.price(), row.title());
+                titles.add(new TitleSuggester.Entry(row.id(), row.title(), TitleSuggester.recencyWeight(row.createdDate())));
+                afterId = row.id();
+            }
+        } while (chunk.size() == CHUNK_SIZE);
+        searchIndex.finishLoad();
+        facetIndex.finishLoad();
+        titleSuggester.finishLoad(titles);
+        log.info("Indexed {} products for search in {} ms; title suggester holds {} titles in ~{} KB",
+                searchIndex.size(), System.currentTimeMillis() - start,
+                titleSuggester.size(), titleSuggester.approximateMemoryBytes() / 1024);
+    }
+}
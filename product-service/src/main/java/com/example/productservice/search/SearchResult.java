@@ -0,0 +1,6 @@
+package com.example.productservice.search;
+
+import java.util.List;
+
+public record SearchResult(int total, List<SearchHit> hits) {
+}
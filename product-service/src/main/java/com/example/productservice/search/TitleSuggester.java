@@ -0,0 +1,396 @@
+package com.example.productservice.search;
+
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Prefix lookup over product titles for the search box.
+ * <p>
+ * Every word start of every normalized title is an entry, so "gel" finds "Blue gel pen". Entries are
+ * kept as (title, offset) int pairs sorted by the text from that offset, which makes a prefix a
+ * contiguous range found by binary search. A max-segment-tree over entry weights then yields the
+ * top-k of that range in O(k log n) without scanning it.
+ * <p>
+ * Readers work on an immutable snapshot swapped through a volatile field; writers rebuild the
+ * snapshot, merging the changed titles' entries into the sorted order in linear time.
+ */
+@Component
+public class TitleSuggester {
+    private static final int COMPACT_THRESHOLD = 1024;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private final Map<Long, Integer> slotByProduct = new HashMap<>();
+    // Products put or removed since beginLoad(); null when no load is running
+    private Set<Long> changedDuringLoad;
+
+    public record Entry(Long productId, String title, long weight) {
+    }
+
+    public record Suggestion(Long productId, String title) {
+    }
+
+    /**
+     * Newer products rank first; this service has no popularity signal to weight by.
+     */
+    public static long recencyWeight(LocalDateTime createdDate) {
+        return createdDate == null ? 0 : createdDate.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    public void put(Long productId, String title, long weight) {
+        putAll(List.of(new Entry(productId, title, weight)));
+    }
+
+    /**
+     * Adds or replaces several titles with a single linear merge, so a bulk import does not pay
+     * one full snapshot rebuild per product.
+     */
+    public synchronized void putAll(Collection<Entry> entries) {
+        Snapshot current = snapshot;
+        Map<Long, Entry> changed = new LinkedHashMap<>();
+        for (Entry entry : entries) {
+            if (entry.productId() == null) continue;
+            if (changedDuringLoad != null) changedDuringLoad.add(entry.productId());
+            String normalized = normalize(entry.title());
+            Integer oldSlot = slotByProduct.get(entry.productId());
+            // Most product edits leave the title alone; skip the rebuild for those
+            if (oldSlot != null && normalized.equals(current.titles[oldSlot])
+                    && entry.weight() == current.weights[oldSlot]
+                    && entry.title().equals(current.displayTitles[oldSlot])) continue;
+            changed.put(entry.productId(), entry);
+        }
+        if (changed.isEmpty()) return;
+
+        Set<Integer> replacedSlots = new HashSet<>();
+        List<Entry> added = new ArrayList<>();
+        for (Entry entry : changed.values()) {
+            Integer oldSlot = slotByProduct.remove(entry.productId());
+            if (oldSlot != null) replacedSlots.add(oldSlot);
+            if (normalize(entry.title()).isEmpty()) continue;
+            slotByProduct.put(entry.productId(), current.titles.length + added.size());
+            added.add(entry);
+        }
+        publish(current.withTitles(added, replacedSlots));
+    }
+
+    public synchronized void remove(Long productId) {
+        if (changedDuringLoad != null) changedDuringLoad.add(productId);
+        Integer oldSlot = slotByProduct.remove(productId);
+        if (oldSlot == null) return;
+        publish(snapshot.withTitles(List.of(), Set.of(oldSlot)));
+    }
+
+    /**
+     * Starts recording the products changed through {@link #putAll} and {@link #remove} while the
+     * startup load reads the products table, so {@link #finishLoad} does not roll them back.
+     */
+    public synchronized void beginLoad() {
+        changedDuringLoad = new HashSet<>();
+    }
+
+    /**
+     * Rebuilds the dictionary from the loaded titles, keeping the live state of products changed
+     * since {@link #beginLoad()}: their loaded rows may predate the change.
+     */
+    public synchronized void finishLoad(Collection<Entry> loaded) {
+        Set<Long> changed = changedDuringLoad == null ? Set.of() : changedDuringLoad;
+        changedDuringLoad = null;
+        Snapshot current = snapshot;
+        List<Entry> merged = new ArrayList<>(loaded.size() + changed.size());
+        for (Entry entry : loaded) {
+            if (!changed.contains(entry.productId())) merged.add(entry);
+        }
+        for (Long productId : changed) {
+            Integer slot = slotByProduct.get(productId);
+            if (slot != null) merged.add(new Entry(productId, current.displayTitles[slot], current.weights[slot]));
+        }
+        replaceAll(merged);
+    }
+
+    /**
+     * Replaces the whole dictionary in one O(n log n) build.
+     */
+    public synchronized void replaceAll(Collection<Entry> entries) {
+        List<Entry> live = entries.stream().filter(e -> !normalize(e.title()).isEmpty()).toList();
+        slotByProduct.clear();
+        for (int i = 0; i < live.size(); i++) slotByProduct.put(live.get(i).productId(), i);
+        snapshot = Snapshot.build(live);
+    }
+
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String normalized = normalize(prefix);
+        if (normalized.isEmpty() || limit <= 0) return List.of();
+        return snapshot.suggest(normalized, limit);
+    }
+
+    public synchronized int size() {
+        return slotByProduct.size();
+    }
+
+    /**
+     * Rough heap footprint of the current snapshot (arrays plus title strings).
+     */
+    public long approximateMemoryBytes() {
+        return snapshot.approximateMemoryBytes();
+    }
+
+    private void publish(Snapshot next) {
+        int dead = next.titles.length - slotByProduct.size();
+        if (dead >= COMPACT_THRESHOLD && dead >= slotByProduct.size()) {
+            List<Entry> live = new ArrayList<>();
+            for (int slot = 0; slot < next.titles.length; slot++) {
+                if (next.titles[slot] != null)
+                    live.add(new Entry(next.productIds[slot], next.displayTitles[slot], next.weights[slot]));
+            }
+            replaceAll(live);
+            return;
+        }
+        snapshot = next;
+    }
+
+    static String normalize(String text) {
+        return String.join(" ", Tokenizer.tokenize(text));
+    }
+
+    private static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(new String[0], new String[0], new long[0], new long[0],
+                new int[0], new int[0]);
+
+        // Per title slot; a null title marks a removed or replaced product
+        final String[] titles;
+        final String[] displayTitles;
+        final long[] productIds;
+        final long[] weights;
+        // Per entry, sorted by titles[entryTitle].substring(entryOffset)
+        final int[] entryTitle;
+        final int[] entryOffset;
+        // Segment tree over entries holding the index of the heaviest entry in each node's range
+        final int[] tree;
+
+        Snapshot(String[] titles, String[] displayTitles, long[] productIds, long[] weights,
+                 int[] entryTitle, int[] entryOffset) {
+            this.titles = titles;
+            this.displayTitles = displayTitles;
+            this.productIds = productIds;
+            this.weights = weights;
+            this.entryTitle = entryTitle;
+            this.entryOffset = entryOffset;
+            // Bottom-up segment tree with the entries as leaves at [n, 2n)
+            int n = entryTitle.length;
+            this.tree = new int[2 * n];
+            long[] nodeWeight = new long[2 * n];
+            for (int i = 0; i < n; i++) {
+                tree[n + i] = i;
+                nodeWeight[n + i] = weights[entryTitle[i]];
+            }
+            for (int node = n - 1; node >= 1; node--) {
+                int left = 2 * node;
+                int heavier = nodeWeight[left + 1] > nodeWeight[left] ? left + 1 : left;
+                tree[node] = tree[heavier];
+                nodeWeight[node] = nodeWeight[heavier];
+            }
+        }
+
+        static Snapshot build(List<Entry> entries) {
+            int size = entries.size();
+            String[] titles = new String[size];
+            String[] displayTitles = new String[size];
+            long[] productIds = new long[size];
+            long[] weights = new long[size];
+            List<int[]> refs = new ArrayList<>();
+            for (int slot = 0; slot < size; slot++) {
+                Entry entry = entries.get(slot);
+                titles[slot] = normalize(entry.title());
+                displayTitles[slot] = entry.title();
+                productIds[slot] = entry.productId();
+                weights[slot] = entry.weight();
+                for (int offset : wordStarts(titles[slot])) refs.add(new int[]{slot, offset});
+            }
+            refs.sort((a, b) -> compareKeys(titles[a[0]], a[1], titles[b[0]], b[1]));
+            int[] entryTitle = new int[refs.size()];
+            int[] entryOffset = new int[refs.size()];
+            for (int i = 0; i < refs.size(); i++) {
+                entryTitle[i] = refs.get(i)[0];
+                entryOffset[i] = refs.get(i)[1];
+            }
+            return new Snapshot(titles, displayTitles, productIds, weights, entryTitle, entryOffset);
+        }
+
+        Snapshot withTitles(List<Entry> addedTitles, Set<Integer> replacedSlots) {
+            int firstSlot = titles.length;
+            int slots = firstSlot + addedTitles.size();
+            String[] newTitles = Arrays.copyOf(titles, slots);
+            String[] newDisplay = Arrays.copyOf(displayTitles, slots);
+            long[] newIds = Arrays.copyOf(productIds, slots);
+            long[] newWeights = Arrays.copyOf(weights, slots);
+            boolean[] dropped = new boolean[firstSlot];
+            for (int slot : replacedSlots) {
+                dropped[slot] = true;
+                newTitles[slot] = null;
+                newDisplay[slot] = null;
+            }
+            List<int[]> added = new ArrayList<>();
+            for (int i = 0; i < addedTitles.size(); i++) {
+                int slot = firstSlot + i;
+                Entry entry = addedTitles.get(i);
+                newTitles[slot] = normalize(entry.title());
+                newDisplay[slot] = entry.title();
+                newIds[slot] = entry.productId();
+                newWeights[slot] = entry.weight();
+                for (int offset : wordStarts(newTitles[slot])) added.add(new int[]{slot, offset});
+            }
+            added.sort((a, b) -> compareKeys(newTitles[a[0]], a[1], newTitles[b[0]], b[1]));
+
+            int kept = 0;
+            for (int t : entryTitle) if (!dropped[t]) kept++;
+            int[] mergedTitle = new int[kept + added.size()];
+            int[] mergedOffset = new int[kept + added.size()];
+
+            // Binary-search each insertion point and bulk-copy the runs in between
+            int out = 0;
+            int from = 0;
+            for (int[] entry : added) {
+                int to = insertionPoint(newTitles[entry[0]], entry[1], from);
+                out = copyEntries(from, to, replacedSlots.isEmpty() ? null : dropped, mergedTitle, mergedOffset, out);
+                mergedTitle[out] = entry[0];
+                mergedOffset[out++] = entry[1];
+                from = to;
+            }
+            copyEntries(from, entryTitle.length, replacedSlots.isEmpty() ? null : dropped, mergedTitle, mergedOffset, out);
+            return new Snapshot(newTitles, newDisplay, newIds, newWeights, mergedTitle, mergedOffset);
+        }
+
+        private int insertionPoint(String title, int offset, int from) {
+            int lo = from;
+            int hi = entryTitle.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (compareKeys(titles[entryTitle[mid]], entryOffset[mid], title, offset) <= 0) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        private int copyEntries(int from, int to, boolean[] dropped, int[] targetTitle, int[] targetOffset, int out) {
+            if (dropped == null) {
+                System.arraycopy(entryTitle, from, targetTitle, out, to - from);
+                System.arraycopy(entryOffset, from, targetOffset, out, to - from);
+                return out + to - from;
+            }
+            for (int i = from; i < to; i++) {
+                if (dropped[entryTitle[i]]) continue;
+                targetTitle[out] = entryTitle[i];
+                targetOffset[out++] = entryOffset[i];
+            }
+            return out;
+        }
+
+        List<Suggestion> suggest(String prefix, int limit) {
+            int from = lowerBound(prefix);
+            int to = upperBound(prefix, from);
+            if (from >= to) return List.of();
+
+            // Best-first walk: each queued range is represented by its heaviest entry
+            PriorityQueue<int[]> ranges = new PriorityQueue<>(
+                    (a, b) -> Long.compare(weights[entryTitle[b[2]]], weights[entryTitle[a[2]]]));
+            ranges.add(new int[]{from, to, argMax(from, to)});
+            Set<Integer> seenSlots = new HashSet<>();
+            List<Suggestion> result = new ArrayList<>(limit);
+            while (!ranges.isEmpty() && result.size() < limit) {
+                int[] range = ranges.poll();
+                int best = range[2];
+                int slot = entryTitle[best];
+                if (seenSlots.add(slot)) result.add(new Suggestion(productIds[slot], displayTitles[slot]));
+                if (range[0] < best) ranges.add(new int[]{range[0], best, argMax(range[0], best)});
+                if (best + 1 < range[1]) ranges.add(new int[]{best + 1, range[1], argMax(best + 1, range[1])});
+            }
+            return result;
+        }
+
+        long approximateMemoryBytes() {
+            long bytes = titles.length * (4L + 4 + 8 + 8) + entryTitle.length * (4L + 4 + 8);
+            for (int slot = 0; slot < titles.length; slot++) {
+                if (titles[slot] != null) bytes += stringBytes(titles[slot]) + stringBytes(displayTitles[slot]);
+            }
+            return bytes;
+        }
+
+        // Object header, hash and array header, plus one byte per char for Latin-1 strings, two otherwise
+        private static long stringBytes(String s) {
+            boolean latin1 = s.chars().allMatch(c -> c < 256);
+            return 40 + (long) s.length() * (latin1 ? 1 : 2);
+        }
+
+        private int argMax(int from, int to) {
+            int best = -1;
+            int n = entryTitle.length;
+            for (int lo = from + n, hi = to + n; lo < hi; lo >>= 1, hi >>= 1) {
+                if ((lo & 1) == 1) best = heavier(best, tree[lo++]);
+                if ((hi & 1) == 1) best = heavier(best, tree[--hi]);
+            }
+            return best;
+        }
+
+        private int heavier(int a, int b) {
+            if (a < 0) return b;
+            if (b < 0) return a;
+            return weights[entryTitle[b]] > weights[entryTitle[a]] ? b : a;
+        }
+
+        private int lowerBound(String prefix) {
+            int lo = 0;
+            int hi = entryTitle.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (comparePrefix(mid, prefix) < 0) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        private int upperBound(String prefix, int from) {
+            int lo = from;
+            int hi = entryTitle.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (comparePrefix(mid, prefix) <= 0) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        // Compares the entry's key truncated to the prefix length, so every key starting with it is 0
+        private int comparePrefix(int entry, String prefix) {
+            String title = titles[entryTitle[entry]];
+            int offset = entryOffset[entry];
+            int length = Math.min(title.length() - offset, prefix.length());
+            for (int i = 0; i < length; i++) {
+                int diff = title.charAt(offset + i) - prefix.charAt(i);
+                if (diff != 0) return diff;
+            }
+            return length < prefix.length() ? -1 : 0;
+        }
+
+        private static int compareKeys(String a, int offsetA, String b, int offsetB) {
+            int lengthA = a.length() - offsetA;
+            int lengthB = b.length() - offsetB;
+            int length = Math.min(lengthA, lengthB);
+            for (int i = 0; i < length; i++) {
+                int diff = a.charAt(offsetA + i) - b.charAt(offsetB + i);
+                if (diff != 0) return diff;
+            }
+            return lengthA - lengthB;
+        }
+
+        private static int[] wordStarts(String normalized) {
+            int count = 1;
+            for (int i = 0; i < normalized.length(); i++) if (normalized.charAt(i) == ' ') count++;
+            int[] starts = new int[count];
+            int out = 1;
+            for (int i = 0; i < normalized.length(); i++) if (normalized.charAt(i) == ' ') starts[out++] = i + 1;
+            return starts;
+        }
+    }
+}
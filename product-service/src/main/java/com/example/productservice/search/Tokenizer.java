@@ -0,0 +1,30 @@
+package com.example.productservice.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public final class Tokenizer {
+
+    private Tokenizer() {
+    }
+
+    /**
+     * Lower-cased runs of letters and digits in any script; everything else separates tokens.
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) return tokens;
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
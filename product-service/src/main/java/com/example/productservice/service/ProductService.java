@@ -1,48 +1,174 @@
 package com.example.productservice.service;
 
+import com.example.productservice.config.CacheConfig;
 import com.example.productservice.dto.CategoryDto;
+import com.example.productservice.dto.FacetsDto;
+import com.example.productservice.dto.ImageDto;
+import com.example.productservice.dto.PageDto;
 import com.example.productservice.dto.ProductDto;
+import com.example.productservice.dto.ProductSummaryDto;
+import com.example.productservice.dto.SuggestionDto;
 import com.example.productservice.model.Category;
 import com.example.productservice.model.Image;
 import com.example.productservice.model.Product;
 import com.example.productservice.repository.CategoryRepository;
+import com.example.productservice.repository.ImageRepository;
 import com.example.productservice.repository.ProductRepository;
+import com.example.productservice.repository.ProductSpecifications;
+import com.example.productservice.repository.ProductSummaryRow;
+import com.example.productservice.search.ProductFacetIndex;
+import com.example.productservice.search.ProductSearchIndex;
+import com.example.productservice.search.SearchHit;
+import com.example.productservice.search.SearchResult;
+import com.example.productservice.search.TitleSuggester;
+import com.example.productservice.storage.BlobRef;
+import com.example.productservice.storage.BlobStore;
+import com.example.productservice.storage.BlobTooLargeException;
+import com.example.productservice.storage.ImageVariant;
+import com.example.productservice.storage.ImageVariantService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 
-import java.util.Base64;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class ProductService {
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
+    private final ImageRepository imageRepository;
+    private final BlobStore blobStore;
+    private final ImageVariantService imageVariantService;
+    private final ProductSearchIndex searchIndex;
+    private final TitleSuggester titleSuggester;
+    private final ProductFacetIndex facetIndex;
 
-    public List<ProductDto> getProducts(String title, Long categoryId, Integer maxPrice) {
-        List<Product> products = productRepository.findAll();
-        if (title != null && !title.isEmpty())
-            products = products.stream()
-                    .filter(p -> p.getTitle().toLowerCase().contains(title.toLowerCase()))
-                    .collect(Collectors.toList());
-        if (categoryId != null)
-            products = products.stream()
-                    .filter(p -> p.getCategory() != null && p.getCategory().getId().equals(categoryId))
-                    .collect(Collectors.toList());
-        if (maxPrice != null)
-            products = products.stream()
-                    .filter(p -> p.getPrice() <= maxPrice)
-                    .collect(Collectors.toList());
-        return products.stream().map(this::toDto).collect(Collectors.toList());
+    private static final Set<String> SORTABLE_FIELDS = Set.of("id", "title", "price", "createdDate");
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_BATCH_SIZE = 500;
+    private static final int MAX_SUGGESTIONS = 20;
+
+    @Transactional(readOnly = true)
+    public PageDto<ProductDto> getProducts(String title, Long categoryId, Integer maxPrice, int page, int size, String sort) {
+        Pageable pageable = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE), parseSort(sort));
+        Page<Product> products = productRepository.findAll(ProductSpecifications.filter(title, categoryId, maxPrice), pageable);
+        return PageDto.of(products, this::toDto);
+    }
+
+    public FacetsDto getFacets(String title, Long categoryId, Integer maxPrice) {
+        ProductFacetIndex.FacetCounts counts = facetIndex.count(title, categoryId, maxPrice);
+        Map<Long, String> names = categoryRepository.findAllById(counts.categories().keySet()).stream()
+                .collect(Collectors.toMap(Category::getId, Category::getName));
+        FacetsDto dto = new FacetsDto();
+        dto.setTotalElements(counts.total());
+        dto.setCategories(counts.categories().entrySet().stream()
+                .map(e -> {
+                    FacetsDto.CategoryFacet facet = new FacetsDto.CategoryFacet();
+                    facet.setCategoryId(e.getKey());
+                    facet.setName(names.get(e.getKey()));
+                    facet.setCount(e.getValue());
+                    return facet;
+                })
+                .sorted(Comparator.comparing(FacetsDto.CategoryFacet::getCount).reversed()
+                        .thenComparing(FacetsDto.CategoryFacet::getCategoryId))
+                .collect(Collectors.toList()));
+        List<ProductFacetIndex.PriceRange> ranges = facetIndex.priceRanges();
+        List<FacetsDto.PriceRangeFacet> priceFacets = new ArrayList<>();
+        for (int i = 0; i < ranges.size(); i++) {
+            FacetsDto.PriceRangeFacet facet = new FacetsDto.PriceRangeFacet();
+            facet.setFrom(ranges.get(i).from());
+            facet.setTo(ranges.get(i).to());
+            facet.setCount(counts.priceRanges().get(i));
+            priceFacets.add(facet);
+        }
+        dto.setPriceRanges(priceFacets);
+        return dto;
+    }
+
+    private Sort parseSort(String sort) {
+        if (sort == null || sort.isBlank()) return Sort.by("id");
+        String[] parts = sort.split(",");
+        String property = parts[0].trim();
+        if (!SORTABLE_FIELDS.contains(property))
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported sort field: " + property);
+        Sort.Direction direction = parts.length > 1 && parts[1].trim().equalsIgnoreCase("desc")
+                ? Sort.Direction.DESC : Sort.Direction.ASC;
+        return Sort.by(direction, property).and(Sort.by("id"));
     }
 
+    @Cacheable(cacheNames = CacheConfig.PRODUCTS, key = "#id")
+    @Transactional(readOnly = true)
     public ProductDto getProduct(Long id) {
         return productRepository.findById(id).map(this::toDto)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
     }
 
+    public PageDto<ProductSummaryDto> search(String query, int page, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        int pageNumber = Math.max(page, 0);
+        SearchResult result = searchIndex.search(query, pageNumber * pageSize, pageSize);
+        List<Long> ids = result.hits().stream().map(SearchHit::productId).toList();
+        return PageDto.of(getProductSummaries(ids), pageNumber, pageSize, result.total());
+    }
+
+    public List<SuggestionDto> suggest(String prefix, int limit) {
+        return titleSuggester.suggest(prefix, Math.min(limit, MAX_SUGGESTIONS)).stream()
+                .map(s -> {
+                    SuggestionDto dto = new SuggestionDto();
+                    dto.setProductId(s.productId());
+                    dto.setTitle(s.title());
+                    return dto;
+                })
+                .collect(Collectors.toList());
+    }
+
+    public List<ProductSummaryDto> getProductSummaries(List<Long> ids) {
+        Set<Long> distinctIds = new LinkedHashSet<>(ids);
+        if (distinctIds.size() > MAX_BATCH_SIZE)
+            throw new RuntimeException("Too many ids, at most " + MAX_BATCH_SIZE + " per request");
+        if (distinctIds.isEmpty()) return List.of();
+        Map<Long, ProductSummaryRow> rows = productRepository.findSummariesByIdIn(distinctIds).stream()
+                .collect(Collectors.toMap(ProductSummaryRow::id, Function.identity()));
+        // Keep the caller's order; unknown ids are skipped
+        return distinctIds.stream()
+                .map(rows::get)
+                .filter(Objects::nonNull)
+                .map(this::toSummaryDto)
+                .collect(Collectors.toList());
+    }
+
+    public Image getImage(Long productId, Long imageId) {
+        return imageRepository.findByIdAndProductId(imageId, productId)
+                .orElseThrow(() -> new RuntimeException("Image not found"));
+    }
+
     public ProductDto createProduct(String title, String description, int price, Long categoryId, MultipartFile[] files) {
         Product product = new Product();
         product.setTitle(title);
@@ -55,24 +181,16 @@ public class ProductService {
             product.setCategory(category);
         }
         productRepository.save(product);
-        if (files != null) {
-            for (MultipartFile file : files) {
-                if (file.isEmpty()) continue;
-                Image img = new Image();
-                img.setProduct(product);
-                img.setOriginalFileName(file.getOriginalFilename());
-                try {
-                    img.setBytes(file.getBytes());
-                } catch (Exception ex) {
-                    throw new RuntimeException("File error", ex);
-                }
-                product.getImages().add(img);
-            }
-        }
+        attachImages(product, files);
         productRepository.save(product);
+        searchIndex.put(product.getId(), product.getTitle(), product.getDescription());
+        titleSuggester.put(product.getId(), product.getTitle(), TitleSuggester.recencyWeight(product.getCreatedDate()));
+        facetIndex.put(product.getId(), product.getCategory() == null ? null : product.getCategory().getId(),
+                product.getPrice(), product.getTitle());
         return toDto(product);
     }
 
+    @CachePut(cacheNames = CacheConfig.PRODUCTS, key = "#id")
     public ProductDto updateProduct(Long id, String title, String description, Integer price, Long categoryId, Boolean isOnSale, MultipartFile[] files) {
         Product product = productRepository.findById(id).orElseThrow(() -> new RuntimeException("Not found"));
         if (title != null) product.setTitle(title);
@@ -83,32 +201,98 @@ public class ProductService {
             product.setCategory(cat);
         }
         if (isOnSale != null) product.setOnSale(isOnSale);
-        if (files != null) {
-            for (MultipartFile file : files) {
-                if (file.isEmpty()) continue;
-                Image img = new Image();
-                img.setProduct(product);
-                img.setOriginalFileName(file.getOriginalFilename());
-                try {
-                    img.setBytes(file.getBytes());
-                } catch (Exception ex) {
-                    throw new RuntimeException("File error", ex);
-                }
-                product.getImages().add(img);
-            }
-        }
+        attachImages(product, files);
         productRepository.save(product);
+        searchIndex.put(product.getId(), product.getTitle(), product.getDescription());
+        titleSuggester.put(product.getId(), product.getTitle(), TitleSuggester.recencyWeight(product.getCreatedDate()));
+        facetIndex.put(product.getId(), product.getCategory() == null ? null : product.getCategory().getId(),
+                product.getPrice(), product.getTitle());
         return toDto(product);
     }
 
+    public void transferImage(Image image, WritableByteChannel target) {
+        try {
+            blobStore.transferTo(image.getSha256(), target);
+        } catch (IOException ex) {
+            throw new RuntimeException("Image read error", ex);
+        }
+    }
+
+    public Optional<ImageVariant> getImageVariant(Image image, int width) {
+        return imageVariantService.variant(image.getSha256(), image.getContentType(), width);
+    }
+
+    public void transferImageVariant(ImageVariant variant, WritableByteChannel target) {
+        imageVariantService.transferTo(variant, target);
+    }
+
+    private void attachImages(Product product, MultipartFile[] files) {
+        if (files == null) return;
+        for (MultipartFile file : files) {
+            if (file.isEmpty()) continue;
+            Image img = new Image();
+            img.setProduct(product);
+            img.setOriginalFileName(file.getOriginalFilename());
+            img.setContentType(file.getContentType());
+            try (InputStream in = file.getInputStream()) {
+                BlobRef blob = blobStore.put(in);
+                img.setSha256(blob.key());
+                img.setSize(blob.size());
+                imageVariantService.generateAsync(blob.key(), img.getContentType());
+            } catch (BlobTooLargeException ex) {
+                throw new RuntimeException("File too large: " + file.getOriginalFilename(), ex);
+            } catch (Exception ex) {
+                throw new RuntimeException("File error", ex);
+            }
+            product.getImages().add(img);
+        }
+    }
+
+    @CacheEvict(cacheNames = CacheConfig.PRODUCTS, key = "#id")
+    @Transactional
     public void deleteProduct(Long id) {
+        List<String> blobKeys = productRepository.findById(id)
+                .map(p -> p.getImages().stream().map(Image::getSha256).filter(Objects::nonNull).distinct().toList())
+                .orElse(List.of());
         productRepository.deleteById(id);
+        productRepository.flush();
+        searchIndex.remove(id);
+        titleSuggester.remove(id);
+        facetIndex.remove(id);
+        // Blobs are content-addressed and may be shared with other products' images, including ones
+        // uploaded while this transaction was open, so references are checked once it has committed
+        if (blobKeys.isEmpty()) return;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    deleteUnreferencedBlobs(blobKeys);
+                }
+            });
+        } else {
+            deleteUnreferencedBlobs(blobKeys);
+        }
     }
 
+    private void deleteUnreferencedBlobs(List<String> keys) {
+        for (String key : keys) {
+            if (imageRepository.existsBySha256(key)) continue;
+            try {
+                blobStore.delete(key);
+                imageVariantService.delete(key);
+            } catch (IOException | RuntimeException ex) {
+                // The product is already gone; a leftover blob only costs disk space
+                log.warn("Failed to delete image blob {}", key, ex);
+            }
+        }
+    }
+
+    @Cacheable(CacheConfig.CATEGORIES)
     public List<CategoryDto> getCategories() {
         return categoryRepository.findAll().stream().map(this::toCategoryDto).collect(Collectors.toList());
     }
 
+    @CacheEvict(cacheNames = CacheConfig.CATEGORIES, allEntries = true)
     public CategoryDto createCategory(String name, String description) {
         Category cat = new Category();
         cat.setName(name);
@@ -117,6 +301,7 @@ public class ProductService {
         return toCategoryDto(cat);
     }
 
+    @CacheEvict(cacheNames = CacheConfig.CATEGORIES, allEntries = true)
     public void deleteCategory(Long id) {
         categoryRepository.deleteById(id);
     }
@@ -133,13 +318,37 @@ public class ProductService {
             dto.setCategoryName(product.getCategory().getName());
         }
         if (product.getImages() != null)
-            dto.setImagesBase64(product.getImages().stream()
-                    .filter(img -> img.getBytes() != null)
-                    .map(img -> Base64.getEncoder().encodeToString(img.getBytes()))
+            dto.setImages(product.getImages().stream()
+                    .map(img -> toImageDto(product.getId(), img))
                     .collect(Collectors.toList()));
         return dto;
     }
 
+    private ProductSummaryDto toSummaryDto(ProductSummaryRow row) {
+        ProductSummaryDto dto = new ProductSummaryDto();
+        dto.setId(row.id());
+        dto.setTitle(row.title());
+        dto.setPrice(row.price());
+        dto.setOnSale(row.onSale());
+        if (row.firstImageId() != null)
+            dto.setThumbnailUrl(imageUrl(row.id(), row.firstImageId()) + "?size=" + ImageVariantService.THUMBNAIL_WIDTH);
+        return dto;
+    }
+
+    private String imageUrl(Long productId, Long imageId) {
+        return "/api/products/" + productId + "/images/" + imageId;
+    }
+
+    private ImageDto toImageDto(Long productId, Image img) {
+        ImageDto dto = new ImageDto();
+        dto.setId(img.getId());
+        dto.setOriginalFileName(img.getOriginalFileName());
+        dto.setContentType(img.getContentType());
+        dto.setUrl(imageUrl(productId, img.getId()));
+        dto.setThumbnailUrl(dto.getUrl() + "?size=" + ImageVariantService.THUMBNAIL_WIDTH);
+        return dto;
+    }
+
     private CategoryDto toCategoryDto(Category cat) {
         CategoryDto dto = new CategoryDto();
         dto.setId(cat.getId());
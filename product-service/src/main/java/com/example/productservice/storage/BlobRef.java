@@ -0,0 +1,4 @@
+package com.example.productservice.storage;
+
+public record BlobRef(String key, long size) {
+}
@@ -0,0 +1,39 @@
+package com.example.productservice.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+
+public interface BlobStore {
+
+    /**
+     * Streams the content into the store, computing its SHA-256 on the way, and returns the key.
+     * Storing the same content twice is a no-op. Fails with {@link BlobTooLargeException} as soon as
+     * the stream exceeds the store's size limit.
+     */
+    BlobRef put(InputStream content) throws IOException;
+
+    default BlobRef put(byte[] content) throws IOException {
+        return put(new ByteArrayInputStream(content));
+    }
+
+    /**
+     * Like {@link #put(InputStream)} but without the size limit, for content accepted before the
+     * limit applied.
+     */
+    BlobRef putWithoutLimit(InputStream content) throws IOException;
+
+    boolean exists(String key);
+
+    long size(String key) throws IOException;
+
+    /**
+     * Copies the blob into the target channel without staging it on the heap.
+     */
+    void transferTo(String key, WritableByteChannel target) throws IOException;
+
+    InputStream open(String key) throws IOException;
+
+    void delete(String key) throws IOException;
+}
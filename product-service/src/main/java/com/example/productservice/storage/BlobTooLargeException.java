@@ -0,0 +1,9 @@
+package com.example.productservice.storage;
+
+import java.io.IOException;
+
+public class BlobTooLargeException extends IOException {
+    public BlobTooLargeException(long maxBytes) {
+        super("Content exceeds the limit of " + maxBytes + " bytes");
+    }
+}
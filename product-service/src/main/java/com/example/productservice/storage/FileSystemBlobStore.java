@@ -0,0 +1,120 @@
+package com.example.productservice.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Content-addressed blob store on the local filesystem. Blobs live under
+ * {@code <root>/<first two hex chars>/<sha256>} so no single directory grows unbounded.
+ */
+@Component
+public class FileSystemBlobStore implements BlobStore {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path root;
+    private final long maxBytes;
+
+    public FileSystemBlobStore(@Value("${product.images.storage-dir:images}") String root,
+                               @Value("${product.images.max-size:10MB}") DataSize maxSize) {
+        this.root = Path.of(root).toAbsolutePath();
+        this.maxBytes = maxSize.toBytes();
+    }
+
+    @Override
+    public BlobRef put(InputStream content) throws IOException {
+        return store(content, maxBytes);
+    }
+
+    @Override
+    public BlobRef putWithoutLimit(InputStream content) throws IOException {
+        return store(content, Long.MAX_VALUE);
+    }
+
+    private BlobRef store(InputStream content, long maxBytes) throws IOException {
+        Files.createDirectories(root);
+        // The key is only known once the whole stream has been digested, so land it in a temp file first
+        Path tmp = Files.createTempFile(root, "upload-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            long size = 0;
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                int read;
+                while ((read = content.read(buffer)) != -1) {
+                    size += read;
+                    if (size > maxBytes) throw new BlobTooLargeException(maxBytes);
+                    digest.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                }
+            }
+            String key = HexFormat.of().formatHex(digest.digest());
+            Path target = resolve(key);
+            if (!Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return new BlobRef(key, size);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.exists(resolve(key));
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        return Files.size(resolve(key));
+    }
+
+    @Override
+    public void transferTo(String key, WritableByteChannel target) throws IOException {
+        try (FileChannel channel = FileChannel.open(resolve(key), StandardOpenOption.READ)) {
+            long position = 0;
+            long size = channel.size();
+            while (position < size) {
+                position += channel.transferTo(position, size - position, target);
+            }
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return Files.newInputStream(resolve(key));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    Path resolve(String key) {
+        if (key == null || !key.matches("[0-9a-f]{64}"))
+            throw new IllegalArgumentException("Invalid blob key: " + key);
+        return root.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
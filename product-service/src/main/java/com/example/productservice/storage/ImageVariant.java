@@ -0,0 +1,6 @@
+package com.example.productservice.storage;
+
+import java.nio.file.Path;
+
+public record ImageVariant(Path path, String contentType, long size) {
+}
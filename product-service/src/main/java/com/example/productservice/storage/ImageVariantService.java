@@ -0,0 +1,234 @@
+package com.example.productservice.storage;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+
+/**
+ * Fixed-width downscaled copies of stored images, cached on disk under
+ * {@code <variants-dir>/<first two hex chars>/<sha256>-<width>.<ext>}. Variants are
+ * generated on a bounded background executor after upload and on demand if a request arrives first;
+ * on-demand generation runs on the same executor, and fails fast while it is saturated.
+ * An empty {@code .none} marker records that no variant is needed because the original is already
+ * narrow enough (or not decodable by ImageIO), in which case callers serve the original.
+ */
+@Slf4j
+@Component
+public class ImageVariantService {
+    public static final List<Integer> WIDTHS = List.of(160, 480, 1024);
+    public static final int THUMBNAIL_WIDTH = 160;
+
+    private final BlobStore blobStore;
+    private final Path root;
+    private final ThreadPoolExecutor executor;
+    private final ConcurrentHashMap<String, CompletableFuture<Optional<ImageVariant>>> inFlight = new ConcurrentHashMap<>();
+
+    public ImageVariantService(BlobStore blobStore,
+                               @Value("${product.images.variants-dir:images/variants}") String root,
+                               @Value("${product.images.variant-threads:2}") int threads,
+                               @Value("${product.images.variant-queue:200}") int queueCapacity) {
+        // Rejected tasks are harmless: the variant is produced on a later request instead
+        this(blobStore, Path.of(root), new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new ThreadPoolExecutor.AbortPolicy()));
+    }
+
+    ImageVariantService(BlobStore blobStore, Path root, ThreadPoolExecutor executor) {
+        this.blobStore = blobStore;
+        this.root = root.toAbsolutePath();
+        this.executor = executor;
+    }
+
+    public void generateAsync(String key, String contentType) {
+        String format = outputFormat(contentType);
+        for (int width : WIDTHS) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        Path path = variantPath(key, width, format);
+                        if (Files.exists(path) || Files.exists(noneMarker(key, width))) return;
+                        CompletableFuture<Optional<ImageVariant>> future = new CompletableFuture<>();
+                        // Already being generated for a request
+                        if (inFlight.putIfAbsent(key + "-" + width, future) != null) return;
+                        run(key, width, format, path, future);
+                    } catch (RuntimeException ex) {
+                        log.warn("Failed to generate {}px variant of {}", width, key, ex);
+                    }
+                });
+            } catch (RejectedExecutionException ex) {
+                log.debug("Variant queue full, skipping {}px variant of {}", width, key);
+            }
+        }
+    }
+
+    /**
+     * Returns the cached variant, generating it if needed. Empty means the original should be served
+     * for this width. Throws {@link ImageVariantUnavailableException} when the executor is too busy
+     * to generate the variant now.
+     */
+    public Optional<ImageVariant> variant(String key, String contentType, int width) {
+        if (!WIDTHS.contains(width))
+            throw new UnsupportedImageSizeException(width);
+        String format = outputFormat(contentType);
+        Path path = variantPath(key, width, format);
+        if (Files.exists(path)) return Optional.of(toVariant(path, format));
+        if (Files.exists(noneMarker(key, width))) return Optional.empty();
+
+        String id = key + "-" + width;
+        CompletableFuture<Optional<ImageVariant>> future = new CompletableFuture<>();
+        CompletableFuture<Optional<ImageVariant>> existing = inFlight.putIfAbsent(id, future);
+        if (existing != null) return await(existing);
+        try {
+            executor.execute(() -> run(key, width, format, path, future));
+        } catch (RejectedExecutionException ex) {
+            inFlight.remove(id, future);
+            future.completeExceptionally(new ImageVariantUnavailableException(key, width));
+        }
+        return await(future);
+    }
+
+    public void transferTo(ImageVariant variant, WritableByteChannel target) {
+        try (FileChannel channel = FileChannel.open(variant.path(), StandardOpenOption.READ)) {
+            long position = 0;
+            long size = channel.size();
+            while (position < size) {
+                position += channel.transferTo(position, size - position, target);
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Image read error", ex);
+        }
+    }
+
+    public void delete(String key) {
+        try {
+            for (int width : WIDTHS) {
+                Files.deleteIfExists(variantPath(key, width, "jpg"));
+                Files.deleteIfExists(variantPath(key, width, "png"));
+                Files.deleteIfExists(noneMarker(key, width));
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Image delete error", ex);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Decodes at most executor-threads originals at a time, whichever path asked for the variant
+    private void run(String key, int width, String format, Path path, CompletableFuture<Optional<ImageVariant>> future) {
+        try {
+            future.complete(generate(key, width, format, path));
+        } catch (RuntimeException ex) {
+            future.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key + "-" + width, future);
+        }
+    }
+
+    private static Optional<ImageVariant> await(CompletableFuture<Optional<ImageVariant>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) throw cause;
+            throw ex;
+        }
+    }
+
+    private Optional<ImageVariant> generate(String key, int width, String format, Path path) {
+        try {
+            BufferedImage original;
+            try (InputStream in = blobStore.open(key)) {
+                original = ImageIO.read(in);
+            }
+            Files.createDirectories(path.getParent());
+            if (original == null || original.getWidth() <= width) {
+                Files.write(noneMarker(key, width), new byte[0]);
+                return Optional.empty();
+            }
+            BufferedImage scaled = scale(original, width, "png".equals(format));
+            Path tmp = Files.createTempFile(path.getParent(), key, ".tmp");
+            try {
+                ImageIO.write(scaled, format, tmp.toFile());
+                Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            return Optional.of(toVariant(path, format));
+        } catch (IOException ex) {
+            throw new RuntimeException("Failed to generate image variant", ex);
+        }
+    }
+
+    // Halve repeatedly before the final step; a single bilinear pass over a large ratio aliases badly
+    private static BufferedImage scale(BufferedImage source, int targetWidth, boolean alpha) {
+        int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage current = source;
+        int w = source.getWidth();
+        int h;
+        do {
+            w = Math.max(w / 2, targetWidth);
+            h = Math.max(1, (int) Math.round((double) source.getHeight() * w / source.getWidth()));
+            BufferedImage next = new BufferedImage(w, h, type);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                if (!alpha) {
+                    g.setColor(Color.WHITE);
+                    g.fillRect(0, 0, w, h);
+                }
+                g.drawImage(current, 0, 0, w, h, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (w > targetWidth);
+        return current;
+    }
+
+    private static String outputFormat(String contentType) {
+        return contentType != null && (contentType.equals("image/png") || contentType.equals("image/gif")) ? "png" : "jpg";
+    }
+
+    private ImageVariant toVariant(Path path, String format) {
+        try {
+            return new ImageVariant(path, "png".equals(format) ? "image/png" : "image/jpeg", Files.size(path));
+        } catch (IOException ex) {
+            throw new RuntimeException("Image read error", ex);
+        }
+    }
+
+    private Path variantPath(String key, int width, String format) {
+        return shard(key).resolve(key + "-" + width + "." + format);
+    }
+
+    private Path noneMarker(String key, int width) {
+        return shard(key).resolve(key + "-" + width + ".none");
+    }
+
+    private Path shard(String key) {
+        if (key == null || !key.matches("[0-9a-f]{64}"))
+            throw new IllegalArgumentException("Invalid blob key: " + key);
+        return root.resolve(key.substring(0, 2));
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.productservice.storage;
+
+/**
+ * The variant is not cached and the generation executor is saturated; the caller serves the
+ * original, but must not let it be cached in place of the variant.
+ */
+public class ImageVariantUnavailableException extends RuntimeException {
+    public ImageVariantUnavailableException(String key, int width) {
+        super("No capacity to generate " + width + "px variant of " + key);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.productservice.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Moves image content left in the legacy {@code images.bytes} column (the old {@code @Lob} mapping)
+ * into the {@link BlobStore}, one row per transaction so the heap holds at most one image at a time.
+ * Rows are picked up by {@code sha256 IS NULL}, so the migration is resumable and a no-op once done.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "product.images.migrate-on-startup", havingValue = "true", matchIfMissing = true)
+public class LobImageMigration implements ApplicationRunner {
+    private static final int BATCH_SIZE = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BlobStore blobStore;
+    private final String table;
+    private final String schema;
+
+    public LobImageMigration(JdbcTemplate jdbcTemplate,
+                             TransactionTemplate transactionTemplate,
+                             BlobStore blobStore,
+                             @Value("${spring.jpa.properties.hibernate.default_schema:public}") String schema) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.blobStore = blobStore;
+        this.schema = schema;
+        this.table = schema + ".images";
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        List<String> columnType = jdbcTemplate.queryForList(
+                "SELECT data_type FROM information_schema.columns " +
+                        "WHERE table_schema = ? AND table_name = 'images' AND column_name = 'bytes'",
+                String.class, schema);
+        if (columnType.isEmpty()) return;
+        // Hibernate maps @Lob byte[] to a large-object oid on PostgreSQL; older schemas may use bytea
+        boolean largeObject = "oid".equals(columnType.get(0));
+
+        int migrated = 0;
+        List<Long> ids;
+        do {
+            ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM " + table + " WHERE sha256 IS NULL AND bytes IS NOT NULL ORDER BY id LIMIT " + BATCH_SIZE,
+                    Long.class);
+            for (Long id : ids) {
+                transactionTemplate.executeWithoutResult(status -> migrate(id, largeObject));
+                migrated++;
+            }
+        } while (ids.size() == BATCH_SIZE);
+        if (migrated > 0) log.info("Moved {} images from {}.bytes to the blob store", migrated, table);
+    }
+
+    private void migrate(Long id, boolean largeObject) {
+        byte[] content = jdbcTemplate.queryForObject(
+                "SELECT " + (largeObject ? "lo_get(bytes)" : "bytes") + " FROM " + table + " WHERE id = ?",
+                byte[].class, id);
+        BlobRef blob;
+        try {
+            // Legacy rows predate the upload limit; rejecting them here would abort startup
+            blob = blobStore.putWithoutLimit(new ByteArrayInputStream(content));
+        } catch (IOException ex) {
+            throw new RuntimeException("Failed to migrate image " + id, ex);
+        }
+        if (largeObject)
+            jdbcTemplate.queryForList("SELECT lo_unlink(bytes) FROM " + table + " WHERE id = ?", id);
+        jdbcTemplate.update("UPDATE " + table + " SET sha256 = ?, size = ?, bytes = NULL WHERE id = ?",
+                blob.key(), blob.size(), id);
+    }
+}
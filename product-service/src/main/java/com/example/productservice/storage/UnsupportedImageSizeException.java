@@ -0,0 +1,11 @@
+package com.example.productservice.storage;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class UnsupportedImageSizeException extends RuntimeException {
+    public UnsupportedImageSizeException(int width) {
+        super("Unsupported image size: " + width);
+    }
+}
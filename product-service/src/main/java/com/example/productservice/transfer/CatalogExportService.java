@@ -0,0 +1,90 @@
+package com.example.productservice.transfer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Writes the whole catalog as NDJSON or CSV, reading it in id-ordered keyset pages so only one
+ * page is in memory and each page query stays an index range scan however deep the export gets.
+ * Output is flushed after every page.
+ */
+@Service
+public class CatalogExportService {
+    static final int PAGE_SIZE = 1000;
+    static final String[] CSV_HEADER = {"id", "title", "description", "price", "categoryId", "onSale", "createdDate"};
+
+    private static final RowMapper<CatalogRow> ROW_MAPPER = (rs, rowNum) -> {
+        Timestamp createdDate = rs.getTimestamp("created_date");
+        return new CatalogRow(
+                rs.getLong("id"),
+                rs.getString("title"),
+                rs.getString("description"),
+                rs.getInt("price"),
+                rs.getObject("category_id", Long.class),
+                rs.getBoolean("is_on_sale"),
+                createdDate == null ? null : createdDate.toLocalDateTime());
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JsonMapper jsonMapper;
+    private final String table;
+
+    public CatalogExportService(JdbcTemplate jdbcTemplate,
+                                JsonMapper jsonMapper,
+                                @Value("${spring.jpa.properties.hibernate.default_schema:public}") String schema) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.jsonMapper = jsonMapper;
+        this.table = schema + ".products";
+    }
+
+    public long exportNdjson(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        return export(writer, row -> {
+            writer.write(jsonMapper.writeValueAsString(row));
+            writer.write('\n');
+        });
+    }
+
+    public long exportCsv(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        CsvWriter csv = new CsvWriter(writer);
+        csv.writeRecord((Object[]) CSV_HEADER);
+        return export(writer, row -> csv.writeRecord(row.id(), row.title(), row.description(), row.price(),
+                row.categoryId(), row.onSale(), row.createdDate()));
+    }
+
+    private interface RowWriter {
+        void write(CatalogRow row) throws IOException;
+    }
+
+    private long export(Writer writer, RowWriter rowWriter) throws IOException {
+        long exported = 0;
+        long afterId = 0;
+        List<CatalogRow> page;
+        do {
+            page = jdbcTemplate.query(
+                    "SELECT id, title, description, price, category_id, is_on_sale, created_date FROM " + table +
+                            " WHERE id > ? ORDER BY id LIMIT ?",
+                    ROW_MAPPER, afterId, PAGE_SIZE);
+            for (CatalogRow row : page) {
+                rowWriter.write(row);
+                afterId = row.id();
+            }
+            exported += page.size();
+            writer.flush();
+        } while (page.size() == PAGE_SIZE);
+        return exported;
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.productservice.transfer;
+
+import com.example.productservice.dto.ImportResultDto;
+import com.example.productservice.model.Category;
+import com.example.productservice.repository.CategoryRepository;
+import com.example.productservice.search.ProductFacetIndex;
+import com.example.productservice.search.ProductSearchIndex;
+import com.example.productservice.search.TitleSuggester;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Creates products from an NDJSON or CSV stream. Input is parsed a line (record) at a time and
+ * written with plain JDBC batch inserts, one transaction per batch, so memory stays bounded by the
+ * batch size however large the file is. Ids are reserved from the table's identity sequence in one
+ * query per batch; {@code GenerationType.IDENTITY} would otherwise rule out batching.
+ * <p>
+ * Invalid rows are skipped and reported; rows in batches committed before a database error stay
+ * imported.
+ */
+@Slf4j
+@Service
+public class CatalogImportService {
+    static final int BATCH_SIZE = 1000;
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CategoryRepository categoryRepository;
+    private final JsonMapper jsonMapper;
+    private final ProductSearchIndex searchIndex;
+    private final TitleSuggester titleSuggester;
+    private final ProductFacetIndex facetIndex;
+    private final String table;
+
+    public CatalogImportService(JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                CategoryRepository categoryRepository,
+                                JsonMapper jsonMapper,
+                                ProductSearchIndex searchIndex,
+                                TitleSuggester titleSuggester,
+                                ProductFacetIndex facetIndex,
+                                @Value("${spring.jpa.properties.hibernate.default_schema:public}") String schema) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.categoryRepository = categoryRepository;
+        this.jsonMapper = jsonMapper;
+        this.searchIndex = searchIndex;
+        this.titleSuggester = titleSuggester;
+        this.facetIndex = facetIndex;
+        this.table = schema + ".products";
+    }
+
+    public ImportResultDto importNdjson(InputStream in) throws IOException {
+        Import run = new Import();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) continue;
+            CatalogRow row;
+            try {
+                row = jsonMapper.readValue(line, CatalogRow.class);
+            } catch (JacksonException ex) {
+                run.reject(lineNumber, "invalid JSON");
+                continue;
+            }
+            run.accept(lineNumber, row);
+        }
+        return run.finish();
+    }
+
+    /**
+     * Expects a header row; {@code title} and {@code price} columns are required, {@code description},
+     * {@code categoryId} and {@code onSale} optional, anything else (such as an exported {@code id}) ignored.
+     */
+    public ImportResultDto importCsv(InputStream in) throws IOException {
+        CsvReader reader = new CsvReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        List<String> header = reader.next();
+        if (header == null) throw new RuntimeException("Empty CSV");
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) columns.put(header.get(i).trim().replace("\uFEFF", ""), i);
+        if (!columns.containsKey("title") || !columns.containsKey("price"))
+            throw new RuntimeException("CSV header must contain title and price");
+
+        Import run = new Import();
+        List<String> fields;
+        while ((fields = reader.next()) != null) {
+            int lineNumber = reader.recordLine();
+            if (fields.size() == 1 && fields.get(0).isEmpty()) continue;
+            CatalogRow row;
+            try {
+                row = new CatalogRow(null,
+                        field(fields, columns, "title"),
+                        field(fields, columns, "description"),
+                        parseOrNull(field(fields, columns, "price"), Integer::valueOf),
+                        parseOrNull(field(fields, columns, "categoryId"), Long::valueOf),
+                        parseOrNull(field(fields, columns, "onSale"), Boolean::valueOf),
+                        null);
+            } catch (NumberFormatException ex) {
+                run.reject(lineNumber, "invalid number");
+                continue;
+            }
+            run.accept(lineNumber, row);
+        }
+        return run.finish();
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        return index == null || index >= fields.size() ? null : fields.get(index);
+    }
+
+    private static <T> T parseOrNull(String value, Function<String, T> parser) {
+        return value == null || value.isBlank() ? null : parser.apply(value.trim());
+    }
+
+    /**
+     * State of one import request: the pending batch and the running counts.
+     */
+    private class Import {
+        private final long start = System.currentTimeMillis();
+        private final Set<Long> categoryIds = categoryRepository.findAll().stream()
+                .map(Category::getId).collect(Collectors.toSet());
+        private final List<CatalogRow> batch = new ArrayList<>(BATCH_SIZE);
+        private final List<String> errors = new ArrayList<>();
+        private int imported;
+        private int rejected;
+
+        void accept(int lineNumber, CatalogRow row) {
+            String problem = validate(row);
+            if (problem != null) {
+                reject(lineNumber, problem);
+                return;
+            }
+            batch.add(row);
+            if (batch.size() == BATCH_SIZE) flush();
+        }
+
+        void reject(int lineNumber, String reason) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) errors.add("line " + lineNumber + ": " + reason);
+        }
+
+        ImportResultDto finish() {
+            flush();
+            ImportResultDto result = new ImportResultDto();
+            result.setImported(imported);
+            result.setRejected(rejected);
+            result.setErrors(errors);
+            result.setElapsedMillis(System.currentTimeMillis() - start);
+            log.info("Imported {} products ({} rejected) in {} ms", imported, rejected, result.getElapsedMillis());
+            return result;
+        }
+
+        private String validate(CatalogRow row) {
+            if (row.title() == null || row.title().isBlank()) return "title is required";
+            if (row.price() == null) return "price is required";
+            if (row.price() < 0) return "price must not be negative";
+            if (row.categoryId() != null && !categoryIds.contains(row.categoryId()))
+                return "no such category: " + row.categoryId();
+            return null;
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) return;
+            LocalDateTime createdDate = LocalDateTime.now();
+            List<Long> ids = transactionTemplate.execute(status -> insert(batch, createdDate));
+            updateIndexes(batch, ids, createdDate);
+            imported += batch.size();
+            batch.clear();
+        }
+    }
+
+    private List<Long> insert(List<CatalogRow> rows, LocalDateTime createdDate) {
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT nextval(pg_get_serial_sequence(?, 'id')) FROM generate_series(1, ?)",
+                Long.class, table, rows.size());
+        Timestamp created = Timestamp.valueOf(createdDate);
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO " + table + " (id, title, description, price, is_on_sale, category_id, created_date) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        CatalogRow row = rows.get(i);
+                        ps.setLong(1, ids.get(i));
+                        ps.setString(2, row.title());
+                        ps.setString(3, row.description());
+                        ps.setInt(4, row.price());
+                        ps.setBoolean(5, Boolean.TRUE.equals(row.onSale()));
+                        if (row.categoryId() != null) ps.setLong(6, row.categoryId());
+                        else ps.setNull(6, Types.BIGINT);
+                        ps.setTimestamp(7, created);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return rows.size();
+                    }
+                });
+        return ids;
+    }
+
+    private void updateIndexes(List<CatalogRow> rows, List<Long> ids, LocalDateTime createdDate) {
+        List<TitleSuggester.Entry> titles = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            CatalogRow row = rows.get(i);
+            Long id = ids.get(i);
+            searchIndex.put(id, row.title(), row.description());
+            facetIndex.put(id, row.categoryId(), row.price(), row.title());
+            titles.add(new TitleSuggester.Entry(id, row.title(), TitleSuggester.recencyWeight(createdDate)));
+        }
+        titleSuggester.putAll(titles);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.productservice.transfer;
+
+import java.time.LocalDateTime;
+
+/**
+ * One product in an import or export file. {@code id} and {@code createdDate} are written on
+ * export and ignored on import, which always creates new products.
+ */
+public record CatalogRow(Long id, String title, String description, Integer price, Long categoryId,
+                         Boolean onSale, LocalDateTime createdDate) {
+}
@@ -0,0 +1,32 @@
+package com.example.productservice.transfer;
+
+import java.io.IOException;
+import java.io.Writer;
+
+class CsvWriter {
+    private final Writer writer;
+
+    CsvWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    void writeRecord(Object... fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) writer.write(',');
+            writeField(fields[i] == null ? "" : fields[i].toString());
+        }
+        writer.write("\r\n");
+    }
+
+    private void writeField(String value) throws IOException {
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.productservice;
+
+import com.example.productservice.config.CacheConfig;
+import com.example.productservice.dto.ProductDto;
+import com.example.productservice.model.Category;
+import com.example.productservice.model.Product;
+import com.example.productservice.repository.CategoryRepository;
+import com.example.productservice.repository.ImageRepository;
+import com.example.productservice.repository.ProductRepository;
+import com.example.productservice.search.ProductFacetIndex;
+import com.example.productservice.search.ProductSearchIndex;
+import com.example.productservice.search.TitleSuggester;
+import com.example.productservice.service.ProductService;
+import com.example.productservice.storage.BlobStore;
+import com.example.productservice.storage.ImageVariantService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SpringJUnitConfig(ProductCacheTest.Config.class)
+class ProductCacheTest {
+    private static final int HOT_PRODUCTS = 50;
+    private static final int REQUESTS = 1_000;
+    private static final int WARMUP_ROUNDS = 100;
+
+    @Configuration
+    @Import(CacheConfig.class)
+    static class Config {
+        @Bean
+        ProductRepository productRepository() {
+            return mock(ProductRepository.class);
+        }
+
+        @Bean
+        CategoryRepository categoryRepository() {
+            return mock(CategoryRepository.class);
+        }
+
+        @Bean
+        ProductService productService(ProductRepository productRepository, CategoryRepository categoryRepository) {
+            return new ProductService(productRepository, categoryRepository, mock(ImageRepository.class),
+                    mock(BlobStore.class), mock(ImageVariantService.class), mock(ProductSearchIndex.class),
+                    mock(TitleSuggester.class), mock(ProductFacetIndex.class));
+        }
+    }
+
+    @Autowired
+    private ProductService cachedService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        reset(productRepository);
+        reset(categoryRepository);
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        when(productRepository.findById(any()))
+                .thenAnswer(inv -> Optional.of(product(inv.getArgument(0), "Product " + inv.getArgument(0))));
+    }
+
+    @Test
+    void getProduct_loadsEachHotProductOnce() {
+        ProductService uncachedService = uncachedService();
+
+        p99(uncachedService, 1);
+        p99(cachedService, WARMUP_ROUNDS);
+
+        // The uncached run hits the repository on every call, the cached run once per hot product
+        verify(productRepository, times(REQUESTS + 2 * HOT_PRODUCTS)).findById(any());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void getProduct_hotProductP99DropsWithCache() {
+        // Stand-in for a Postgres round trip
+        when(productRepository.findById(any())).thenAnswer(inv -> {
+            Thread.sleep(1);
+            return Optional.of(product(inv.getArgument(0), "Product " + inv.getArgument(0)));
+        });
+
+        long uncachedP99 = p99(uncachedService(), 1);
+        long cachedP99 = p99(cachedService, WARMUP_ROUNDS);
+
+        System.out.printf("getProduct p99 over %d hot products: uncached %d us, cached %d us%n",
+                HOT_PRODUCTS, uncachedP99 / 1000, cachedP99 / 1000);
+    }
+
+    @Test
+    void updateProduct_replacesCachedEntry() {
+        cachedService.getProduct(1L);
+        when(productRepository.save(any(Product.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        cachedService.updateProduct(1L, "Renamed", null, null, null, null, null);
+
+        assertEquals("Renamed", cachedService.getProduct(1L).getTitle());
+        verify(productRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void deleteProduct_evictsOnlyThatProduct() {
+        cachedService.getProduct(1L);
+        cachedService.getProduct(2L);
+
+        cachedService.deleteProduct(1L);
+        cachedService.getProduct(1L);
+        cachedService.getProduct(2L);
+
+        // getProduct + deleteProduct's own lookup + reload after eviction
+        verify(productRepository, times(3)).findById(1L);
+        verify(productRepository, times(1)).findById(2L);
+    }
+
+    @Test
+    void categoryChanges_evictCategoryList() {
+        Category category = new Category();
+        category.setId(1L);
+        category.setName("Pens");
+        when(categoryRepository.findAll()).thenReturn(List.of(category));
+
+        cachedService.getCategories();
+        cachedService.getCategories();
+        verify(categoryRepository, times(1)).findAll();
+
+        cachedService.createCategory("Paper", "Sheets");
+        cachedService.getCategories();
+        verify(categoryRepository, times(2)).findAll();
+
+        cachedService.deleteCategory(1L);
+        cachedService.getCategories();
+        verify(categoryRepository, times(3)).findAll();
+    }
+
+    private ProductService uncachedService() {
+        return new ProductService(productRepository, categoryRepository,
+                mock(ImageRepository.class), mock(BlobStore.class), mock(ImageVariantService.class),
+                mock(ProductSearchIndex.class), mock(TitleSuggester.class), mock(ProductFacetIndex.class));
+    }
+
+    private long p99(ProductService service, int warmupRounds) {
+        // Warms up the JIT and, for the cached service, fills the cache
+        for (int round = 0; round < warmupRounds; round++)
+            for (long id = 1; id <= HOT_PRODUCTS; id++) service.getProduct(id);
+        long[] latencies = new long[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            long id = i % HOT_PRODUCTS + 1;
+            long start = System.nanoTime();
+            ProductDto dto = service.getProduct(id);
+            latencies[i] = System.nanoTime() - start;
+            assertEquals(id, dto.getId());
+        }
+        Arrays.sort(latencies);
+        return latencies[(int) Math.ceil(REQUESTS * 0.99) - 1];
+    }
+
+    private static Product product(Long id, String title) {
+        Product product = new Product();
+        product.setId(id);
+        product.setTitle(title);
+        product.setPrice(100);
+        return product;
+    }
+}
@@ -1,17 +1,50 @@
 package com.example.productservice;
 
+import com.example.productservice.dto.FacetsDto;
+import com.example.productservice.dto.PageDto;
 import com.example.productservice.dto.ProductDto;
+import com.example.productservice.dto.ProductSummaryDto;
+import com.example.productservice.dto.SuggestionDto;
 import com.example.productservice.model.Category;
+import com.example.productservice.model.Image;
 import com.example.productservice.model.Product;
 import com.example.productservice.repository.CategoryRepository;
+import com.example.productservice.repository.ImageRepository;
 import com.example.productservice.repository.ProductRepository;
+import com.example.productservice.repository.ProductSummaryRow;
+import com.example.productservice.search.ProductFacetIndex;
+import com.example.productservice.search.ProductSearchIndex;
+import com.example.productservice.search.TitleSuggester;
 import com.example.productservice.service.ProductService;
+import com.example.productservice.storage.BlobRef;
+import com.example.productservice.storage.BlobStore;
+import com.example.productservice.storage.BlobTooLargeException;
+import com.example.productservice.storage.ImageVariantService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -20,18 +53,30 @@ import static org.mockito.Mockito.*;
 public class ProductServiceTest {
     private ProductRepository productRepository;
     private CategoryRepository categoryRepository;
+    private ImageRepository imageRepository;
+    private BlobStore blobStore;
+    private ImageVariantService imageVariantService;
+    private ProductSearchIndex searchIndex;
+    private TitleSuggester titleSuggester;
+    private ProductFacetIndex facetIndex;
     private ProductService productService;
 
     @BeforeEach
     void setUp() {
         productRepository = mock(ProductRepository.class);
         categoryRepository = mock(CategoryRepository.class);
-        productService = new ProductService(productRepository, categoryRepository);
+        imageRepository = mock(ImageRepository.class);
+        blobStore = mock(BlobStore.class);
+        imageVariantService = mock(ImageVariantService.class);
+        searchIndex = new ProductSearchIndex();
+        titleSuggester = new TitleSuggester();
+        facetIndex = new ProductFacetIndex("0-200,200-");
+        productService = new ProductService(productRepository, categoryRepository, imageRepository,
+                blobStore, imageVariantService, searchIndex, titleSuggester, facetIndex);
     }
 
     @Test
-    void getProducts_filtersByTitleCategoryAndPrice() {
-        // given
+    void getProducts_queriesRepositoryWithFiltersAndPage() {
         Category cat1 = new Category();
         cat1.setId(1L);
         cat1.setName("Pens");
@@ -42,18 +87,64 @@ public class ProductServiceTest {
         p1.setPrice(100);
         p1.setCategory(cat1);
 
-        Product p2 = new Product();
-        p2.setId(2L);
-        p2.setTitle("Red Pencil");
-        p2.setPrice(200);
-        p2.setCategory(cat1);
+        ArgumentCaptor<Pageable> pageableCaptor = ArgumentCaptor.forClass(Pageable.class);
+        when(productRepository.findAll(ArgumentMatchers.<Specification<Product>>any(), pageableCaptor.capture()))
+                .thenAnswer(inv -> new PageImpl<>(List.of(p1), inv.getArgument(1), 41));
+
+        PageDto<ProductDto> result = productService.getProducts("Pen", 1L, 150, 2, 20, "price,desc");
+
+        verify(productRepository, never()).findAll();
+        Pageable pageable = pageableCaptor.getValue();
+        assertEquals(2, pageable.getPageNumber());
+        assertEquals(20, pageable.getPageSize());
+        assertEquals(Sort.Direction.DESC, pageable.getSort().getOrderFor("price").getDirection());
+
+        assertEquals(1, result.getContent().size());
+        assertEquals("Blue Pen", result.getContent().get(0).getTitle());
+        assertEquals(41, result.getTotalElements());
+        assertEquals(3, result.getTotalPages());
+        assertEquals(2, result.getPage());
+    }
 
-        when(productRepository.findAll()).thenReturn(List.of(p1, p2));
+    @Test
+    void getProducts_capsPageSizeAndRejectsUnknownSortField() {
+        ArgumentCaptor<Pageable> pageableCaptor = ArgumentCaptor.forClass(Pageable.class);
+        when(productRepository.findAll(ArgumentMatchers.<Specification<Product>>any(), pageableCaptor.capture()))
+                .thenAnswer(inv -> new PageImpl<>(List.of(), inv.getArgument(1), 0));
 
-        List<ProductDto> result = productService.getProducts("Pen", 1L, 150);
+        productService.getProducts(null, null, null, -1, 10_000, null);
 
-        assertEquals(1, result.size());
-        assertEquals("Blue Pen", result.get(0).getTitle());
+        assertEquals(0, pageableCaptor.getValue().getPageNumber());
+        assertEquals(100, pageableCaptor.getValue().getPageSize());
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> productService.getProducts(null, null, null, 0, 20, "description"));
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+    }
+
+    @Test
+    void getProductSummaries_resolvesAllIdsInOneQueryInRequestOrder() {
+        when(productRepository.findSummariesByIdIn(any())).thenReturn(List.of(
+                new ProductSummaryRow(1L, "Blue Pen", 100, false, 11L),
+                new ProductSummaryRow(3L, "Notebook", 300, true, null)));
+
+        List<ProductSummaryDto> result = productService.getProductSummaries(List.of(3L, 2L, 1L, 3L));
+
+        verify(productRepository, times(1)).findSummariesByIdIn(Set.of(1L, 2L, 3L));
+        verify(productRepository, never()).findById(any());
+        assertEquals(2, result.size());
+        assertEquals(3L, result.get(0).getId());
+        assertTrue(result.get(0).isOnSale());
+        assertNull(result.get(0).getThumbnailUrl());
+        assertEquals(1L, result.get(1).getId());
+        assertEquals("/api/products/1/images/11?size=160", result.get(1).getThumbnailUrl());
+    }
+
+    @Test
+    void getProductSummaries_rejectsOversizedBatch() {
+        List<Long> ids = new ArrayList<>();
+        for (long i = 0; i < 501; i++) ids.add(i);
+        assertThrows(RuntimeException.class, () -> productService.getProductSummaries(ids));
+        verifyNoInteractions(productRepository);
     }
 
     @Test
@@ -80,9 +171,174 @@ public class ProductServiceTest {
         assertEquals("Notebooks", dto.getCategoryName());
     }
 
+    @Test
+    void search_keepsIndexInSyncWithProductChanges() {
+        AtomicLong ids = new AtomicLong();
+        when(productRepository.save(any(Product.class))).thenAnswer(inv -> {
+            Product p = inv.getArgument(0);
+            if (p.getId() == null) p.setId(ids.incrementAndGet());
+            return p;
+        });
+        when(productRepository.findSummariesByIdIn(any())).thenAnswer(inv -> inv.<Set<Long>>getArgument(0).stream()
+                .map(id -> new ProductSummaryRow(id, "Product " + id, 100, false, null))
+                .toList());
+
+        productService.createProduct("Galaxy notebook", "Dotted pages", 300, null, null);
+        productService.createProduct("Galaxy pen", "Gel ink", 100, null, null);
+        assertEquals(2, productService.search("galaxy", 0, 20).getTotalElements());
+
+        Product pen = new Product();
+        pen.setId(2L);
+        pen.setTitle("Galaxy pen");
+        pen.setImages(new ArrayList<>());
+        when(productRepository.findById(2L)).thenReturn(Optional.of(pen));
+        productService.updateProduct(2L, "Comet pen", null, null, null, null, null);
+
+        PageDto<ProductSummaryDto> galaxy = productService.search("galaxy", 0, 20);
+        assertEquals(1, galaxy.getTotalElements());
+        assertEquals(1L, galaxy.getContent().get(0).getId());
+        assertEquals(2L, productService.search("com", 0, 20).getContent().get(0).getId());
+
+        assertEquals(List.of("Comet pen"), productService.suggest("com", 10).stream().map(SuggestionDto::getTitle).toList());
+        assertEquals(List.of(1L), productService.suggest("gal", 10).stream().map(SuggestionDto::getProductId).toList());
+
+        FacetsDto facets = productService.getFacets(null, null, null);
+        assertEquals(2, facets.getTotalElements());
+        assertEquals(List.of(1, 1), facets.getPriceRanges().stream().map(FacetsDto.PriceRangeFacet::getCount).toList());
+
+        productService.deleteProduct(2L);
+        assertEquals(0, productService.search("comet", 0, 20).getTotalElements());
+        assertTrue(productService.suggest("com", 10).isEmpty());
+        assertEquals(1, productService.getFacets(null, null, null).getTotalElements());
+    }
+
     @Test
     void getProduct_throwsWhenNotFound() {
         when(productRepository.findById(99L)).thenReturn(Optional.empty());
         assertThrows(RuntimeException.class, () -> productService.getProduct(99L));
     }
+
+    @Test
+    void getProduct_referencesImagesByUrlInsteadOfInliningBytes() {
+        Product product = productWithImages(10, 2 * 1024 * 1024);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+
+        ProductDto dto = productService.getProduct(1L);
+
+        assertEquals(10, dto.getImages().size());
+        assertEquals("/api/products/1/images/1", dto.getImages().get(0).getUrl());
+        assertEquals("/api/products/1/images/1?size=160", dto.getImages().get(0).getThumbnailUrl());
+        assertEquals("image/jpeg", dto.getImages().get(0).getContentType());
+    }
+
+    @Test
+    void getProduct_responseIsSmallerThanInlineBase64() {
+        Product product = productWithImages(10, 2 * 1024 * 1024);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        JsonMapper mapper = JsonMapper.builder().build();
+        byte[] photo = new byte[2 * 1024 * 1024];
+
+        // Baseline: the previous response shape with every image base64-encoded into the DTO
+        Map<String, Object> inline = Map.of(
+                "id", product.getId(),
+                "title", product.getTitle(),
+                "imagesBase64", product.getImages().stream()
+                        .map(img -> Base64.getEncoder().encodeToString(photo))
+                        .toList());
+        int inlineSize = mapper.writeValueAsBytes(inline).length;
+        int referenceSize = mapper.writeValueAsBytes(productService.getProduct(1L)).length;
+
+        assertTrue(inlineSize > 20 * 1024 * 1024);
+        assertTrue(referenceSize < 4 * 1024);
+        verifyNoInteractions(blobStore);
+    }
+
+    @Test
+    void getImage_throwsWhenImageBelongsToAnotherProduct() {
+        when(imageRepository.findByIdAndProductId(7L, 1L)).thenReturn(Optional.empty());
+        assertThrows(RuntimeException.class, () -> productService.getImage(1L, 7L));
+    }
+
+    @Test
+    void createProduct_streamsImageContentIntoBlobStore() throws Exception {
+        when(productRepository.save(any(Product.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(blobStore.put(any(InputStream.class))).thenReturn(new BlobRef("ab".repeat(32), 3));
+        MultipartFile file = spy(new MockMultipartFile("files", "a.png", "image/png", new byte[]{1, 2, 3}));
+
+        ProductDto dto = productService.createProduct("Sticker", "Shiny", 50, null, new MultipartFile[]{file});
+
+        verify(file, never()).getBytes();
+        verify(blobStore).put(any(InputStream.class));
+        verify(imageVariantService).generateAsync("ab".repeat(32), "image/png");
+        assertEquals(1, dto.getImages().size());
+        assertEquals("image/png", dto.getImages().get(0).getContentType());
+    }
+
+    @Test
+    void createProduct_reportsOversizedUpload() throws Exception {
+        when(productRepository.save(any(Product.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(blobStore.put(any(InputStream.class))).thenThrow(new BlobTooLargeException(10));
+        MultipartFile file = new MockMultipartFile("files", "huge.jpg", "image/jpeg", new byte[11]);
+
+        RuntimeException ex = assertThrows(RuntimeException.class,
+                () -> productService.createProduct("Poster", "Big", 50, null, new MultipartFile[]{file}));
+        assertEquals("File too large: huge.jpg", ex.getMessage());
+    }
+
+    @Test
+    void deleteProduct_removesBlobsNoLongerReferenced() throws Exception {
+        Product product = productWithImages(2, 10);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        String shared = product.getImages().get(0).getSha256();
+        String orphan = product.getImages().get(1).getSha256();
+        when(imageRepository.existsBySha256(shared)).thenReturn(true);
+        when(imageRepository.existsBySha256(orphan)).thenReturn(false);
+
+        productService.deleteProduct(1L);
+
+        verify(productRepository).deleteById(1L);
+        verify(blobStore, never()).delete(shared);
+        verify(blobStore).delete(orphan);
+        verify(imageVariantService).delete(orphan);
+    }
+
+    @Test
+    void deleteProduct_keepsBlobReusedBeforeCommit() throws Exception {
+        Product product = productWithImages(1, 10);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        String key = product.getImages().get(0).getSha256();
+        when(imageRepository.existsBySha256(key)).thenReturn(false);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            productService.deleteProduct(1L);
+            verify(blobStore, never()).delete(any());
+
+            // An identical image uploaded by another product before this transaction committed
+            when(imageRepository.existsBySha256(key)).thenReturn(true);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(blobStore, never()).delete(any());
+    }
+
+    private Product productWithImages(int count, int bytesPerImage) {
+        Product product = new Product();
+        product.setId(1L);
+        product.setTitle("Star map poster");
+        product.setImages(new ArrayList<>());
+        for (long i = 1; i <= count; i++) {
+            Image img = new Image();
+            img.setId(i);
+            img.setOriginalFileName("photo-" + i + ".jpg");
+            img.setContentType("image/jpeg");
+            img.setSha256(String.format("%064x", i));
+            img.setSize(bytesPerImage);
+            img.setProduct(product);
+            product.getImages().add(img);
+        }
+        return product;
+    }
 }
@@ -0,0 +1,16 @@
+package com.example.productservice.repository;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSpecificationsTest {
+
+    @Test
+    void escapeLike_matchesWildcardsLiterally() {
+        assertEquals("pen", ProductSpecifications.escapeLike("pen"));
+        assertEquals("100\\% cotton", ProductSpecifications.escapeLike("100% cotton"));
+        assertEquals("a\\_b", ProductSpecifications.escapeLike("a_b"));
+        assertEquals("c:\\\\tmp", ProductSpecifications.escapeLike("c:\\tmp"));
+    }
+}
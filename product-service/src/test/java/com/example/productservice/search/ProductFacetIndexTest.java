@@ -0,0 +1,128 @@
+package com.example.productservice.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductFacetIndexTest {
+
+    private ProductFacetIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductFacetIndex("0-100, 100-500, 500-");
+    }
+
+    @Test
+    void count_excludesOwnFilterFromEachFacet() {
+        index.put(1L, 10L, 50, "Blue pen");
+        index.put(2L, 10L, 300, "Fountain pen");
+        index.put(3L, 20L, 80, "Pen case");
+        index.put(4L, 20L, 900, "Desk lamp");
+        index.put(5L, null, 120, "Gift card");
+
+        ProductFacetIndex.FacetCounts counts = index.count(null, 10L, 200);
+
+        assertEquals(1, counts.total());
+        // Category counts apply the price filter only, price counts the category filter only
+        assertEquals(Map.of(10L, 1, 20L, 1), counts.categories());
+        assertEquals(List.of(1, 1, 0), counts.priceRanges());
+    }
+
+    @Test
+    void count_appliesTitleSubstringCaseInsensitively() {
+        index.put(1L, 10L, 50, "Blue pen");
+        index.put(2L, 10L, 300, "Fountain PEN");
+        index.put(3L, 20L, 900, "Desk lamp");
+
+        ProductFacetIndex.FacetCounts counts = index.count("pen", null, null);
+
+        assertEquals(2, counts.total());
+        assertEquals(Map.of(10L, 2), counts.categories());
+        assertEquals(List.of(1, 1, 0), counts.priceRanges());
+    }
+
+    @Test
+    void putAndRemove_moveProductsBetweenFacets() {
+        index.put(1L, 10L, 50, "Mug");
+        index.put(1L, 20L, 700, "Mug");
+        index.put(2L, 10L, 60, "Plate");
+        index.remove(2L);
+        index.put(3L, 10L, 70, "Bowl");
+
+        ProductFacetIndex.FacetCounts counts = index.count(null, null, null);
+
+        assertEquals(2, counts.total());
+        assertEquals(Map.of(10L, 1, 20L, 1), counts.categories());
+        assertEquals(List.of(1, 0, 1), counts.priceRanges());
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void put_editingOneOfTwoProductsKeepsCategoryCount() {
+        index.put(1L, 10L, 50, "Mug");
+        index.put(2L, 10L, 60, "Plate");
+        index.put(1L, 10L, 55, "Mug");
+        index.put(1L, 10L, 45, "Mug");
+
+        assertEquals(Map.of(10L, 2), index.count(null, null, null).categories());
+        index.remove(2L);
+        index.remove(1L);
+        assertEquals(Map.of(), index.count(null, null, null).categories());
+    }
+
+    @Test
+    void load_keepsProductsChangedWhileLoading() {
+        index.put(9L, 30L, 50, "Stale entry");
+        index.beginLoad();
+        index.put(1L, 20L, 700, "Mug");
+        index.remove(2L);
+
+        // Rows read before those changes
+        index.load(1L, 10L, 50, "Mug");
+        index.load(2L, 10L, 60, "Plate");
+        index.load(3L, 10L, 70, "Bowl");
+        index.finishLoad();
+
+        assertEquals(Map.of(10L, 1, 20L, 1), index.count(null, null, null).categories());
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void parseRanges_rejectsMalformedSpec() {
+        assertEquals(new ProductFacetIndex.PriceRange(500, null), ProductFacetIndex.parseRanges("0-500,500-").get(1));
+        assertThrows(IllegalArgumentException.class, () -> ProductFacetIndex.parseRanges("cheap"));
+    }
+
+    @Test
+    @Tag("benchmark")
+    void benchmark_syntheticCatalogOf100kProducts() {
+        index = new ProductFacetIndex("0-500,500-1000,1000-3000,3000-10000,10000-");
+        Random random = new Random(11);
+        for (long id = 1; id <= 100_000; id++)
+            index.put(id, (long) random.nextInt(40), random.nextInt(20_000), "Product " + id);
+
+        for (int i = 0; i < 200; i++) index.count(null, (long) random.nextInt(40), random.nextInt(20_000));
+        int queries = 1000;
+        long start = System.nanoTime();
+        long total = 0;
+        for (int i = 0; i < queries; i++)
+            total += index.count(null, (long) random.nextInt(40), random.nextInt(20_000)).total();
+        double avgMicros = (System.nanoTime() - start) / 1000.0 / queries;
+
+        for (int i = 0; i < 20; i++) index.count("product 99", null, null);
+        long titleStart = System.nanoTime();
+        int titleMatches = index.count("product 99", null, null).total();
+        long titleMicros = (System.nanoTime() - titleStart) / 1000;
+
+        System.out.printf("Facets over 100k products, 40 categories, 5 price ranges: category+price filter %.0f us avg, "
+                + "title filter %d us (%d total matches)%n", avgMicros, titleMicros, total);
+        assertEquals(1111, titleMatches);
+    }
+}
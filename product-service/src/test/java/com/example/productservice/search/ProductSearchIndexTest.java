@@ -0,0 +1,161 @@
+package com.example.productservice.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex();
+    }
+
+    @Test
+    void search_ranksTitleMatchesAboveDescriptionMatches() {
+        index.put(1L, "Notebook", "Cover with a rocket print");
+        index.put(2L, "Rocket notebook", "Dotted pages");
+        index.put(3L, "Pencil case", "Fits everything");
+
+        List<SearchHit> hits = index.search("rocket", 0, 10).hits();
+
+        assertEquals(List.of(2L, 1L), hits.stream().map(SearchHit::productId).toList());
+    }
+
+    @Test
+    void search_requiresEveryTokenAndMatchesLastTokenAsPrefix() {
+        index.put(1L, "Blue gel pen", null);
+        index.put(2L, "Blue notebook", null);
+        index.put(3L, "Red gel pen", null);
+
+        assertEquals(List.of(1L), ids(index.search("blue ge", 0, 10)));
+        assertEquals(2, index.search("gel", 0, 10).total());
+        assertEquals(0, index.search("green pen", 0, 10).total());
+    }
+
+    @Test
+    void search_prefersExactTermOverPrefixExpansion() {
+        index.put(1L, "Penguin sticker", null);
+        index.put(2L, "Pen", null);
+
+        assertEquals(List.of(2L, 1L), ids(index.search("pen", 0, 10)));
+    }
+
+    @Test
+    void search_handlesCyrillicAndPunctuation() {
+        index.put(1L, "Блокнот «Космос»", "Обложка из крафт-бумаги");
+
+        assertEquals(List.of(1L), ids(index.search("космос", 0, 10)));
+        assertEquals(List.of(1L), ids(index.search("КРАФТ", 0, 10)));
+    }
+
+    @Test
+    void putAndRemove_updateIndexIncrementally() {
+        index.put(1L, "Comet mug", null);
+        index.put(1L, "Planet mug", null);
+
+        assertEquals(0, index.search("comet", 0, 10).total());
+        assertEquals(List.of(1L), ids(index.search("planet", 0, 10)));
+
+        index.remove(1L);
+        assertEquals(0, index.search("mug", 0, 10).total());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void search_paginatesByOffset() {
+        for (long id = 1; id <= 25; id++) index.put(id, "Star poster " + id, null);
+
+        SearchResult page = index.search("star", 20, 10);
+
+        assertEquals(25, page.total());
+        assertEquals(5, page.hits().size());
+    }
+
+    @Test
+    void repeatedUpdates_compactWithoutLosingDocuments() {
+        for (int round = 0; round < 5; round++)
+            for (long id = 1; id <= 1000; id++) index.put(id, "Item " + id + " round" + round, null);
+
+        assertEquals(1000, index.size());
+        assertEquals(1000, index.search("round4", 0, 10).total());
+        assertEquals(0, index.search("round3", 0, 10).total());
+    }
+
+    @Test
+    void load_keepsProductsChangedWhileLoading() {
+        index.put(9L, "Stale entry", null);
+        index.beginLoad();
+        index.put(1L, "Renamed lamp", null);
+        index.remove(2L);
+        index.put(3L, "Comet poster", null);
+
+        // Rows read before those changes
+        index.load(1L, "Desk lamp", null);
+        index.load(2L, "Pencil case", null);
+        index.load(4L, "Star map", null);
+        index.finishLoad();
+
+        assertEquals(List.of(1L), ids(index.search("renamed", 0, 10)));
+        assertEquals(0, index.search("desk", 0, 10).total());
+        assertEquals(0, index.search("pencil", 0, 10).total());
+        assertEquals(0, index.search("stale", 0, 10).total());
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void benchmark_syntheticCatalogOf100kProducts() {
+        Random random = new Random(42);
+        String[] vocabulary = new String[5000];
+        for (int i = 0; i < vocabulary.length; i++) vocabulary[i] = word(random);
+
+        long buildStart = System.nanoTime();
+        for (long id = 1; id <= 100_000; id++) {
+            index.put(id, sentence(random, vocabulary, 4), sentence(random, vocabulary, 30));
+        }
+        long buildMillis = (System.nanoTime() - buildStart) / 1_000_000;
+
+        String[] queries = new String[200];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = vocabulary[random.nextInt(vocabulary.length)] + " "
+                    + vocabulary[random.nextInt(vocabulary.length)].substring(0, 2);
+        }
+        for (String query : queries) index.search(query, 0, 20);
+        long queryStart = System.nanoTime();
+        long matches = 0;
+        for (String query : queries) matches += index.search(query, 0, 20).total();
+        double avgQueryMicros = (System.nanoTime() - queryStart) / 1000.0 / queries.length;
+
+        System.out.printf("100k products indexed in %d ms; %d two-token queries averaged %.0f us (%d total matches)%n",
+                buildMillis, queries.length, avgQueryMicros, matches);
+        assertEquals(100_000, index.size());
+    }
+
+    private static List<Long> ids(SearchResult result) {
+        return result.hits().stream().map(SearchHit::productId).toList();
+    }
+
+    private static String word(Random random) {
+        char[] chars = new char[4 + random.nextInt(6)];
+        for (int i = 0; i < chars.length; i++) chars[i] = (char) ('a' + random.nextInt(26));
+        return new String(chars);
+    }
+
+    private static String sentence(Random random, String[] vocabulary, int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            // Skewed pick so a few words are common, as in real catalogs
+            int rank = (int) Math.min(vocabulary.length - 1, Math.abs(random.nextGaussian()) * vocabulary.length / 4);
+            sb.append(vocabulary[rank]).append(' ');
+        }
+        return sb.toString();
+    }
+}
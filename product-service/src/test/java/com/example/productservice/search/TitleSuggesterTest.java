@@ -0,0 +1,149 @@
+package com.example.productservice.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TitleSuggesterTest {
+
+    private TitleSuggester suggester;
+
+    @BeforeEach
+    void setUp() {
+        suggester = new TitleSuggester();
+    }
+
+    @Test
+    void suggest_matchesAnyWordStartAndRanksByWeight() {
+        suggester.put(1L, "Blue gel pen", 10);
+        suggester.put(2L, "Gel ink refill", 30);
+        suggester.put(3L, "Angel figurine", 20);
+        suggester.put(4L, "Notebook", 40);
+
+        assertEquals(List.of(2L, 1L), ids(suggester.suggest("gel", 10)));
+        assertEquals(List.of("Gel ink refill"), suggester.suggest("GEL I", 10).stream()
+                .map(TitleSuggester.Suggestion::title).toList());
+        assertEquals(List.of(2L), ids(suggester.suggest("ge", 1)));
+        assertTrue(suggester.suggest("xyz", 10).isEmpty());
+        assertTrue(suggester.suggest("  ", 10).isEmpty());
+    }
+
+    @Test
+    void finishLoad_keepsProductsChangedWhileLoading() {
+        suggester.beginLoad();
+        suggester.put(3L, "Comet lamp", 30);
+        suggester.put(1L, "Renamed pen", 10);
+        suggester.remove(2L);
+
+        suggester.finishLoad(List.of(new TitleSuggester.Entry(1L, "Blue pen", 10),
+                new TitleSuggester.Entry(2L, "Pencil case", 20)));
+
+        assertEquals(List.of(3L), ids(suggester.suggest("comet", 10)));
+        assertEquals(List.of(1L), ids(suggester.suggest("renamed", 10)));
+        assertTrue(suggester.suggest("blue", 10).isEmpty());
+        assertTrue(suggester.suggest("pencil", 10).isEmpty());
+        assertEquals(2, suggester.size());
+    }
+
+    @Test
+    void suggest_returnsEachProductOnceEvenIfSeveralWordsMatch() {
+        suggester.put(1L, "Star star star", 10);
+        suggester.put(2L, "Starship", 5);
+
+        assertEquals(List.of(1L, 2L), ids(suggester.suggest("sta", 10)));
+    }
+
+    @Test
+    void putAndRemove_keepSuggestionsCurrent() {
+        suggester.put(1L, "Comet mug", 10);
+        suggester.put(1L, "Planet mug", 10);
+
+        assertTrue(suggester.suggest("com", 10).isEmpty());
+        assertEquals(List.of(1L), ids(suggester.suggest("pla", 10)));
+
+        suggester.remove(1L);
+        assertTrue(suggester.suggest("mug", 10).isEmpty());
+        assertEquals(0, suggester.size());
+    }
+
+    @Test
+    void repeatedUpdates_compactWithoutLosingTitles() {
+        for (int round = 0; round < 3; round++)
+            for (long id = 1; id <= 1000; id++) suggester.put(id, "Item " + id + " round" + round, id);
+
+        assertEquals(1000, suggester.size());
+        assertEquals(List.of(1000L, 999L), ids(suggester.suggest("round2", 2)));
+        assertTrue(suggester.suggest("round1", 10).isEmpty());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void benchmark_syntheticCatalogOf100kTitles() {
+        Random random = new Random(7);
+        String[] vocabulary = new String[5000];
+        for (int i = 0; i < vocabulary.length; i++) vocabulary[i] = word(random);
+        List<TitleSuggester.Entry> entries = new ArrayList<>();
+        long titleChars = 0;
+        for (long id = 1; id <= 100_000; id++) {
+            String title = sentence(random, vocabulary, 2 + random.nextInt(4));
+            titleChars += title.length();
+            entries.add(new TitleSuggester.Entry(id, title, random.nextInt(1_000_000)));
+        }
+
+        long buildStart = System.nanoTime();
+        suggester.replaceAll(entries);
+        long buildMillis = (System.nanoTime() - buildStart) / 1_000_000;
+
+        long putStart = System.nanoTime();
+        for (long id = 1; id <= 50; id++) suggester.put(id, "Renamed product " + id, 2_000_000);
+        double putMillis = (System.nanoTime() - putStart) / 1e6 / 50;
+
+        String[] prefixes = new String[2000];
+        for (int i = 0; i < prefixes.length; i++) {
+            String word = vocabulary[random.nextInt(vocabulary.length)];
+            prefixes[i] = word.substring(0, 1 + random.nextInt(3));
+        }
+        for (String prefix : prefixes) suggester.suggest(prefix, 10);
+        long[] latencies = new long[prefixes.length];
+        for (int i = 0; i < prefixes.length; i++) {
+            long start = System.nanoTime();
+            suggester.suggest(prefixes[i], 10);
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        long p99Micros = latencies[(int) Math.ceil(latencies.length * 0.99) - 1] / 1000;
+
+        System.out.printf("100k titles (%d KB of text) built in %d ms, ~%d KB in memory; "
+                        + "single put %.1f ms; suggest p50 %d us, p99 %d us%n",
+                titleChars * 2 / 1024, buildMillis, suggester.approximateMemoryBytes() / 1024, putMillis,
+                latencies[latencies.length / 2] / 1000, p99Micros);
+        assertEquals(100_000, suggester.size());
+        assertEquals(List.of(50L), ids(suggester.suggest("renamed product 50", 10)));
+    }
+
+    private static List<Long> ids(List<TitleSuggester.Suggestion> suggestions) {
+        return suggestions.stream().map(TitleSuggester.Suggestion::productId).toList();
+    }
+
+    private static String word(Random random) {
+        char[] chars = new char[4 + random.nextInt(6)];
+        for (int i = 0; i < chars.length; i++) chars[i] = (char) ('a' + random.nextInt(26));
+        return new String(chars);
+    }
+
+    private static String sentence(Random random, String[] vocabulary, int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(vocabulary[random.nextInt(vocabulary.length)]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.productservice.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileSystemBlobStoreTest {
+
+    @TempDir
+    Path root;
+
+    private FileSystemBlobStore blobStore;
+
+    @BeforeEach
+    void setUp() {
+        blobStore = new FileSystemBlobStore(root.toString(), DataSize.ofMegabytes(10));
+    }
+
+    @Test
+    void put_storesContentUnderItsSha256() throws Exception {
+        BlobRef ref = blobStore.put("hello".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824", ref.key());
+        assertEquals(5, ref.size());
+        assertTrue(Files.exists(root.resolve("2c").resolve(ref.key())));
+        assertEquals(5, blobStore.size(ref.key()));
+    }
+
+    @Test
+    void put_deduplicatesIdenticalContent() throws Exception {
+        BlobRef first = blobStore.put(new byte[]{1, 2, 3});
+        BlobRef second = blobStore.put(new byte[]{1, 2, 3});
+
+        assertEquals(first.key(), second.key());
+        try (var files = Files.walk(root)) {
+            assertEquals(1, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void transferTo_copiesWholeBlob() throws Exception {
+        byte[] content = new byte[3 * 1024 * 1024 + 17];
+        for (int i = 0; i < content.length; i++) content[i] = (byte) i;
+        BlobRef ref = blobStore.put(content);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        blobStore.transferTo(ref.key(), Channels.newChannel(out));
+
+        assertArrayEquals(content, out.toByteArray());
+    }
+
+    @Test
+    void delete_removesBlob() throws Exception {
+        BlobRef ref = blobStore.put(new byte[]{9});
+        blobStore.delete(ref.key());
+        assertFalse(blobStore.exists(ref.key()));
+    }
+
+    @Test
+    void resolve_rejectsKeysOutsideTheStore() {
+        assertThrows(IllegalArgumentException.class, () -> blobStore.exists("../../etc/passwd"));
+    }
+
+    @Test
+    void put_rejectsContentOverLimitWithoutLeavingFilesBehind() throws Exception {
+        FileSystemBlobStore small = new FileSystemBlobStore(root.toString(), DataSize.ofBytes(1024));
+
+        assertThrows(BlobTooLargeException.class, () -> small.put(new SyntheticStream(1025, 1)));
+        try (var files = Files.walk(root)) {
+            assertEquals(0, files.filter(Files::isRegularFile).count());
+        }
+        assertEquals(1024, small.put(new SyntheticStream(1024, 1)).size());
+    }
+
+    @Test
+    void put_streamsConcurrentLargeUploadsUnderSmallHeap() throws Exception {
+        // 8 concurrent 48 MB uploads in a JVM capped at 32 MB: buffering any one of them would OOM
+        Process process = new ProcessBuilder(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Xmx32m",
+                "-cp", System.getProperty("java.class.path"),
+                ConcurrentUploads.class.getName(),
+                root.toString())
+                .redirectErrorStream(true)
+                .start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertTrue(process.waitFor(5, TimeUnit.MINUTES), "uploads did not finish");
+        assertEquals(0, process.exitValue(), output);
+        try (var files = Files.walk(root)) {
+            assertEquals(ConcurrentUploads.UPLOADS, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    static class ConcurrentUploads {
+        static final int UPLOADS = 8;
+        static final long UPLOAD_SIZE = 48L * 1024 * 1024;
+
+        public static void main(String[] args) throws Exception {
+            FileSystemBlobStore store = new FileSystemBlobStore(args[0], DataSize.ofMegabytes(64));
+            ExecutorService executor = Executors.newFixedThreadPool(UPLOADS);
+            List<Future<BlobRef>> results = new ArrayList<>();
+            for (int i = 0; i < UPLOADS; i++) {
+                int seed = i;
+                results.add(executor.submit(() -> store.put(new SyntheticStream(UPLOAD_SIZE, seed))));
+            }
+            for (Future<BlobRef> result : results) {
+                if (result.get().size() != UPLOAD_SIZE) System.exit(2);
+            }
+            executor.shutdown();
+        }
+    }
+
+    // Produces deterministic pseudo-random content without ever holding it in memory
+    static class SyntheticStream extends InputStream {
+        private final long length;
+        private long position;
+        private int state;
+
+        SyntheticStream(long length, int seed) {
+            this.length = length;
+            this.state = seed * 0x9E3779B9 + 1;
+        }
+
+        @Override
+        public int read() {
+            if (position >= length) return -1;
+            position++;
+            state ^= state << 13;
+            state ^= state >>> 17;
+            state ^= state << 5;
+            return state & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (position >= length) return -1;
+            int n = (int) Math.min(len, length - position);
+            for (int i = 0; i < n; i++) b[off + i] = (byte) read();
+            return n;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.productservice.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageVariantServiceTest {
+
+    @TempDir
+    Path root;
+
+    private FileSystemBlobStore blobStore;
+    private ImageVariantService variants;
+
+    @BeforeEach
+    void setUp() {
+        blobStore = new FileSystemBlobStore(root.resolve("blobs").toString(), DataSize.ofMegabytes(10));
+        variants = new ImageVariantService(blobStore, root.resolve("variants").toString(), 1, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        variants.shutdown();
+    }
+
+    @Test
+    void variant_downscalesToRequestedWidthAndCaches() throws Exception {
+        BlobRef blob = blobStore.put(encode(new BufferedImage(2000, 1000, BufferedImage.TYPE_INT_RGB), "jpg"));
+
+        Optional<ImageVariant> thumb = variants.variant(blob.key(), "image/jpeg", 160);
+
+        assertTrue(thumb.isPresent());
+        assertEquals("image/jpeg", thumb.get().contentType());
+        BufferedImage decoded = ImageIO.read(thumb.get().path().toFile());
+        assertEquals(160, decoded.getWidth());
+        assertEquals(80, decoded.getHeight());
+        assertEquals(thumb.get().path(), variants.variant(blob.key(), "image/jpeg", 160).orElseThrow().path());
+    }
+
+    @Test
+    void variant_keepsPngForTransparentImages() throws Exception {
+        BlobRef blob = blobStore.put(encode(new BufferedImage(600, 600, BufferedImage.TYPE_INT_ARGB), "png"));
+
+        ImageVariant variant = variants.variant(blob.key(), "image/png", 480).orElseThrow();
+
+        assertEquals("image/png", variant.contentType());
+        assertTrue(ImageIO.read(variant.path().toFile()).getColorModel().hasAlpha());
+    }
+
+    @Test
+    void variant_isEmptyWhenOriginalIsAlreadyNarrow() throws Exception {
+        BlobRef blob = blobStore.put(encode(new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB), "jpg"));
+
+        assertTrue(variants.variant(blob.key(), "image/jpeg", 480).isEmpty());
+    }
+
+    @Test
+    void variant_isEmptyForContentImageIoCannotDecode() throws Exception {
+        BlobRef blob = blobStore.put(new byte[]{1, 2, 3, 4});
+
+        assertTrue(variants.variant(blob.key(), "image/webp", 160).isEmpty());
+    }
+
+    @Test
+    void variant_rejectsUnsupportedWidth() throws Exception {
+        BlobRef blob = blobStore.put(new byte[]{1});
+
+        assertThrows(UnsupportedImageSizeException.class, () -> variants.variant(blob.key(), "image/jpeg", 333));
+    }
+
+    @Test
+    void variant_failsFastWhileExecutorIsSaturated() throws Exception {
+        BlobRef blob = blobStore.put(encode(new BufferedImage(2000, 1000, BufferedImage.TYPE_INT_RGB), "jpg"));
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1), new ThreadPoolExecutor.AbortPolicy());
+        ImageVariantService busy = new ImageVariantService(blobStore, root.resolve("variants"), executor);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // One task running and one queued fill the executor
+            executor.execute(() -> awaitQuietly(release));
+            executor.execute(() -> awaitQuietly(release));
+
+            assertThrows(ImageVariantUnavailableException.class, () -> busy.variant(blob.key(), "image/jpeg", 160));
+
+            release.countDown();
+            while (executor.getCompletedTaskCount() < 2) Thread.sleep(10);
+            assertTrue(busy.variant(blob.key(), "image/jpeg", 160).isPresent());
+        } finally {
+            release.countDown();
+            busy.shutdown();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+}
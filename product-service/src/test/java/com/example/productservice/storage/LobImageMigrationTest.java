@@ -0,0 +1,40 @@
+package com.example.productservice.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class LobImageMigrationTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void run_migratesLegacyRowLargerThanUploadLimit() throws Exception {
+        FileSystemBlobStore blobStore = new FileSystemBlobStore(root.toString(), DataSize.ofKilobytes(1));
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        byte[] content = new byte[4096];
+        when(jdbcTemplate.queryForList(contains("information_schema"), eq(String.class), eq("public")))
+                .thenReturn(List.of("bytea"));
+        when(jdbcTemplate.queryForList(startsWith("SELECT id"), eq(Long.class))).thenReturn(List.of(1L));
+        when(jdbcTemplate.queryForObject(anyString(), eq(byte[].class), eq(1L))).thenReturn(content);
+
+        new LobImageMigration(jdbcTemplate, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                blobStore, "public").run(null);
+
+        String key = blobStore.putWithoutLimit(new ByteArrayInputStream(content)).key();
+        verify(jdbcTemplate).update(startsWith("UPDATE public.images"), eq(key), eq(4096L), eq(1L));
+        assertEquals(4096, blobStore.size(key));
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.productservice.transfer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CatalogExportServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private CatalogExportService exportService;
+    private final List<Long> requestedAfterIds = new ArrayList<>();
+    private long catalogSize;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        exportService = new CatalogExportService(jdbcTemplate, JsonMapper.builder().build(), "products");
+        // Stand-in for "WHERE id > ? ORDER BY id LIMIT ?" over ids 1..catalogSize
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(), any())).thenAnswer(inv -> {
+            long afterId = inv.getArgument(2);
+            int limit = inv.getArgument(3);
+            requestedAfterIds.add(afterId);
+            List<CatalogRow> page = new ArrayList<>();
+            for (long id = afterId + 1; id <= Math.min(catalogSize, afterId + limit); id++) page.add(row(id));
+            return page;
+        });
+    }
+
+    @Test
+    void exportNdjson_walksTableByKeysetPages() throws Exception {
+        catalogSize = 2_500;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long exported = exportService.exportNdjson(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2_500, exported);
+        assertEquals(2_500, lines.length);
+        assertTrue(lines[0].contains("\"title\":\"Item 1, \\\"boxed\\\"\""));
+        assertEquals(List.of(0L, 1_000L, 2_000L), requestedAfterIds);
+    }
+
+    @Test
+    void exportCsv_quotesFieldsAndWritesHeader() throws Exception {
+        catalogSize = 1;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.exportCsv(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertEquals(String.join(",", CatalogExportService.CSV_HEADER), lines[0]);
+        assertEquals("1,\"Item 1, \"\"boxed\"\"\",,101,3,false,2025-03-01T12:00", lines[1]);
+    }
+
+    @Test
+    void exportCsv_streams50kRowsWithConstantPageSize() throws Exception {
+        catalogSize = 50_000;
+        CountingStream out = new CountingStream();
+
+        long exported = exportService.exportCsv(out);
+
+        assertTrue(out.bytes > 0);
+        assertEquals(50_000, exported);
+        assertEquals(51, requestedAfterIds.size());
+    }
+
+    private static CatalogRow row(long id) {
+        return new CatalogRow(id, "Item " + id + ", \"boxed\"", null, (int) (100 + id), 3L, false,
+                LocalDateTime.of(2025, 3, 1, 12, 0));
+    }
+
+    private static class CountingStream extends OutputStream {
+        long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
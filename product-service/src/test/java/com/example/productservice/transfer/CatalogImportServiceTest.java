@@ -0,0 +1,190 @@
+package com.example.productservice.transfer;
+
+import com.example.productservice.dto.ImportResultDto;
+import com.example.productservice.model.Category;
+import com.example.productservice.repository.CategoryRepository;
+import com.example.productservice.search.ProductFacetIndex;
+import com.example.productservice.search.ProductSearchIndex;
+import com.example.productservice.search.TitleSuggester;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CatalogImportServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private ProductSearchIndex searchIndex;
+    private TitleSuggester titleSuggester;
+    private ProductFacetIndex facetIndex;
+    private CatalogImportService importService;
+    // Parameters bound per inserted row, by JDBC parameter index
+    private final List<Map<Integer, Object>> inserted = new ArrayList<>();
+    private final List<Integer> batchSizes = new ArrayList<>();
+    private boolean recordRows = true;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        CategoryRepository categoryRepository = mock(CategoryRepository.class);
+        Category pens = new Category();
+        pens.setId(5L);
+        when(categoryRepository.findAll()).thenReturn(List.of(pens));
+        searchIndex = new ProductSearchIndex();
+        titleSuggester = new TitleSuggester();
+        facetIndex = new ProductFacetIndex("0-100,100-");
+        importService = new CatalogImportService(jdbcTemplate, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                categoryRepository, JsonMapper.builder().build(), searchIndex, titleSuggester, facetIndex, "products");
+
+        AtomicLong sequence = new AtomicLong();
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), any(), any())).thenAnswer(inv -> {
+            int count = inv.getArgument(3);
+            return LongStream.range(0, count).mapToObj(i -> sequence.incrementAndGet()).toList();
+        });
+        when(jdbcTemplate.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class))).thenAnswer(inv -> {
+            BatchPreparedStatementSetter setter = inv.getArgument(1);
+            batchSizes.add(setter.getBatchSize());
+            for (int i = 0; i < setter.getBatchSize(); i++) {
+                Map<Integer, Object> row = new HashMap<>();
+                setter.setValues(recordingStatement(row), i);
+                if (recordRows) inserted.add(row);
+            }
+            return new int[setter.getBatchSize()];
+        });
+    }
+
+    @Test
+    void importNdjson_insertsValidRowsAndReportsRejectedLines() throws Exception {
+        String ndjson = """
+                {"title":"Gel pen","description":"Blue ink","price":90,"categoryId":5}
+                {"title":"","price":10}
+
+                not json
+                {"title":"Desk lamp","price":2500,"onSale":true}
+                {"title":"Ghost","price":10,"categoryId":99}
+                """;
+
+        ImportResultDto result = importService.importNdjson(stream(ndjson));
+
+        assertEquals(2, result.getImported());
+        assertEquals(3, result.getRejected());
+        assertEquals(List.of("line 2: title is required", "line 4: invalid JSON", "line 6: no such category: 99"),
+                result.getErrors());
+        assertEquals("Gel pen", inserted.get(0).get(2));
+        assertEquals(5L, inserted.get(0).get(6));
+        assertEquals(true, inserted.get(1).get(5));
+        assertNull(inserted.get(1).get(6));
+        // New products are searchable right away
+        assertEquals(1, searchIndex.search("lamp", 0, 10).total());
+        assertEquals("Desk lamp", titleSuggester.suggest("des", 10).get(0).title());
+        assertEquals(List.of(1, 1), facetIndex.count(null, null, null).priceRanges());
+    }
+
+    @Test
+    void importCsv_handlesQuotingAndIgnoresUnknownColumns() throws Exception {
+        String csv = "id,title,price,description,categoryId\r\n" +
+                "17,\"Notebook, A5\",300,\"Says \"\"hello\"\"\non two lines\",5\r\n" +
+                "18,Pencil,abc,,\r\n" +
+                "19,Eraser,20,,\r\n";
+
+        ImportResultDto result = importService.importCsv(stream(csv));
+
+        assertEquals(2, result.getImported());
+        assertEquals(List.of("line 4: invalid number"), result.getErrors());
+        assertEquals("Notebook, A5", inserted.get(0).get(2));
+        assertEquals("Says \"hello\"\non two lines", inserted.get(0).get(3));
+        assertEquals(300, inserted.get(0).get(4));
+        assertEquals("Eraser", inserted.get(1).get(2));
+    }
+
+    @Test
+    void importCsv_requiresTitleAndPriceColumns() {
+        assertThrows(RuntimeException.class, () -> importService.importCsv(stream("name,cost\r\nPen,10\r\n")));
+    }
+
+    @Test
+    void importNdjson_streams50kRowsInFixedSizeBatches() throws Exception {
+        int rows = 50_000;
+        recordRows = false;
+        InputStream ndjson = new GeneratedLines(rows, i ->
+                "{\"title\":\"Seasonal item " + i + "\",\"description\":\"Limited edition print number " + i
+                        + "\",\"price\":" + (i % 5000) + ",\"categoryId\":5}\n");
+
+        ImportResultDto result = importService.importNdjson(ndjson);
+
+        assertEquals(rows, result.getImported());
+        assertEquals(rows / CatalogImportService.BATCH_SIZE, batchSizes.size());
+        assertTrue(batchSizes.stream().allMatch(size -> size <= CatalogImportService.BATCH_SIZE));
+        // One id reservation and one batched INSERT per 1000 rows, instead of two saves per product
+        verify(jdbcTemplate, times(batchSizes.size())).queryForList(anyString(), eq(Long.class), any(), any());
+        assertEquals(rows, titleSuggester.size());
+    }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static PreparedStatement recordingStatement(Map<Integer, Object> row) {
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("setNull")) row.put((Integer) args[0], null);
+                    else if (method.getName().startsWith("set") && args.length == 2) row.put((Integer) args[0], args[1]);
+                    return null;
+                });
+    }
+
+    /**
+     * Produces lines on demand so the input never exists in memory as a whole.
+     */
+    static class GeneratedLines extends InputStream {
+        private final int lines;
+        private final IntFunction<String> generator;
+        private int next;
+        private byte[] current = new byte[0];
+        private int position;
+
+        GeneratedLines(int lines, IntFunction<String> generator) {
+            this.lines = lines;
+            this.generator = generator;
+        }
+
+        @Override
+        public int read() {
+            if (position == current.length) {
+                if (next == lines) return -1;
+                current = generator.apply(next++).getBytes(StandardCharsets.UTF_8);
+                position = 0;
+            }
+            return current[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) return 0;
+            int n = 0;
+            while (n < len) {
+                if (position == current.length && next == lines) break;
+                int c = read();
+                b[off + n++] = (byte) c;
+            }
+            return n == 0 ? -1 : n;
+        }
+    }
+}
@@ -1,10 +1,15 @@
 package com.example.wishlistservice.controller;
 
 import com.example.wishlistservice.dto.WishlistDto;
+import com.example.wishlistservice.service.VersionMismatchException;
 import com.example.wishlistservice.service.WishlistService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/wishlist")
@@ -12,18 +17,46 @@ import org.springframework.web.bind.annotation.*;
 public class WishlistController {
     private final WishlistService wishlistService;
 
+    // The wishlist version is the ETag; a matching If-None-Match is answered without loading products
     @GetMapping("/{userId}")
-    public ResponseEntity<WishlistDto> getWishlist(@PathVariable Long userId) {
-        return ResponseEntity.ok(wishlistService.getWishlist(userId));
+    public ResponseEntity<WishlistDto> getWishlist(@PathVariable Long userId, WebRequest request) {
+        Optional<Long> version = wishlistService.getVersion(userId);
+        if (version.isPresent() && request.checkNotModified(etag(version.get()))) return null;
+        return withEtag(wishlistService.getWishlist(userId));
     }
 
     @PostMapping("/{userId}/products")
-    public ResponseEntity<WishlistDto> addProduct(@PathVariable Long userId, @RequestParam Long productId) {
-        return ResponseEntity.ok(wishlistService.addProduct(userId, productId));
+    public ResponseEntity<WishlistDto> addProduct(@PathVariable Long userId, @RequestParam Long productId,
+                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return withEtag(wishlistService.addProduct(userId, productId, expectedVersion(ifMatch)));
     }
 
     @DeleteMapping("/{userId}/products/{productId}")
-    public ResponseEntity<WishlistDto> removeProduct(@PathVariable Long userId, @PathVariable Long productId) {
-        return ResponseEntity.ok(wishlistService.removeProduct(userId, productId));
+    public ResponseEntity<WishlistDto> removeProduct(@PathVariable Long userId, @PathVariable Long productId,
+                                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return withEtag(wishlistService.removeProduct(userId, productId, expectedVersion(ifMatch)));
+    }
+
+    private static ResponseEntity<WishlistDto> withEtag(WishlistDto wishlist) {
+        return ResponseEntity.ok().eTag(etag(wishlist.getVersion())).body(wishlist);
+    }
+
+    private static String etag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * The version an If-Match header requires, or null when there is none or it is {@code *}.
+     * Weak or unparseable tags can never match a strong ETag.
+     */
+    private static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) return null;
+        String tag = ifMatch.trim();
+        if (tag.length() < 3 || !tag.startsWith("\"") || !tag.endsWith("\"")) throw new VersionMismatchException();
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException ex) {
+            throw new VersionMismatchException();
+        }
     }
 }
@@ -7,5 +7,6 @@ import java.util.Set;
 public class WishlistDto {
     private Long id;
     private Long userId;
+    private long version;
     private Set<Long> products;
 }
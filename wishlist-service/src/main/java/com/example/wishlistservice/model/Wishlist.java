@@ -2,6 +2,7 @@ package com.example.wishlistservice.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.ColumnDefault;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -15,6 +16,12 @@ public class Wishlist {
 
     private Long userId;
 
+    // Incremented by Hibernate whenever the wishlist or its products change; served as the ETag
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long version;
+
     @ElementCollection(fetch = FetchType.EAGER)
     @CollectionTable(name = "wishlist_products", joinColumns = @JoinColumn(name = "wishlist_id"))
     @Column(name = "product_id")
@@ -2,9 +2,15 @@ package com.example.wishlistservice.repository;
 
 import com.example.wishlistservice.model.Wishlist;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Optional;
 
 public interface WishlistRepository extends JpaRepository<Wishlist, Long> {
     Optional<Wishlist> findByUserId(Long userId);
+
+    // Version only, so conditional GETs don't load the eager products collection
+    @Query("select w.version from Wishlist w where w.userId = :userId")
+    Optional<Long> findVersionByUserId(@Param("userId") Long userId);
 }
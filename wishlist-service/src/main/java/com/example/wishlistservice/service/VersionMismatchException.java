@@ -0,0 +1,11 @@
+package com.example.wishlistservice.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+public class VersionMismatchException extends RuntimeException {
+    public VersionMismatchException() {
+        super("Wishlist was modified concurrently");
+    }
+}
@@ -4,8 +4,11 @@ import com.example.wishlistservice.dto.WishlistDto;
 import com.example.wishlistservice.model.Wishlist;
 import com.example.wishlistservice.repository.WishlistRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 
+import java.util.Optional;
+
 @Service
 @RequiredArgsConstructor
 public class WishlistService {
@@ -22,7 +25,17 @@ public class WishlistService {
         return toDto(wishlist);
     }
 
-    public WishlistDto addProduct(Long userId, Long productId) {
+    /**
+     * The wishlist's current version without loading its products, for conditional requests. Empty
+     * if the user has no wishlist yet.
+     */
+    public Optional<Long> getVersion(Long userId) {
+        return wishlistRepository.findVersionByUserId(userId);
+    }
+
+    // A non-null expectedVersion makes a mutation conditional (If-Match); saving also fails if the
+    // wishlist changed after it was read
+    public WishlistDto addProduct(Long userId, Long productId, Long expectedVersion) {
         Wishlist wishlist = wishlistRepository.findByUserId(userId)
                 .orElseGet(() -> {
                     Wishlist wl = new Wishlist();
@@ -30,23 +43,36 @@ public class WishlistService {
                     wishlistRepository.save(wl);
                     return wl;
                 });
+        checkVersion(wishlist, expectedVersion);
         wishlist.getProducts().add(productId);
-        wishlistRepository.save(wishlist);
-        return toDto(wishlist);
+        return toDto(save(wishlist));
     }
 
-    public WishlistDto removeProduct(Long userId, Long productId) {
+    public WishlistDto removeProduct(Long userId, Long productId, Long expectedVersion) {
         Wishlist wishlist = wishlistRepository.findByUserId(userId)
                 .orElseThrow(() -> new RuntimeException("Not found"));
+        checkVersion(wishlist, expectedVersion);
         wishlist.getProducts().remove(productId);
-        wishlistRepository.save(wishlist);
-        return toDto(wishlist);
+        return toDto(save(wishlist));
+    }
+
+    private static void checkVersion(Wishlist wishlist, Long expectedVersion) {
+        if (expectedVersion != null && expectedVersion != wishlist.getVersion()) throw new VersionMismatchException();
+    }
+
+    private Wishlist save(Wishlist wishlist) {
+        try {
+            return wishlistRepository.save(wishlist);
+        } catch (OptimisticLockingFailureException ex) {
+            throw new VersionMismatchException();
+        }
     }
 
     private WishlistDto toDto(Wishlist wl) {
         WishlistDto dto = new WishlistDto();
         dto.setId(wl.getId());
         dto.setUserId(wl.getUserId());
+        dto.setVersion(wl.getVersion());
         dto.setProducts(wl.getProducts());
         return dto;
     }
@@ -3,10 +3,12 @@ package com.example.wishlistservice;
 import com.example.wishlistservice.dto.WishlistDto;
 import com.example.wishlistservice.model.Wishlist;
 import com.example.wishlistservice.repository.WishlistRepository;
+import com.example.wishlistservice.service.VersionMismatchException;
 import com.example.wishlistservice.service.WishlistService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.springframework.dao.OptimisticLockingFailureException;
 
 import java.util.HashSet;
 import java.util.List;
@@ -87,7 +89,7 @@ class WishlistServiceTest {
         when(wishlistRepository.findByUserId(userId)).thenReturn(Optional.of(existing));
         when(wishlistRepository.save(any(Wishlist.class))).thenAnswer(inv -> inv.getArgument(0));
 
-        WishlistDto dto = wishlistService.addProduct(userId, productId);
+        WishlistDto dto = wishlistService.addProduct(userId, productId, null);
 
         verify(wishlistRepository).save(existing);
         assertEquals(3, existing.getProducts().size());
@@ -111,7 +113,7 @@ class WishlistServiceTest {
             return wl;
         });
 
-        WishlistDto dto = wishlistService.addProduct(userId, productId);
+        WishlistDto dto = wishlistService.addProduct(userId, productId, null);
 
         ArgumentCaptor<Wishlist> captor = ArgumentCaptor.forClass(Wishlist.class);
         verify(wishlistRepository, atLeast(1)).save(captor.capture());
@@ -142,7 +144,7 @@ class WishlistServiceTest {
         when(wishlistRepository.findByUserId(userId)).thenReturn(Optional.of(wishlist));
         when(wishlistRepository.save(any(Wishlist.class))).thenAnswer(inv -> inv.getArgument(0));
 
-        WishlistDto dto = wishlistService.removeProduct(userId, productId);
+        WishlistDto dto = wishlistService.removeProduct(userId, productId, null);
 
         verify(wishlistRepository).save(wishlist);
         assertEquals(2, wishlist.getProducts().size());
@@ -163,7 +165,7 @@ class WishlistServiceTest {
         when(wishlistRepository.findByUserId(userId)).thenReturn(Optional.empty());
 
         RuntimeException exception = assertThrows(RuntimeException.class,
-                () -> wishlistService.removeProduct(userId, productId));
+                () -> wishlistService.removeProduct(userId, productId, null));
 
         assertEquals("Not found", exception.getMessage());
         verify(wishlistRepository, never()).save(any(Wishlist.class));
@@ -182,13 +184,70 @@ class WishlistServiceTest {
         when(wishlistRepository.findByUserId(userId)).thenReturn(Optional.of(wishlist));
         when(wishlistRepository.save(any(Wishlist.class))).thenAnswer(inv -> inv.getArgument(0));
 
-        WishlistDto dto = wishlistService.removeProduct(userId, productId);
+        WishlistDto dto = wishlistService.removeProduct(userId, productId, null);
 
         // Товара не было, список не изменится
         assertEquals(2, wishlist.getProducts().size());
         assertEquals(2, dto.getProducts().size());
     }
 
+    // ---------- versions ----------
+
+    @Test
+    void getVersion_doesNotLoadProducts() {
+        when(wishlistRepository.findVersionByUserId(1L)).thenReturn(Optional.of(3L));
+
+        assertEquals(Optional.of(3L), wishlistService.getVersion(1L));
+        verify(wishlistRepository, never()).findByUserId(any());
+    }
+
+    @Test
+    void addProduct_rejectsStaleIfMatchVersion() {
+        Wishlist wishlist = new Wishlist();
+        wishlist.setId(5L);
+        wishlist.setUserId(1L);
+        wishlist.setVersion(4);
+        when(wishlistRepository.findByUserId(1L)).thenReturn(Optional.of(wishlist));
+
+        assertThrows(VersionMismatchException.class, () -> wishlistService.addProduct(1L, 300L, 3L));
+        verify(wishlistRepository, never()).save(any(Wishlist.class));
+    }
+
+    @Test
+    void removeProduct_returnsVersionOfSavedWishlist() {
+        Wishlist wishlist = new Wishlist();
+        wishlist.setId(5L);
+        wishlist.setUserId(1L);
+        wishlist.setVersion(4);
+        wishlist.setProducts(new HashSet<>(List.of(100L)));
+        when(wishlistRepository.findByUserId(1L)).thenReturn(Optional.of(wishlist));
+        when(wishlistRepository.save(any(Wishlist.class))).thenAnswer(inv -> {
+            // Saving merges into a managed copy whose version Hibernate has incremented
+            Wishlist merged = new Wishlist();
+            merged.setId(5L);
+            merged.setUserId(1L);
+            merged.setVersion(5);
+            merged.setProducts(inv.getArgument(0, Wishlist.class).getProducts());
+            return merged;
+        });
+
+        WishlistDto dto = wishlistService.removeProduct(1L, 100L, 4L);
+
+        assertEquals(5, dto.getVersion());
+        assertTrue(dto.getProducts().isEmpty());
+    }
+
+    @Test
+    void removeProduct_mapsConcurrentSaveToVersionMismatch() {
+        Wishlist wishlist = new Wishlist();
+        wishlist.setUserId(1L);
+        when(wishlistRepository.findByUserId(1L)).thenReturn(Optional.of(wishlist));
+        when(wishlistRepository.save(any(Wishlist.class)))
+                .thenThrow(new OptimisticLockingFailureException("row was updated by another transaction"));
+
+        assertThrows(VersionMismatchException.class, () -> wishlistService.removeProduct(1L, 100L, null));
+    }
+
     // ---------- toDto mapping ----------
 
     @Test